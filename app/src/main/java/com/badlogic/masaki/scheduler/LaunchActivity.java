@@ -11,12 +11,10 @@ import android.widget.Button;
 import android.widget.TextView;
 import android.widget.Toast;
 
-import com.badlogic.masaki.scheduler.library.SchedulersSavedState;
 import com.badlogic.masaki.scheduler.library.Scheduler;
+import com.badlogic.masaki.scheduler.library.SchedulerManager;
 
 import java.util.Calendar;
-import java.util.concurrent.Executor;
-import java.util.concurrent.Executors;
 
 /**
  * Created by shojimasaki on 2016/04/24.
@@ -28,16 +26,14 @@ public class LaunchActivity extends AppCompatActivity implements Scheduler.OnSki
 
     private static final int TAG_SCHEDULER = 1234;
     private static final String KEY_TASK_COMPLETED = "task_completed";
-    private static final String KEY_SCHEDULERS_STATE = "schedulers_state";
 
     private boolean mScheduledTaskCompleted = false;
 
     private TextView mTextView;
     private Button mButton;
 
-    private Executor mExecutor;
+    private SchedulerManager mSchedulerManager;
     private Scheduler mScheduler;
-    private SchedulersSavedState mSchedulersSavedState;
 
     private Handler mHandler;
 
@@ -47,10 +43,10 @@ public class LaunchActivity extends AppCompatActivity implements Scheduler.OnSki
         setContentView(R.layout.activity_test);
 
         initViews();
+        mSchedulerManager = SchedulerManager.bind(this, savedInstanceState);
 
         if (savedInstanceState != null) {
             mScheduledTaskCompleted = savedInstanceState.getBoolean(KEY_TASK_COMPLETED);
-            mSchedulersSavedState = savedInstanceState.getParcelable(KEY_SCHEDULERS_STATE);
 
             mButton.setVisibility(mScheduledTaskCompleted ? View.VISIBLE : View.GONE);
         }
@@ -75,7 +71,6 @@ public class LaunchActivity extends AppCompatActivity implements Scheduler.OnSki
 
     private void executeScheduledTask() {
         mHandler = new Handler();
-        mExecutor = Executors.newFixedThreadPool(1);
         mScheduler = new Scheduler(700, 1000 * 10, Scheduler.DURATION_ACTIVE_TIME) {
             @Override
             protected void executeRegularTask() {
@@ -95,37 +90,7 @@ public class LaunchActivity extends AppCompatActivity implements Scheduler.OnSki
                 .setOnSkipFrameListener(this)
                 .setOnTaskCompletionListener(this);
 
-        if (mSchedulersSavedState != null) {
-            mScheduler.restoreInstanceState(mSchedulersSavedState);
-        }
-
-        mExecutor.execute(mScheduler);
-    }
-
-    @Override
-    protected void onPause() {
-        super.onPause();
-        if(mScheduler != null) {
-            mScheduler.pause();
-        }
-    }
-
-    @Override
-    protected void onResume() {
-        super.onResume();
-
-        if(mScheduler != null) {
-            mScheduler.resume();
-        }
-    }
-
-    @Override
-    protected void onDestroy() {
-        super.onDestroy();
-
-        if (mScheduler != null) {
-            mScheduler.release();
-        }
+        mSchedulerManager.execute(mScheduler);
     }
 
     @Override
@@ -133,10 +98,6 @@ public class LaunchActivity extends AppCompatActivity implements Scheduler.OnSki
         super.onSaveInstanceState(outState);
 
         outState.putBoolean(KEY_TASK_COMPLETED, mScheduledTaskCompleted);
-        if (mScheduler != null) {
-            mSchedulersSavedState = mScheduler.saveInstanceState();
-            outState.putParcelable(KEY_SCHEDULERS_STATE, mSchedulersSavedState);
-        }
     }
 
     @Override
@@ -157,10 +118,9 @@ public class LaunchActivity extends AppCompatActivity implements Scheduler.OnSki
                 mButton.setVisibility(View.VISIBLE);
                 mScheduledTaskCompleted = true;
 
-                mExecutor = null;
+                mSchedulerManager.release(mScheduler);
                 mHandler = null;
                 mScheduler = null;
-                mSchedulersSavedState = null;
                 break;
 
             default:
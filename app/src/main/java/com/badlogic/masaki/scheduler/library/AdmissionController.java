@@ -0,0 +1,44 @@
+package com.badlogic.masaki.scheduler.library;
+
+/**
+ * Interface that lets a {@link SchedulerEngine} push back on its load
+ * It decides whether a newly executed scheduler runs, waits or is dropped,
+ * and which priority classes of the running schedulers are degraded
+ * Called with the engine's lock held, so implementations must not call back into the engine
+ */
+public interface AdmissionController {
+
+    /**
+     * Returned by {@link #onSubmit(Scheduler, EngineLoad)}
+     * Indicates that the scheduler is executed now
+     */
+    int ADMIT = 0;
+
+    /**
+     * Returned by {@link #onSubmit(Scheduler, EngineLoad)}
+     * Indicates that the scheduler waits and is submitted again when the load is next evaluated
+     */
+    int DEFER = 1;
+
+    /**
+     * Returned by {@link #onSubmit(Scheduler, EngineLoad)}
+     * Indicates that the scheduler is dropped
+     */
+    int REJECT = 2;
+
+    /**
+     * Called when a scheduler is submitted to the engine, and again for a deferred one
+     * @param scheduler submitted scheduler
+     * @param load current load of the engine
+     * @return {@link #ADMIT}, {@link #DEFER} or {@link #REJECT}
+     */
+    int onSubmit(Scheduler scheduler, EngineLoad load);
+
+    /**
+     * Called whenever the engine evaluates its load
+     * @param load current load of the engine
+     * @return the lowest priority whose regular tasks are executed, the others are skipped if allowed,
+     * {@link Scheduler#PRIORITY_LOW} not to degrade any
+     */
+    int getDegradedPriority(EngineLoad load);
+}
@@ -0,0 +1,43 @@
+package com.badlogic.masaki.scheduler.library;
+
+/**
+ * Token that tells a running regular task it should stop as soon as possible
+ * {@link Scheduler#executeRegularTask()} checks {@link #isCancelled()} at convenient points
+ * and returns early when the token has been cancelled
+ */
+public final class CancellationToken {
+
+    /**
+     * Flags that the token has been cancelled
+     */
+    private volatile boolean mCancelled;
+
+    /**
+     * Constructor that is package private, tokens are handed out by {@link Scheduler}
+     */
+    CancellationToken() {
+
+    }
+
+    /**
+     * Checks if the task holding this token has been asked to stop
+     * @return true if the token has been cancelled
+     */
+    public boolean isCancelled() {
+        return mCancelled;
+    }
+
+    /**
+     * Cancels the token
+     */
+    void cancel() {
+        mCancelled = true;
+    }
+
+    /**
+     * Makes the token reusable for the next regular task
+     */
+    void reset() {
+        mCancelled = false;
+    }
+}
@@ -0,0 +1,351 @@
+package com.badlogic.masaki.scheduler.library;
+
+import android.support.annotation.Nullable;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Class that runs each logical scheduler on exactly one node of a cluster at a time
+ * Every node registers the same logical schedulers by name; the node holding the lease on a name
+ * in the shared {@link LeaseStore} runs it, and saves its timing state into the store on every renewal
+ * When the owner stops renewing, another node acquires the lease, restores the saved state into a new
+ * {@link Scheduler} and continues with the same frame count and elapsed time
+ */
+public class ClusterCoordinator {
+
+    public static final String TAG = ClusterCoordinator.class.getSimpleName();
+
+    /**
+     * Creates the {@link Scheduler} of a logical scheduler each time this node becomes its owner
+     */
+    public interface SchedulerFactory {
+        /**
+         * Called when this node acquires the lease on the name
+         * @param name name of the logical scheduler
+         * @return a new scheduler that has not run yet
+         */
+        Scheduler newScheduler(String name);
+    }
+
+    /**
+     * Store holding the leases and the states
+     */
+    private final LeaseStore mStore;
+
+    /**
+     * Id of this node
+     */
+    private final String mNodeId;
+
+    /**
+     * Time a lease stays valid without renewal (millis)
+     */
+    private final long mLeaseDuration;
+
+    /**
+     * Maximum difference between the clocks of the nodes and the store (millis)
+     */
+    private long mMaxClockSkew;
+
+    /**
+     * Engine on which the owned schedulers run
+     */
+    private final SchedulerEngine mEngine;
+
+    /**
+     * Registered logical schedulers keyed by name
+     */
+    private final Map<String, Ownership> mOwnerships = new LinkedHashMap<>();
+
+    /**
+     * Runs {@link #renew()} periodically between {@link #start()} and {@link #stop()}
+     */
+    private ScheduledExecutorService mRenewalExecutor;
+
+    /**
+     * Constructor
+     *
+     * @param store store shared by the nodes
+     * @param nodeId id of this node, unique in the cluster
+     * @param leaseDuration time a lease stays valid without renewal (millis), leases are renewed 3 times per duration
+     * @param engine engine on which the owned schedulers run
+     */
+    public ClusterCoordinator(LeaseStore store, String nodeId, long leaseDuration, SchedulerEngine engine) {
+        if (store == null || nodeId == null || engine == null) {
+            throw new IllegalArgumentException("store, nodeId and engine must not be null");
+        }
+
+        if (leaseDuration < 3) {
+            throw new IllegalArgumentException("leaseDuration < 3 : " + leaseDuration);
+        }
+
+        mStore = store;
+        mNodeId = nodeId;
+        mLeaseDuration = leaseDuration;
+        mEngine = engine;
+    }
+
+    /**
+     * Sets maxClockSkew to {@link ClusterCoordinator#mMaxClockSkew}
+     * When the store cannot be accessed, an owned scheduler is stopped once its lease may expire before the next
+     * renewal, counting this skew, so that it never runs at the same time as on the next owner
+     * Must be called before {@link #start()}
+     * @param maxClockSkew maximum difference between the clocks of the nodes and the store (millis)
+     * @return ClusterCoordinator's instance
+     */
+    public synchronized ClusterCoordinator setMaxClockSkew(long maxClockSkew) {
+        if (maxClockSkew < 0) {
+            throw new IllegalArgumentException("maxClockSkew < 0 : " + maxClockSkew);
+        }
+
+        if (safeOwnershipTime(mLeaseDuration, maxClockSkew) <= 0) {
+            throw new IllegalArgumentException("maxClockSkew is too long for the lease : " + maxClockSkew);
+        }
+
+        mMaxClockSkew = maxClockSkew;
+        return this;
+    }
+
+    /**
+     * Registers a logical scheduler, which runs on this node whenever this node owns its name
+     * @param name name of the logical scheduler, the same on every node
+     * @param factory creates the scheduler when this node becomes the owner
+     * @return ClusterCoordinator's instance
+     */
+    public synchronized ClusterCoordinator register(String name, SchedulerFactory factory) {
+        if (name == null || factory == null) {
+            throw new IllegalArgumentException("name and factory must not be null");
+        }
+
+        if (mOwnerships.containsKey(name)) {
+            throw new IllegalArgumentException("already registered : " + name);
+        }
+
+        mOwnerships.put(name, new Ownership(factory));
+        return this;
+    }
+
+    /**
+     * Starts acquiring and renewing the leases periodically
+     */
+    public synchronized void start() {
+        if (mRenewalExecutor != null) {
+            return;
+        }
+
+        mRenewalExecutor = Executors.newSingleThreadScheduledExecutor();
+        mRenewalExecutor.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                renew();
+            }
+        }, 0, mLeaseDuration / 3, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops the owned schedulers, saves their states and gives up their leases so that another node takes over at once
+     */
+    public void stop() {
+        final ScheduledExecutorService renewalExecutor;
+        synchronized (this) {
+            renewalExecutor = mRenewalExecutor;
+            mRenewalExecutor = null;
+        }
+
+        if (renewalExecutor != null) {
+            renewalExecutor.shutdown();
+            try {
+                renewalExecutor.awaitTermination(mLeaseDuration, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                e.printStackTrace();
+            }
+        }
+
+        synchronized (this) {
+            for (Map.Entry<String, Ownership> entry : mOwnerships.entrySet()) {
+                final Ownership ownership = entry.getValue();
+                if (ownership.mScheduler == null) {
+                    continue;
+                }
+
+                try {
+                    mStore.saveState(entry.getKey(), mNodeId, ownership.mScheduler.saveInstanceState().toByteArray());
+                    mStore.release(entry.getKey(), mNodeId);
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+                stopLocalScheduler(ownership);
+            }
+        }
+    }
+
+    /**
+     * Acquires or renews the lease of every registered logical scheduler once,
+     * starting the ones newly owned and stopping the ones whose lease has been lost
+     */
+    synchronized void renew() {
+        for (Map.Entry<String, Ownership> entry : mOwnerships.entrySet()) {
+            final String name = entry.getKey();
+            final Ownership ownership = entry.getValue();
+            final long currentTime = System.currentTimeMillis();
+
+            final boolean acquired;
+            try {
+                acquired = mStore.tryAcquire(name, mNodeId, mLeaseDuration);
+            } catch (IOException e) {
+                e.printStackTrace();
+
+                /*
+                another node may take over once the lease expires, so this node must stop before that,
+                allowing for the next renewal and the clock skew
+                 */
+                if (ownership.mScheduler != null
+                        && currentTime - ownership.mRenewedTime >= safeOwnershipTime(mLeaseDuration, mMaxClockSkew)) {
+                    stopLocalScheduler(ownership);
+                }
+                continue;
+            }
+
+            if (!acquired) {
+                stopLocalScheduler(ownership);
+                continue;
+            }
+
+            ownership.mRenewedTime = currentTime;
+            try {
+                if (ownership.mScheduler == null) {
+                    startLocalScheduler(name, ownership);
+                } else if (!mStore.saveState(name, mNodeId, ownership.mScheduler.saveInstanceState().toByteArray())) {
+                    /*
+                    the lease has expired since it was renewed
+                     */
+                    stopLocalScheduler(ownership);
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Creates the scheduler of the logical scheduler, restores the state of the previous owner and executes it
+     * If the engine rejects the scheduler, the lease is released so that another node may take it over,
+     * and this node tries again on a later renewal
+     * @param name name of the logical scheduler
+     * @param ownership ownership of the logical scheduler
+     * @throws IOException if the state cannot be loaded or the lease cannot be released
+     */
+    private void startLocalScheduler(String name, Ownership ownership) throws IOException {
+        final Scheduler scheduler = ownership.mFactory.newScheduler(name);
+        final SchedulersSavedState savedState = loadSavedState(name);
+        if (savedState != null) {
+            scheduler.restoreInstanceState(savedState);
+        }
+
+        ownership.mScheduler = scheduler;
+        if (mEngine.execute(scheduler) == AdmissionController.REJECT) {
+            stopLocalScheduler(ownership);
+            mStore.release(name, mNodeId);
+        }
+    }
+
+    /**
+     * Loads the state saved by the previous owner of the logical scheduler
+     * A damaged state is dropped, so that the scheduler starts afresh rather than never again
+     * @param name name of the logical scheduler
+     * @return the saved state, or null if never saved or damaged
+     * @throws IOException if the store cannot be accessed
+     */
+    @Nullable
+    private SchedulersSavedState loadSavedState(String name) throws IOException {
+        try {
+            final byte[] state = mStore.loadState(name);
+            return state != null ? SchedulersSavedState.fromByteArray(state) : null;
+        } catch (StreamCorruptedException e) {
+            e.printStackTrace();
+            return null;
+        } catch (EOFException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Releases the scheduler of the logical scheduler if it runs on this node
+     * @param ownership ownership of the logical scheduler
+     */
+    private void stopLocalScheduler(Ownership ownership) {
+        if (ownership.mScheduler != null) {
+            ownership.mScheduler.release();
+            ownership.mScheduler = null;
+        }
+    }
+
+    /**
+     * Calculates how long a node may keep running a logical scheduler after renewing its lease
+     * without renewing it again
+     * @param leaseDuration time a lease stays valid without renewal (millis), renewed 3 times per duration
+     * @param maxClockSkew maximum difference between the clocks of the nodes and the store (millis)
+     * @return the lease duration minus the renewal period and the clock skew (millis)
+     */
+    static long safeOwnershipTime(long leaseDuration, long maxClockSkew) {
+        return leaseDuration - leaseDuration / 3 - maxClockSkew;
+    }
+
+    /**
+     * Checks if the logical scheduler runs on this node
+     * @param name name of the logical scheduler
+     * @return true if this node owns the logical scheduler
+     */
+    public synchronized boolean isOwner(String name) {
+        final Ownership ownership = mOwnerships.get(name);
+        return ownership != null && ownership.mScheduler != null;
+    }
+
+    /**
+     * Getter
+     * @param name name of the logical scheduler
+     * @return the scheduler running on this node, or null if this node does not own the logical scheduler
+     */
+    @Nullable
+    public synchronized Scheduler getScheduler(String name) {
+        final Ownership ownership = mOwnerships.get(name);
+        return ownership != null ? ownership.mScheduler : null;
+    }
+
+    /**
+     * Getter
+     * @return the id of this node
+     */
+    public String getNodeId() {
+        return mNodeId;
+    }
+
+    /**
+     * Represents this node's ownership of a logical scheduler
+     */
+    private static final class Ownership {
+        private final SchedulerFactory mFactory;
+
+        /**
+         * Scheduler running on this node, or null if not owned
+         */
+        private Scheduler mScheduler;
+
+        /**
+         * Last time the lease has been renewed
+         */
+        private long mRenewedTime;
+
+        private Ownership(SchedulerFactory factory) {
+            mFactory = factory;
+        }
+    }
+}
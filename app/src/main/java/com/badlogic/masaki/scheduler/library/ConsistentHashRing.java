@@ -0,0 +1,85 @@
+package com.badlogic.masaki.scheduler.library;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Consistent hash ring mapping keys to members
+ * Each member is placed at several points of the ring, so that keys are spread evenly
+ * and only the keys of a joining or leaving member move when the membership changes
+ */
+public class ConsistentHashRing {
+
+    /**
+     * Default number of points per member
+     */
+    public static final int DEFAULT_VIRTUAL_NODES = 128;
+
+    /**
+     * Number of points per member
+     */
+    private final int mVirtualNodes;
+
+    /**
+     * Points of the ring mapped to their members
+     */
+    private final TreeMap<Long, String> mRing = new TreeMap<>();
+
+    /**
+     * Constructor
+     *
+     * @param virtualNodes number of points per member
+     */
+    public ConsistentHashRing(int virtualNodes) {
+        if (virtualNodes < 1) {
+            throw new IllegalArgumentException("virtualNodes < 1 : " + virtualNodes);
+        }
+
+        mVirtualNodes = virtualNodes;
+    }
+
+    /**
+     * Replaces the members of the ring
+     * @param members ids of the members
+     */
+    public synchronized void setMembers(Collection<String> members) {
+        mRing.clear();
+        for (String member : members) {
+            for (int i = 0; i < mVirtualNodes; i++) {
+                mRing.put(hash(member + "#" + i), member);
+            }
+        }
+    }
+
+    /**
+     * Finds the member owning the key
+     * @param key key to look up
+     * @return id of the member, or null if the ring has no member
+     */
+    public synchronized String getOwner(String key) {
+        if (mRing.isEmpty()) {
+            return null;
+        }
+
+        final Map.Entry<Long, String> entry = mRing.ceilingEntry(hash(key));
+        return entry != null ? entry.getValue() : mRing.firstEntry().getValue();
+    }
+
+    /**
+     * Hashes the string with 64-bit FNV-1a and a final mix, stable across processes
+     * @param value string to hash
+     * @return hash of the string
+     */
+    static long hash(String value) {
+        long hash = 0xCBF29CE484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001B3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
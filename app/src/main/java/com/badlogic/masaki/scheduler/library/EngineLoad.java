@@ -0,0 +1,92 @@
+package com.badlogic.masaki.scheduler.library;
+
+/**
+ * Snapshot of the load of a {@link SchedulerEngine}, obtained from {@link SchedulerEngine#getLoad()}
+ * and handed to {@link AdmissionController}
+ */
+public final class EngineLoad {
+
+    private final int mRunningSchedulers;
+    private final int mQueueDepth;
+    private final long mOldestDueLag;
+    private final long mTickCount;
+    private final long mSkipCount;
+    private final long mShedCount;
+
+    /**
+     * Constructor that is package private, snapshots are created by {@link SchedulerEngine}
+     */
+    EngineLoad(int runningSchedulers, int queueDepth, long oldestDueLag, long tickCount, long skipCount,
+               long shedCount) {
+        mRunningSchedulers = runningSchedulers;
+        mQueueDepth = queueDepth;
+        mOldestDueLag = oldestDueLag;
+        mTickCount = tickCount;
+        mSkipCount = skipCount;
+        mShedCount = shedCount;
+    }
+
+    /**
+     * Getter
+     * @return the number of schedulers whose run loop is running on the engine
+     */
+    public int getRunningSchedulers() {
+        return mRunningSchedulers;
+    }
+
+    /**
+     * Getter
+     * @return the number of regular tasks waiting for the execution capacity
+     */
+    public int getQueueDepth() {
+        return mQueueDepth;
+    }
+
+    /**
+     * Getter
+     * @return how long the earliest waiting regular task is behind its scheduled time (millis), 0 if none waits
+     */
+    public long getOldestDueLag() {
+        return mOldestDueLag;
+    }
+
+    /**
+     * Getter
+     * @return the number of regular tasks executed in the window
+     */
+    public long getTickCount() {
+        return mTickCount;
+    }
+
+    /**
+     * Getter
+     * @return the number of regular tasks skipped in the window because they were late
+     */
+    public long getSkipCount() {
+        return mSkipCount;
+    }
+
+    /**
+     * Getter
+     * @return the number of regular tasks skipped in the window because the engine degraded or shed them
+     */
+    public long getShedCount() {
+        return mShedCount;
+    }
+
+    /**
+     * Getter
+     * The shed regular tasks are left out, otherwise degrading a priority class would keep the engine overloaded
+     * @return the ratio of the skipped regular tasks to the executed and skipped ones in the window, 0 if none
+     */
+    public double getSkipRate() {
+        final long total = mTickCount + mSkipCount;
+        return total > 0 ? (double) mSkipCount / total : 0;
+    }
+
+    @Override
+    public String toString() {
+        return "EngineLoad{running=" + mRunningSchedulers + ", queue=" + mQueueDepth + ", lag=" + mOldestDueLag
+                + ", ticks=" + mTickCount + ", skips=" + mSkipCount + ", sheds=" + mShedCount + "}";
+    }
+}
@@ -0,0 +1,351 @@
+package com.badlogic.masaki.scheduler.library;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Tool that reads a file written by {@link SchedulerEventLog}, sorts the records by time,
+ * rebuilds each scheduler's timeline and computes its jitter, skip and pause statistics offline
+ * Usage: EventLogReplay [-events] &lt;log file&gt;, -events also prints every record in time order
+ */
+public class EventLogReplay {
+
+    /**
+     * Callback interface invoked for every record of the log in time order
+     */
+    public interface EventHandler {
+        /**
+         * Called for each record, records of the same time keep their order in the file
+         * @param schedulerId id of the scheduler
+         * @param type one of the EVENT_ constants of {@link SchedulerEventLog}
+         * @param time time of the event on the scheduler's clock
+         * @param frameCount frame count of the scheduler
+         * @param value meaning depends on the type
+         */
+        void onEvent(int schedulerId, int type, long time, int frameCount, long value);
+    }
+
+    /**
+     * Statistics of one scheduler's timeline
+     */
+    public static final class Timeline {
+        private final int mSchedulerId;
+        private long mFirstTime = Long.MAX_VALUE;
+        private long mLastTime = Long.MIN_VALUE;
+        private long mTickCount;
+        private long mSkipCount;
+        private long mTimeoutCount;
+        private long mPauseCount;
+        private long mPausedTime;
+        private long mPausedSince = -1;
+        private long mJitterSum;
+        private long mJitterSquareSum;
+        private long mMaxJitter;
+        private int mLastFrameCount;
+        private int mEndEvent;
+
+        private Timeline(int schedulerId) {
+            mSchedulerId = schedulerId;
+        }
+
+        private void apply(int type, long time, int frameCount, long value) {
+            mFirstTime = Math.min(mFirstTime, time);
+            mLastTime = Math.max(mLastTime, time);
+            mLastFrameCount = Math.max(mLastFrameCount, frameCount);
+
+            switch (type) {
+                case SchedulerEventLog.EVENT_TICK :
+                    final long jitter = time - value;
+                    mTickCount++;
+                    mJitterSum += jitter;
+                    mJitterSquareSum += jitter * jitter;
+                    mMaxJitter = Math.max(mMaxJitter, Math.abs(jitter));
+                    break;
+
+                case SchedulerEventLog.EVENT_SKIP :
+                    mSkipCount += value;
+                    break;
+
+                case SchedulerEventLog.EVENT_TIMEOUT :
+                    mTimeoutCount++;
+                    break;
+
+                case SchedulerEventLog.EVENT_PAUSE :
+                    if (mPausedSince < 0) {
+                        mPauseCount++;
+                        mPausedSince = time;
+                    }
+                    break;
+
+                case SchedulerEventLog.EVENT_RESUME :
+                    if (mPausedSince >= 0) {
+                        mPausedTime += time - mPausedSince;
+                        mPausedSince = -1;
+                    }
+                    break;
+
+                case SchedulerEventLog.EVENT_CANCEL :
+                case SchedulerEventLog.EVENT_RELEASE :
+                case SchedulerEventLog.EVENT_COMPLETE :
+                    if (mEndEvent == 0) {
+                        mEndEvent = type;
+                    }
+                    break;
+
+                default:
+                    break;
+            }
+        }
+
+        public int getSchedulerId() {
+            return mSchedulerId;
+        }
+
+        public long getFirstTime() {
+            return mFirstTime;
+        }
+
+        public long getLastTime() {
+            return mLastTime;
+        }
+
+        public long getTickCount() {
+            return mTickCount;
+        }
+
+        public long getSkipCount() {
+            return mSkipCount;
+        }
+
+        public long getTimeoutCount() {
+            return mTimeoutCount;
+        }
+
+        public long getPauseCount() {
+            return mPauseCount;
+        }
+
+        public long getPausedTime() {
+            return mPausedTime;
+        }
+
+        public int getLastFrameCount() {
+            return mLastFrameCount;
+        }
+
+        /**
+         * Getter
+         * @return {@link SchedulerEventLog#EVENT_CANCEL}, {@link SchedulerEventLog#EVENT_RELEASE},
+         * {@link SchedulerEventLog#EVENT_COMPLETE}, or 0 if the timeline has not ended
+         */
+        public int getEndEvent() {
+            return mEndEvent;
+        }
+
+        /**
+         * Getter
+         * @return the average delay of the regular tasks from their scheduled time (millis)
+         */
+        public double getMeanJitter() {
+            return mTickCount != 0 ? (double) mJitterSum / mTickCount : 0;
+        }
+
+        /**
+         * Getter
+         * @return the standard deviation of the delay of the regular tasks (millis)
+         */
+        public double getJitterStandardDeviation() {
+            if (mTickCount == 0) {
+                return 0;
+            }
+            final double mean = getMeanJitter();
+            return Math.sqrt(Math.max((double) mJitterSquareSum / mTickCount - mean * mean, 0));
+        }
+
+        /**
+         * Getter
+         * @return the largest delay of a regular task from its scheduled time (millis)
+         */
+        public long getMaxJitter() {
+            return mMaxJitter;
+        }
+
+        @Override
+        public String toString() {
+            return "scheduler " + mSchedulerId + ": span=" + (mLastTime - mFirstTime) + "ms frames=" + mLastFrameCount
+                    + " ticks=" + mTickCount + " skips=" + mSkipCount + " timeouts=" + mTimeoutCount
+                    + " pauses=" + mPauseCount + " paused=" + mPausedTime + "ms"
+                    + String.format(" jitter mean=%.2fms sd=%.2fms max=%dms",
+                    getMeanJitter(), getJitterStandardDeviation(), mMaxJitter)
+                    + " end=" + endEventName(mEndEvent);
+        }
+    }
+
+    /**
+     * Reads the log file and rebuilds the timeline of every scheduler
+     * @param file file written by {@link SchedulerEventLog}
+     * @return the timelines keyed by scheduler id
+     * @throws IOException if the file cannot be read or is not a log file
+     */
+    public static Map<Integer, Timeline> replay(File file) throws IOException {
+        final Map<Integer, Timeline> timelines = new TreeMap<>();
+        replay(file, new EventHandler() {
+            @Override
+            public void onEvent(int schedulerId, int type, long time, int frameCount, long value) {
+                Timeline timeline = timelines.get(schedulerId);
+                if (timeline == null) {
+                    timeline = new Timeline(schedulerId);
+                    timelines.put(schedulerId, timeline);
+                }
+                timeline.apply(type, time, frameCount, value);
+            }
+        });
+        return timelines;
+    }
+
+    /**
+     * Reads the log file and passes its records to the handler in time order
+     * The file holds the threads' batches in the order they were flushed, so the records are sorted first
+     * @param file file written by {@link SchedulerEventLog}
+     * @param handler handler called for every record
+     * @throws IOException if the file cannot be read or is not a log file
+     */
+    public static void replay(File file, EventHandler handler) throws IOException {
+        final RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+        try {
+            final MappedByteBuffer buffer = randomAccessFile.getChannel()
+                    .map(FileChannel.MapMode.READ_ONLY, 0, randomAccessFile.length());
+            if (buffer.limit() < SchedulerEventLog.HEADER_SIZE || buffer.getInt(0) != SchedulerEventLog.MAGIC) {
+                throw new IOException("not a scheduler event log : " + file);
+            }
+
+            if (buffer.getInt(4) != SchedulerEventLog.VERSION) {
+                throw new IOException("unsupported version : " + buffer.getInt(4));
+            }
+
+            final long end = Math.min(buffer.getLong(8), buffer.limit());
+            final int count = (int) Math.max((end - SchedulerEventLog.HEADER_SIZE) / SchedulerEventLog.RECORD_SIZE, 0);
+            final long[] times = new long[count];
+            final Integer[] order = new Integer[count];
+            for (int i = 0; i < count; i++) {
+                times[i] = buffer.getLong(offsetOf(i));
+                order[i] = i;
+            }
+
+            /*
+            the sort is stable, so the records of the same time keep their order in the file
+             */
+            Arrays.sort(order, new Comparator<Integer>() {
+                @Override
+                public int compare(Integer lhs, Integer rhs) {
+                    final long lhsTime = times[lhs];
+                    final long rhsTime = times[rhs];
+                    return lhsTime < rhsTime ? -1 : (lhsTime == rhsTime ? 0 : 1);
+                }
+            });
+
+            for (int index : order) {
+                final int offset = offsetOf(index);
+                handler.onEvent(buffer.getInt(offset + 16), buffer.getInt(offset + 24), times[index],
+                        buffer.getInt(offset + 20), buffer.getLong(offset + 8));
+            }
+        } finally {
+            randomAccessFile.close();
+        }
+    }
+
+    /**
+     * Prints the timeline of every scheduler in the log file
+     * @param args path of the log file
+     * @throws IOException if the file cannot be read
+     */
+    public static void main(String[] args) throws IOException {
+        final boolean printEvents = args.length == 2 && args[0].equals("-events");
+        if (args.length != 1 && !printEvents) {
+            System.err.println("usage: EventLogReplay [-events] <log file>");
+            System.exit(1);
+        }
+
+        final File file = new File(args[args.length - 1]);
+        if (printEvents) {
+            replay(file, new EventHandler() {
+                @Override
+                public void onEvent(int schedulerId, int type, long time, int frameCount, long value) {
+                    System.out.println(time + " scheduler " + schedulerId + " " + eventName(type)
+                            + " frame=" + frameCount + " value=" + value);
+                }
+            });
+        }
+
+        for (Timeline timeline : replay(file).values()) {
+            System.out.println(timeline);
+        }
+    }
+
+    /**
+     * Calculates the offset of the record in the file
+     * @param index index of the record in the file
+     * @return offset of the record
+     */
+    private static int offsetOf(int index) {
+        return SchedulerEventLog.HEADER_SIZE + index * SchedulerEventLog.RECORD_SIZE;
+    }
+
+    /**
+     * Calculates the name of the event
+     * @param type one of the EVENT_ constants
+     * @return name of the event
+     */
+    private static String eventName(int type) {
+        switch (type) {
+            case SchedulerEventLog.EVENT_TICK :
+                return "tick";
+            case SchedulerEventLog.EVENT_SKIP :
+                return "skip";
+            case SchedulerEventLog.EVENT_PAUSE :
+                return "pause";
+            case SchedulerEventLog.EVENT_RESUME :
+                return "resume";
+            case SchedulerEventLog.EVENT_TIMEOUT :
+                return "timeout";
+            case SchedulerEventLog.EVENT_CANCEL :
+            case SchedulerEventLog.EVENT_RELEASE :
+            case SchedulerEventLog.EVENT_COMPLETE :
+                return endEventName(type);
+            default:
+                return "unknown " + type;
+        }
+    }
+
+    /**
+     * Calculates the name of the event
+     * @param type one of the EVENT_ constants, or 0
+     * @return name of the event
+     */
+    private static String endEventName(int type) {
+        switch (type) {
+            case SchedulerEventLog.EVENT_CANCEL :
+                return "cancelled";
+            case SchedulerEventLog.EVENT_RELEASE :
+                return "released";
+            case SchedulerEventLog.EVENT_COMPLETE :
+                return "completed";
+            default:
+                return "running";
+        }
+    }
+
+    /**
+     * Constructor that is private, the class only has static methods
+     */
+    private EventLogReplay() {
+
+    }
+}
@@ -0,0 +1,238 @@
+package com.badlogic.masaki.scheduler.library;
+
+import android.support.annotation.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.StreamCorruptedException;
+import java.nio.channels.FileLock;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@link LeaseStore} kept in a directory shared by the nodes, e.g. on the same host
+ * Each logical scheduler has a lease file, updated under a file lock so that several processes can use
+ * the same directory, and a state file, replaced by renaming a fully written temporary file,
+ * so that a crash while saving leaves the previous state
+ */
+public class FileLeaseStore implements LeaseStore {
+
+    private static final String LEASE_SUFFIX = ".lease";
+    private static final String STATE_SUFFIX = ".state";
+    private static final String TEMPORARY_SUFFIX = ".tmp";
+
+    /**
+     * Guards the file locks of all the instances, since a process cannot hold two overlapping locks on the same file
+     * even through two instances sharing the directory
+     */
+    private static final Object sFileLock = new Object();
+
+    /**
+     * Directory in which the files are kept
+     */
+    private final File mDirectory;
+
+    /**
+     * Constructor
+     *
+     * @param directory directory in which the files are kept, created if it does not exist
+     */
+    public FileLeaseStore(File directory) {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IllegalArgumentException("cannot create the directory : " + directory);
+        }
+
+        mDirectory = directory;
+    }
+
+    @Override
+    public boolean tryAcquire(String name, String owner, long leaseDuration) throws IOException {
+        synchronized (sFileLock) {
+            final RandomAccessFile file = new RandomAccessFile(fileOf(name, LEASE_SUFFIX), "rw");
+            try {
+                final FileLock lock = file.getChannel().lock();
+                try {
+                    final String currentOwner = readOwner(file);
+                    if (currentOwner != null && !currentOwner.equals(owner)) {
+                        return false;
+                    }
+
+                    file.seek(0);
+                    file.setLength(0);
+                    file.writeUTF(owner);
+                    file.writeLong(System.currentTimeMillis() + leaseDuration);
+                    return true;
+                } finally {
+                    lock.release();
+                }
+            } finally {
+                file.close();
+            }
+        }
+    }
+
+    @Nullable
+    @Override
+    public String getOwner(String name) throws IOException {
+        final File leaseFile = fileOf(name, LEASE_SUFFIX);
+        synchronized (sFileLock) {
+            if (!leaseFile.exists()) {
+                return null;
+            }
+
+            final RandomAccessFile file = new RandomAccessFile(leaseFile, "rw");
+            try {
+                final FileLock lock = file.getChannel().lock();
+                try {
+                    return readOwner(file);
+                } finally {
+                    lock.release();
+                }
+            } finally {
+                file.close();
+            }
+        }
+    }
+
+    @Override
+    public List<String> getOwners(String namePrefix) throws IOException {
+        final List<String> owners = new ArrayList<>();
+        final File[] files = mDirectory.listFiles();
+        if (files == null) {
+            throw new IOException("cannot list the directory : " + mDirectory);
+        }
+
+        for (File leaseFile : files) {
+            final String fileName = leaseFile.getName();
+            if (!fileName.startsWith(namePrefix) || !fileName.endsWith(LEASE_SUFFIX)) {
+                continue;
+            }
+
+            final String owner = getOwner(fileName.substring(0, fileName.length() - LEASE_SUFFIX.length()));
+            if (owner != null && !owners.contains(owner)) {
+                owners.add(owner);
+            }
+        }
+        return owners;
+    }
+
+    @Override
+    public void release(String name, String owner) throws IOException {
+        synchronized (sFileLock) {
+            final RandomAccessFile file = new RandomAccessFile(fileOf(name, LEASE_SUFFIX), "rw");
+            try {
+                final FileLock lock = file.getChannel().lock();
+                try {
+                    if (file.length() > 0 && file.readUTF().equals(owner)) {
+                        file.setLength(0);
+                    }
+                } finally {
+                    lock.release();
+                }
+            } finally {
+                file.close();
+            }
+        }
+    }
+
+    @Override
+    public boolean saveState(String name, String owner, byte[] state) throws IOException {
+        final File stateFile = fileOf(name, STATE_SUFFIX);
+        synchronized (sFileLock) {
+            final RandomAccessFile leaseFile = new RandomAccessFile(fileOf(name, LEASE_SUFFIX), "rw");
+            try {
+                /*
+                the lease stays locked while the state is written, so that no other node acquires it in between
+                 */
+                final FileLock leaseLock = leaseFile.getChannel().lock();
+                try {
+                    if (!owner.equals(readOwner(leaseFile))) {
+                        return false;
+                    }
+
+                    final File temporaryFile = new File(mDirectory, stateFile.getName() + TEMPORARY_SUFFIX);
+                    final RandomAccessFile file = new RandomAccessFile(temporaryFile, "rw");
+                    try {
+                        file.setLength(0);
+                        file.writeInt(state.length);
+                        file.write(state);
+                        file.getChannel().force(true);
+                    } finally {
+                        file.close();
+                    }
+
+                    if (!temporaryFile.renameTo(stateFile)) {
+                        throw new IOException("cannot rename " + temporaryFile + " to " + stateFile);
+                    }
+                    return true;
+                } finally {
+                    leaseLock.release();
+                }
+            } finally {
+                leaseFile.close();
+            }
+        }
+    }
+
+    @Nullable
+    @Override
+    public byte[] loadState(String name) throws IOException {
+        final File stateFile = fileOf(name, STATE_SUFFIX);
+        synchronized (sFileLock) {
+            if (!stateFile.exists()) {
+                return null;
+            }
+
+            /*
+            the file is only ever replaced as a whole, so it is read without a lock
+             */
+            final RandomAccessFile file = new RandomAccessFile(stateFile, "r");
+            try {
+                final long length = file.length();
+                if (length < 4) {
+                    throw new StreamCorruptedException("truncated state file : " + stateFile);
+                }
+
+                final int stateLength = file.readInt();
+                if (stateLength != length - 4) {
+                    throw new StreamCorruptedException("corrupt state file : " + stateFile);
+                }
+
+                final byte[] state = new byte[stateLength];
+                file.readFully(state);
+                return state;
+            } finally {
+                file.close();
+            }
+        }
+    }
+
+    /**
+     * Reads the owner of the lease file, which must be locked
+     * @param file lease file positioned at its start
+     * @return id of the node holding an unexpired lease, or null if the lease is free or expired
+     * @throws IOException if the file cannot be read
+     */
+    @Nullable
+    private static String readOwner(RandomAccessFile file) throws IOException {
+        if (file.length() == 0) {
+            return null;
+        }
+        final String owner = file.readUTF();
+        return file.readLong() > System.currentTimeMillis() ? owner : null;
+    }
+
+    /**
+     * Calculates the file of the logical scheduler
+     * @param name name of the logical scheduler, made of letters, digits, '.', '_' and '-'
+     * @param suffix {@link #LEASE_SUFFIX} or {@link #STATE_SUFFIX}
+     * @return the file in {@link #mDirectory}
+     */
+    private File fileOf(String name, String suffix) {
+        if (!name.matches("[A-Za-z0-9._-]+")) {
+            throw new IllegalArgumentException("invalid name : " + name);
+        }
+        return new File(mDirectory, name + suffix);
+    }
+}
@@ -0,0 +1,93 @@
+package com.badlogic.masaki.scheduler.library;
+
+import android.support.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link LeaseStore} kept in memory, shared by the nodes running in the same process
+ * Often used for testing
+ */
+public class InProcessLeaseStore implements LeaseStore {
+
+    /**
+     * Owner of each lease
+     */
+    private final Map<String, String> mOwners = new HashMap<>();
+
+    /**
+     * Expiration time of each lease
+     */
+    private final Map<String, Long> mExpirationTimes = new HashMap<>();
+
+    /**
+     * Saved state of each logical scheduler
+     */
+    private final Map<String, byte[]> mStates = new HashMap<>();
+
+    @Override
+    public synchronized boolean tryAcquire(String name, String owner, long leaseDuration) {
+        final long currentTime = System.currentTimeMillis();
+        final String currentOwner = mOwners.get(name);
+        final Long expirationTime = mExpirationTimes.get(name);
+
+        if (currentOwner != null && !currentOwner.equals(owner) && expirationTime > currentTime) {
+            return false;
+        }
+
+        mOwners.put(name, owner);
+        mExpirationTimes.put(name, currentTime + leaseDuration);
+        return true;
+    }
+
+    @Nullable
+    @Override
+    public synchronized String getOwner(String name) {
+        final Long expirationTime = mExpirationTimes.get(name);
+        if (expirationTime == null || expirationTime <= System.currentTimeMillis()) {
+            return null;
+        }
+        return mOwners.get(name);
+    }
+
+    @Override
+    public synchronized List<String> getOwners(String namePrefix) {
+        final long currentTime = System.currentTimeMillis();
+        final List<String> owners = new ArrayList<>();
+        for (Map.Entry<String, String> entry : mOwners.entrySet()) {
+            if (entry.getKey().startsWith(namePrefix) && mExpirationTimes.get(entry.getKey()) > currentTime
+                    && !owners.contains(entry.getValue())) {
+                owners.add(entry.getValue());
+            }
+        }
+        return owners;
+    }
+
+    @Override
+    public synchronized void release(String name, String owner) {
+        if (owner.equals(mOwners.get(name))) {
+            mOwners.remove(name);
+            mExpirationTimes.remove(name);
+        }
+    }
+
+    @Override
+    public synchronized boolean saveState(String name, String owner, byte[] state) {
+        if (!owner.equals(getOwner(name))) {
+            return false;
+        }
+
+        mStates.put(name, state.clone());
+        return true;
+    }
+
+    @Nullable
+    @Override
+    public synchronized byte[] loadState(String name) {
+        final byte[] state = mStates.get(name);
+        return state != null ? state.clone() : null;
+    }
+}
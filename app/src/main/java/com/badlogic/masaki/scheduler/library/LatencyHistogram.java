@@ -0,0 +1,266 @@
+package com.badlogic.masaki.scheduler.library;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.zip.Deflater;
+
+/**
+ * Class that records latencies into log-linear buckets with a fixed number of significant digits
+ * The bucket layout and the compressed encoding are those of HdrHistogram,
+ * so the histograms written by {@link LatencyLogWriter} can be read by HdrHistogram's tools
+ * Values can be recorded from any thread without locking
+ */
+public final class LatencyHistogram {
+
+    public static final String TAG = LatencyHistogram.class.getSimpleName();
+
+    /**
+     * Identifies the uncompressed V2 encoding of HdrHistogram
+     */
+    private static final int ENCODING_COOKIE = 0x1c849303 | 0x10;
+
+    /**
+     * Identifies the compressed V2 encoding of HdrHistogram
+     */
+    private static final int COMPRESSED_ENCODING_COOKIE = 0x1c849304 | 0x10;
+
+    /**
+     * Size of the header of the uncompressed encoding
+     */
+    private static final int ENCODING_HEADER_SIZE = 40;
+
+    private final long mHighestTrackableValue;
+    private final int mSignificantDigits;
+    private final int mSubBucketHalfCountMagnitude;
+    private final int mSubBucketHalfCount;
+    private final long mSubBucketMask;
+    private final int mLeadingZeroCountBase;
+
+    /**
+     * Counts indexed by {@link #countsIndex(long)}
+     */
+    private final AtomicLongArray mCounts;
+
+    private final AtomicLong mTotalCount = new AtomicLong();
+    private final AtomicLong mMaxValue = new AtomicLong();
+
+    /**
+     * Constructor
+     *
+     * @param highestTrackableValue highest value recorded as is, larger values are recorded as this value
+     * @param significantDigits number of significant decimal digits kept, between 0 and 5
+     */
+    public LatencyHistogram(long highestTrackableValue, int significantDigits) {
+        if (highestTrackableValue < 2) {
+            throw new IllegalArgumentException("highestTrackableValue < 2 : " + highestTrackableValue);
+        }
+
+        if (significantDigits < 0 || significantDigits > 5) {
+            throw new IllegalArgumentException("significantDigits must be between 0 and 5 : " + significantDigits);
+        }
+
+        mHighestTrackableValue = highestTrackableValue;
+        mSignificantDigits = significantDigits;
+
+        final long largestValueWithSingleUnitResolution = 2 * (long) Math.pow(10, significantDigits);
+        final int subBucketCountMagnitude =
+                (int) Math.ceil(Math.log(largestValueWithSingleUnitResolution) / Math.log(2));
+        mSubBucketHalfCountMagnitude = Math.max(subBucketCountMagnitude, 1) - 1;
+        final int subBucketCount = 1 << (mSubBucketHalfCountMagnitude + 1);
+        mSubBucketHalfCount = subBucketCount / 2;
+        mSubBucketMask = subBucketCount - 1;
+        mLeadingZeroCountBase = 64 - mSubBucketHalfCountMagnitude - 1;
+
+        /*
+        each bucket doubles the range covered with the same number of sub buckets
+         */
+        long smallestUntrackableValue = subBucketCount;
+        int bucketCount = 1;
+        while (smallestUntrackableValue <= highestTrackableValue) {
+            if (smallestUntrackableValue > Long.MAX_VALUE / 2) {
+                bucketCount++;
+                break;
+            }
+            smallestUntrackableValue <<= 1;
+            bucketCount++;
+        }
+
+        mCounts = new AtomicLongArray((bucketCount + 1) * mSubBucketHalfCount);
+    }
+
+    /**
+     * Records a value
+     * @param value value to record, equal to or greater than 0
+     */
+    public void recordValue(long value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("value < 0 : " + value);
+        }
+
+        final long recorded = Math.min(value, mHighestTrackableValue);
+        mCounts.incrementAndGet(countsIndex(recorded));
+        mTotalCount.incrementAndGet();
+
+        long max = mMaxValue.get();
+        while (recorded > max && !mMaxValue.compareAndSet(max, recorded)) {
+            max = mMaxValue.get();
+        }
+    }
+
+    /**
+     * Getter
+     * @return the number of recorded values
+     */
+    public long getTotalCount() {
+        return mTotalCount.get();
+    }
+
+    /**
+     * Getter
+     * @return the largest recorded value, rounded up to its bucket, or 0 if none is recorded
+     */
+    public long getMaxValue() {
+        final long max = mMaxValue.get();
+        return max == 0 ? 0 : highestEquivalentValue(max);
+    }
+
+    /**
+     * Getter
+     * @param percentile percentile between 0 and 100
+     * @return the value at the percentile, rounded up to its bucket, or 0 if none is recorded
+     */
+    public long getValueAtPercentile(double percentile) {
+        final long totalCount = mTotalCount.get();
+        final long countAtPercentile = Math.max(1, (long) (Math.min(percentile, 100) / 100 * totalCount + 0.5));
+
+        long count = 0;
+        for (int i = 0; i < mCounts.length(); i++) {
+            count += mCounts.get(i);
+            if (count >= countAtPercentile) {
+                return highestEquivalentValue(valueFromIndex(i));
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Encodes the counts in the compressed V2 encoding of HdrHistogram
+     * @return encoded histogram
+     */
+    public byte[] encodeCompressed() {
+        final int countsLimit = Math.min(countsIndex(mMaxValue.get()) + 1, mCounts.length());
+        final ByteBuffer buffer = ByteBuffer.allocate(ENCODING_HEADER_SIZE + countsLimit * 9);
+        buffer.putInt(ENCODING_COOKIE);
+        buffer.putInt(0);
+        buffer.putInt(0);
+        buffer.putInt(mSignificantDigits);
+        buffer.putLong(1);
+        buffer.putLong(mHighestTrackableValue);
+        buffer.putDouble(1.0);
+
+        /*
+        counts in ZigZag LEB128, a run of zeros as its negated length
+         */
+        int index = 0;
+        while (index < countsLimit) {
+            final long count = mCounts.get(index++);
+            if (count != 0) {
+                putZigZag(buffer, count);
+                continue;
+            }
+
+            int zeros = 1;
+            while (index < countsLimit && mCounts.get(index) == 0) {
+                zeros++;
+                index++;
+            }
+            putZigZag(buffer, zeros > 1 ? -zeros : 0);
+        }
+        buffer.putInt(4, buffer.position() - ENCODING_HEADER_SIZE);
+
+        final Deflater deflater = new Deflater();
+        try {
+            deflater.setInput(buffer.array(), 0, buffer.position());
+            deflater.finish();
+
+            byte[] compressed = new byte[buffer.position() + 64];
+            int length = 8;
+            while (!deflater.finished()) {
+                if (length == compressed.length) {
+                    final byte[] grown = new byte[compressed.length * 2];
+                    System.arraycopy(compressed, 0, grown, 0, length);
+                    compressed = grown;
+                }
+                length += deflater.deflate(compressed, length, compressed.length - length);
+            }
+
+            final ByteBuffer header = ByteBuffer.wrap(compressed);
+            header.putInt(COMPRESSED_ENCODING_COOKIE);
+            header.putInt(length - 8);
+
+            final byte[] result = new byte[length];
+            System.arraycopy(compressed, 0, result, 0, length);
+            return result;
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Calculates the index of the count the value is recorded into
+     * @param value value equal to or greater than 0
+     * @return index in {@link #mCounts}
+     */
+    private int countsIndex(long value) {
+        final int bucketIndex = mLeadingZeroCountBase - Long.numberOfLeadingZeros(value | mSubBucketMask);
+        final int subBucketIndex = (int) (value >>> bucketIndex);
+        return ((bucketIndex + 1) << mSubBucketHalfCountMagnitude) + (subBucketIndex - mSubBucketHalfCount);
+    }
+
+    /**
+     * Calculates the lowest value recorded into the count
+     * @param index index in {@link #mCounts}
+     * @return lowest value of the count
+     */
+    private long valueFromIndex(int index) {
+        int bucketIndex = (index >> mSubBucketHalfCountMagnitude) - 1;
+        int subBucketIndex = (index & (mSubBucketHalfCount - 1)) + mSubBucketHalfCount;
+        if (bucketIndex < 0) {
+            subBucketIndex -= mSubBucketHalfCount;
+            bucketIndex = 0;
+        }
+        return (long) subBucketIndex << bucketIndex;
+    }
+
+    /**
+     * Calculates the highest value recorded into the same count as the value
+     * @param value value equal to or greater than 0
+     * @return highest value of the count
+     */
+    private long highestEquivalentValue(long value) {
+        final int bucketIndex = mLeadingZeroCountBase - Long.numberOfLeadingZeros(value | mSubBucketMask);
+        final long subBucketIndex = value >>> bucketIndex;
+        final long lowestEquivalentValue = subBucketIndex << bucketIndex;
+        final int rangeMagnitude = subBucketIndex >= 2L * mSubBucketHalfCount ? bucketIndex + 1 : bucketIndex;
+        return lowestEquivalentValue + (1L << rangeMagnitude) - 1;
+    }
+
+    /**
+     * Writes the value in ZigZag LEB128, 9 bytes at most
+     * @param buffer buffer written into
+     * @param value value to write
+     */
+    private static void putZigZag(ByteBuffer buffer, long value) {
+        long zigZag = (value << 1) ^ (value >> 63);
+        for (int i = 0; i < 8; i++) {
+            if ((zigZag >>> 7) == 0) {
+                buffer.put((byte) zigZag);
+                return;
+            }
+            buffer.put((byte) ((zigZag & 0x7F) | 0x80));
+            zigZag >>>= 7;
+        }
+        buffer.put((byte) zigZag);
+    }
+}
@@ -0,0 +1,103 @@
+package com.badlogic.masaki.scheduler.library;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Date;
+import java.util.Locale;
+
+/**
+ * Class that writes {@link LatencyHistogram}s as an HdrHistogram interval log (format version 1.3),
+ * readable by HdrHistogram's HistogramLogReader and HistogramLogProcessor
+ */
+public final class LatencyLogWriter {
+
+    public static final String TAG = LatencyLogWriter.class.getSimpleName();
+
+    /**
+     * Version of the log format written
+     */
+    private static final String LOG_FORMAT_VERSION = "1.3";
+
+    /**
+     * Ratio the maximum values are divided by, nanoseconds to milliseconds
+     */
+    private static final double MAX_VALUE_UNIT_RATIO = 1000000.0;
+
+    private static final char[] BASE64 =
+            "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".toCharArray();
+
+    /**
+     * Destination of the log
+     */
+    private final Writer mWriter;
+
+    /**
+     * Time the interval timestamps are relative to (millis)
+     */
+    private final long mStartTime;
+
+    /**
+     * Constructor, writes the header of the log
+     *
+     * @param writer destination of the log
+     * @param startTime time the interval timestamps are relative to (millis since epoch)
+     * @throws IOException if the header cannot be written
+     */
+    public LatencyLogWriter(Writer writer, long startTime) throws IOException {
+        if (writer == null) {
+            throw new IllegalArgumentException("writer must not be null");
+        }
+
+        mWriter = writer;
+        mStartTime = startTime;
+
+        mWriter.write("#[Histogram log format version " + LOG_FORMAT_VERSION + "]\n");
+        mWriter.write(String.format(Locale.US, "#[StartTime: %.3f (seconds since epoch), %s]\n",
+                startTime / 1000.0, new Date(startTime)));
+        mWriter.write("\"StartTimestamp\",\"Interval_Length\",\"Interval_Max\",\"Interval_Compressed_Histogram\"\n");
+    }
+
+    /**
+     * Writes the histogram of an interval, whose values are nanoseconds
+     * @param intervalStartTime start of the interval (millis since epoch)
+     * @param intervalEndTime end of the interval (millis since epoch)
+     * @param histogram histogram of the interval
+     * @throws IOException if the line cannot be written
+     */
+    public void writeInterval(long intervalStartTime, long intervalEndTime, LatencyHistogram histogram)
+            throws IOException {
+        mWriter.write(String.format(Locale.US, "%.3f,%.3f,%.3f,%s\n",
+                (intervalStartTime - mStartTime) / 1000.0,
+                (intervalEndTime - intervalStartTime) / 1000.0,
+                histogram.getMaxValue() / MAX_VALUE_UNIT_RATIO,
+                base64(histogram.encodeCompressed())));
+    }
+
+    /**
+     * Flushes the destination of the log
+     * @throws IOException if the destination cannot be flushed
+     */
+    public void flush() throws IOException {
+        mWriter.flush();
+    }
+
+    /**
+     * Encodes the bytes in padded Base64, android.util.Base64 is avoided so that the class runs on the JVM as well
+     * @param bytes bytes to encode
+     * @return encoded string
+     */
+    static String base64(byte[] bytes) {
+        final StringBuilder builder = new StringBuilder((bytes.length + 2) / 3 * 4);
+        for (int i = 0; i < bytes.length; i += 3) {
+            final int remaining = bytes.length - i;
+            final int chunk = (bytes[i] & 0xFF) << 16
+                    | (remaining > 1 ? (bytes[i + 1] & 0xFF) << 8 : 0)
+                    | (remaining > 2 ? bytes[i + 2] & 0xFF : 0);
+            builder.append(BASE64[chunk >>> 18 & 0x3F]);
+            builder.append(BASE64[chunk >>> 12 & 0x3F]);
+            builder.append(remaining > 1 ? BASE64[chunk >>> 6 & 0x3F] : '=');
+            builder.append(remaining > 2 ? BASE64[chunk & 0x3F] : '=');
+        }
+        return builder.toString();
+    }
+}
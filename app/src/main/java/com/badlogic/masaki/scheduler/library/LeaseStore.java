@@ -0,0 +1,71 @@
+package com.badlogic.masaki.scheduler.library;
+
+import android.support.annotation.Nullable;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * An interface that represents the shared store through which nodes own logical schedulers
+ * A node owns a logical scheduler while it holds an unexpired lease on its name,
+ * and hands its timing state over to the next owner through the store
+ */
+public interface LeaseStore {
+    /**
+     * Used to acquire or renew the lease on the name
+     * Succeeds if the lease is free, expired, or already held by the owner
+     * @param name name of the logical scheduler
+     * @param owner id of the node
+     * @param leaseDuration time the lease stays valid without renewal (millis)
+     * @return true if the owner holds the lease until the current time + leaseDuration
+     * @throws IOException if the store cannot be accessed
+     */
+    boolean tryAcquire(String name, String owner, long leaseDuration) throws IOException;
+
+    /**
+     * Used to see which node holds the lease on the name
+     * @param name name of the lease
+     * @return id of the node holding an unexpired lease, or null if the lease is free or expired
+     * @throws IOException if the store cannot be accessed
+     */
+    @Nullable
+    String getOwner(String name) throws IOException;
+
+    /**
+     * Used to see which nodes hold the leases on a group of names, e.g. to find the live members of a cluster
+     * @param namePrefix prefix of the names
+     * @return ids of the nodes holding unexpired leases on the names starting with the prefix, without duplicates
+     * @throws IOException if the store cannot be accessed
+     */
+    List<String> getOwners(String namePrefix) throws IOException;
+
+    /**
+     * Used to give up the lease on the name, nothing happens if the owner does not hold it
+     * @param name name of the logical scheduler
+     * @param owner id of the node
+     * @throws IOException if the store cannot be accessed
+     */
+    void release(String name, String owner) throws IOException;
+
+    /**
+     * Used to save the timing state of the logical scheduler for the next owner
+     * The state is saved only while the owner holds an unexpired lease on the name,
+     * so that a node which has lost the lease cannot overwrite the state of the new owner
+     * @param name name of the logical scheduler
+     * @param owner id of the node
+     * @param state state serialized by {@link SchedulersSavedState#toByteArray()}
+     * @return true if saved, false if the owner does not hold the lease
+     * @throws IOException if the store cannot be accessed
+     */
+    boolean saveState(String name, String owner, byte[] state) throws IOException;
+
+    /**
+     * Used to load the timing state saved by the previous owner
+     * @param name name of the logical scheduler
+     * @return the saved state, or null if never saved
+     * @throws java.io.StreamCorruptedException if the saved state is damaged
+     * @throws IOException if the store cannot be accessed
+     */
+    @Nullable
+    byte[] loadState(String name) throws IOException;
+}
@@ -0,0 +1,648 @@
+package com.badlogic.masaki.scheduler.library;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Pool of periodic timers whose timing state lives in parallel primitive arrays indexed by a handle
+ * Unlike {@link Scheduler}, a timer has no object, thread, lock or handler of its own: one driver thread runs
+ * {@link #run()}, keeps the timers in a binary heap ordered by their next deadline, and calls a single
+ * {@link TickHandler} shared by the pool, which costs less than 64 bytes per timer
+ * Timers run on {@link Scheduler#DURATION_ACTIVE_TIME}: paused time does not count toward their duration
+ */
+public class LightweightTimers implements Runnable {
+
+    public static final String TAG = LightweightTimers.class.getSimpleName();
+
+    /**
+     * State of a free handle
+     */
+    public static final byte STATE_FREE = 0;
+
+    /**
+     * State of a running timer
+     */
+    public static final byte STATE_RUNNING = 1;
+
+    /**
+     * State of a paused timer
+     */
+    public static final byte STATE_PAUSED = 2;
+
+    /**
+     * State of a timer whose duration has passed, until {@link TickHandler#onCompleted(int)} returns
+     */
+    public static final byte STATE_COMPLETED = 3;
+
+    /**
+     * Index used when the handle is not in the heap, and as the end of the free list
+     */
+    private static final int NONE = -1;
+
+    /**
+     * Callback interface whose methods are called on the driver thread, without the pool's lock held,
+     * so they may add, pause, resume or cancel timers
+     */
+    public interface TickHandler {
+        /**
+         * Called when the timer's frame is due
+         * @param handle handle of the timer
+         * @param frameCount frame count of the timer, including the skipped frames
+         */
+        void onTick(int handle, int frameCount);
+
+        /**
+         * Called before {@link #onTick(int, int)} when the frames more than an interval late are skipped
+         * @param handle handle of the timer
+         * @param frameCount frame count of the first skipped frame
+         * @param skipCount number of skipped frames
+         */
+        void onSkipFrames(int handle, int frameCount, int skipCount);
+
+        /**
+         * Called when the timer's duration has passed, the handle is freed once this method returns
+         * @param handle handle of the timer
+         */
+        void onCompleted(int handle);
+    }
+
+    /**
+     * Callback shared by all the timers
+     */
+    private final TickHandler mHandler;
+
+    /**
+     * Source of time of the timers
+     */
+    private final SchedulerClock mClock;
+
+    /**
+     * Lock for all the arrays
+     */
+    private final ReentrantLock mLock = new ReentrantLock(false);
+
+    /**
+     * Condition used when the earliest deadline changes or the pool is released
+     */
+    private final Condition mChanged = mLock.newCondition();
+
+    /*
+    per-timer state, indexed by handle
+     */
+    private long[] mIntervals;
+    private long[] mDurations;
+    private long[] mNextDeadlines;
+    private long[] mElapsedActiveTimes;
+    private long[] mLastTimes;
+    private int[] mFrameCounts;
+    private byte[] mStates;
+
+    /**
+     * Position of each handle in {@link #mHeap}, or the next free handle while the handle is free
+     */
+    private int[] mHeapIndexes;
+
+    /**
+     * Binary min-heap of the running handles ordered by {@link #mNextDeadlines}
+     */
+    private int[] mHeap;
+
+    /**
+     * Number of handles in {@link #mHeap}
+     */
+    private int mHeapSize;
+
+    /**
+     * First free handle
+     */
+    private int mFreeHead = NONE;
+
+    /**
+     * Number of handles ever used, handles below it are either in use or in the free list
+     */
+    private int mUsedCount;
+
+    /**
+     * Number of timers in use
+     */
+    private int mTimerCount;
+
+    /**
+     * Flags that {@link #run()} must return
+     */
+    private boolean mReleased;
+
+    /**
+     * Constructor
+     *
+     * @param initialCapacity number of timers allocated up front, the arrays grow when needed
+     * @param handler callback shared by all the timers
+     */
+    public LightweightTimers(int initialCapacity, TickHandler handler) {
+        this(initialCapacity, handler, SystemSchedulerClock.INSTANCE);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param initialCapacity number of timers allocated up front, the arrays grow when needed
+     * @param handler callback shared by all the timers
+     * @param clock source of time of the timers
+     */
+    public LightweightTimers(int initialCapacity, TickHandler handler, SchedulerClock clock) {
+        if (initialCapacity < 1) {
+            throw new IllegalArgumentException("initialCapacity < 1 : " + initialCapacity);
+        }
+
+        if (handler == null || clock == null) {
+            throw new IllegalArgumentException("handler and clock must not be null");
+        }
+
+        mHandler = handler;
+        mClock = clock;
+        allocate(initialCapacity);
+    }
+
+    /**
+     * Adds a running timer whose first frame is due at once
+     * @param interval the interval of the timer
+     * @param duration the duration of the timer (millis), or {@link Scheduler#TASK_DURATION_INFINITE}
+     * @return handle of the timer
+     */
+    public int add(long interval, long duration) {
+        return add(interval, duration, 0, 0, 0);
+    }
+
+    /**
+     * Adds a running timer continuing the schedule written by {@link #writeTimer(int, DataOutput)},
+     * e.g. by another process taking over the timers of a failed one
+     * The frames whose time has already passed are skipped
+     * @param in input from which the schedule is read
+     * @return handle of the timer
+     * @throws IOException if the input cannot be read
+     */
+    public int readTimer(DataInput in) throws IOException {
+        final long interval = in.readLong();
+        final long duration = in.readLong();
+        final long elapsedActiveTime = in.readLong();
+        final int frameCount = in.readInt();
+        final long nextDeadline = in.readLong();
+        return add(interval, duration, elapsedActiveTime, frameCount, nextDeadline - mClock.currentTimeMillis());
+    }
+
+    /**
+     * Writes the schedule of the timer, read by {@link #readTimer(DataInput)}
+     * The next deadline is written as the clock's time, so the reading pool must use a clock with the same epoch
+     * A paused timer is continued as running, after the time it had left when paused
+     * @param handle handle of the timer
+     * @param out output into which the schedule is written
+     * @throws IOException if the output cannot be written
+     */
+    public void writeTimer(int handle, DataOutput out) throws IOException {
+        mLock.lock();
+        try {
+            checkHandle(handle);
+            final long nextDeadline = mStates[handle] == STATE_PAUSED
+                    ? mClock.currentTimeMillis() + mNextDeadlines[handle] : mNextDeadlines[handle];
+            out.writeLong(mIntervals[handle]);
+            out.writeLong(mDurations[handle]);
+            out.writeLong(mElapsedActiveTimes[handle]);
+            out.writeInt(mFrameCounts[handle]);
+            out.writeLong(nextDeadline);
+        } finally {
+            mLock.unlock();
+        }
+    }
+
+    /**
+     * Adds a running timer
+     * @param interval the interval of the timer
+     * @param duration the duration of the timer (millis), or {@link Scheduler#TASK_DURATION_INFINITE}
+     * @param elapsedActiveTime time the timer has already been running (millis)
+     * @param frameCount frame count of the first frame
+     * @param firstFrameDelay time until the first frame (millis)
+     * @return handle of the timer
+     */
+    private int add(long interval, long duration, long elapsedActiveTime, int frameCount, long firstFrameDelay) {
+        if (interval < Scheduler.MINIMUM_INTERVAL) {
+            throw new IllegalArgumentException("interval < " + Scheduler.MINIMUM_INTERVAL + " : " + interval);
+        }
+
+        if (duration <= Scheduler.INVALID_TIME) {
+            throw new IllegalArgumentException("duration < " + Scheduler.INVALID_TIME + " : " + duration);
+        }
+
+        mLock.lock();
+        try {
+            final int handle;
+            if (mFreeHead != NONE) {
+                handle = mFreeHead;
+                mFreeHead = mHeapIndexes[handle];
+            } else {
+                if (mUsedCount == mStates.length) {
+                    allocate(mStates.length * 2);
+                }
+                handle = mUsedCount++;
+            }
+
+            final long currentTime = mClock.currentTimeMillis();
+            mIntervals[handle] = interval;
+            mDurations[handle] = duration;
+            mNextDeadlines[handle] = currentTime + firstFrameDelay;
+            mElapsedActiveTimes[handle] = elapsedActiveTime;
+            mLastTimes[handle] = currentTime;
+            mFrameCounts[handle] = frameCount;
+            mStates[handle] = STATE_RUNNING;
+            mTimerCount++;
+            heapInsert(handle);
+            mChanged.signalAll();
+            return handle;
+        } finally {
+            mLock.unlock();
+        }
+    }
+
+    /**
+     * Pauses the timer, which keeps the time left until its next frame
+     * @param handle handle of the timer
+     */
+    public void pause(int handle) {
+        mLock.lock();
+        try {
+            checkHandle(handle);
+            if (mStates[handle] != STATE_RUNNING) {
+                return;
+            }
+
+            final long currentTime = mClock.currentTimeMillis();
+            heapRemove(handle);
+            mElapsedActiveTimes[handle] += currentTime - mLastTimes[handle];
+            mNextDeadlines[handle] = Math.max(mNextDeadlines[handle] - currentTime, 0);
+            mStates[handle] = STATE_PAUSED;
+        } finally {
+            mLock.unlock();
+        }
+    }
+
+    /**
+     * Resumes the timer, whose next frame is due after the time it had left when paused
+     * @param handle handle of the timer
+     */
+    public void resume(int handle) {
+        mLock.lock();
+        try {
+            checkHandle(handle);
+            if (mStates[handle] != STATE_PAUSED) {
+                return;
+            }
+
+            final long currentTime = mClock.currentTimeMillis();
+            mLastTimes[handle] = currentTime;
+            mNextDeadlines[handle] += currentTime;
+            mStates[handle] = STATE_RUNNING;
+            heapInsert(handle);
+            mChanged.signalAll();
+        } finally {
+            mLock.unlock();
+        }
+    }
+
+    /**
+     * Removes the timer and frees its handle
+     * @param handle handle of the timer
+     */
+    public void cancel(int handle) {
+        mLock.lock();
+        try {
+            checkHandle(handle);
+            free(handle);
+        } finally {
+            mLock.unlock();
+        }
+    }
+
+    /**
+     * Stops {@link #run()}
+     */
+    public void release() {
+        mLock.lock();
+        try {
+            mReleased = true;
+            mChanged.signalAll();
+        } finally {
+            mLock.unlock();
+        }
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (true) {
+                mLock.lock();
+                try {
+                    if (mReleased) {
+                        return;
+                    }
+
+                    /*
+                    reads the earliest deadline under the lock, so that a timer added meanwhile signals the wait
+                     */
+                    final long waitTime = earliestDeadline() - mClock.currentTimeMillis();
+                    if (waitTime > 0) {
+                        mChanged.await(waitTime, TimeUnit.MILLISECONDS);
+                        continue;
+                    }
+                } finally {
+                    mLock.unlock();
+                }
+
+                processDueTimers();
+            }
+        } catch (InterruptedException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Calls {@link TickHandler} for every timer whose frame is due at the clock's current time
+     * Frames more than an interval late are skipped, as {@link Scheduler} does when allowed to skip frames
+     * @return the earliest next deadline, or Long.MAX_VALUE if no timer is running
+     */
+    public long processDueTimers() {
+        while (true) {
+            final int handle;
+            final int frameCount;
+            final int skipCount;
+            final boolean completed;
+
+            mLock.lock();
+            try {
+                final long currentTime = mClock.currentTimeMillis();
+                if (mHeapSize == 0 || mNextDeadlines[mHeap[0]] > currentTime) {
+                    return earliestDeadline();
+                }
+
+                handle = mHeap[0];
+                final long interval = mIntervals[handle];
+
+                mElapsedActiveTimes[handle] += currentTime - mLastTimes[handle];
+                mLastTimes[handle] = currentTime;
+                completed = mDurations[handle] != Scheduler.TASK_DURATION_INFINITE
+                        && mElapsedActiveTimes[handle] >= mDurations[handle];
+                if (completed) {
+                    /*
+                    keeps the handle in use until the handler returns
+                     */
+                    heapRemove(handle);
+                    mStates[handle] = STATE_COMPLETED;
+                    frameCount = mFrameCounts[handle];
+                    skipCount = 0;
+                } else {
+                    skipCount = (int) ((currentTime - mNextDeadlines[handle]) / interval);
+                    mFrameCounts[handle] += skipCount;
+                    mNextDeadlines[handle] += (skipCount + 1) * interval;
+
+                    /*
+                    wakes up at the end of the duration if it comes before the next frame
+                     */
+                    if (mDurations[handle] != Scheduler.TASK_DURATION_INFINITE) {
+                        final long completionTime = currentTime + mDurations[handle] - mElapsedActiveTimes[handle];
+                        mNextDeadlines[handle] = Math.min(mNextDeadlines[handle], completionTime);
+                    }
+                    heapSiftDown(0);
+                    frameCount = mFrameCounts[handle]++;
+                }
+            } finally {
+                mLock.unlock();
+            }
+
+            if (completed) {
+                mHandler.onCompleted(handle);
+                mLock.lock();
+                try {
+                    /*
+                    the handler may have cancelled the timer already
+                     */
+                    if (mStates[handle] == STATE_COMPLETED) {
+                        free(handle);
+                    }
+                } finally {
+                    mLock.unlock();
+                }
+                continue;
+            }
+
+            if (skipCount > 0) {
+                mHandler.onSkipFrames(handle, frameCount - skipCount, skipCount);
+            }
+            mHandler.onTick(handle, frameCount);
+        }
+    }
+
+    /**
+     * Getter, called with {@link #mLock} held
+     * @return the earliest next deadline, or Long.MAX_VALUE if no timer is running
+     */
+    private long earliestDeadline() {
+        return mHeapSize > 0 ? mNextDeadlines[mHeap[0]] : Long.MAX_VALUE;
+    }
+
+    /**
+     * Getter
+     * @param handle handle of the timer
+     * @return {@link #STATE_FREE}, {@link #STATE_RUNNING}, {@link #STATE_PAUSED} or {@link #STATE_COMPLETED}
+     */
+    public byte getState(int handle) {
+        mLock.lock();
+        try {
+            return handle >= 0 && handle < mUsedCount ? mStates[handle] : STATE_FREE;
+        } finally {
+            mLock.unlock();
+        }
+    }
+
+    /**
+     * Getter
+     * @param handle handle of the timer
+     * @return the number of frames of the timer so far, including the skipped ones
+     */
+    public int getFrameCount(int handle) {
+        mLock.lock();
+        try {
+            checkHandle(handle);
+            return mFrameCounts[handle];
+        } finally {
+            mLock.unlock();
+        }
+    }
+
+    /**
+     * Getter
+     * @param handle handle of the timer
+     * @return the time the timer has been running, as of its last frame or pause (millis)
+     */
+    public long getElapsedActiveTime(int handle) {
+        mLock.lock();
+        try {
+            checkHandle(handle);
+            return mElapsedActiveTimes[handle];
+        } finally {
+            mLock.unlock();
+        }
+    }
+
+    /**
+     * Getter
+     * @return the number of timers in use
+     */
+    public int getTimerCount() {
+        mLock.lock();
+        try {
+            return mTimerCount;
+        } finally {
+            mLock.unlock();
+        }
+    }
+
+    /**
+     * Calculates the memory taken by the arrays, excluding the array headers
+     * @return the footprint of the allocated timers (bytes)
+     */
+    public long getFootprintBytes() {
+        mLock.lock();
+        try {
+            return (long) mStates.length * bytesPerTimer();
+        } finally {
+            mLock.unlock();
+        }
+    }
+
+    /**
+     * Calculates the memory taken by one timer in the arrays
+     * @return bytes per timer
+     */
+    static int bytesPerTimer() {
+        /*
+        5 longs, 3 ints (frame count, heap index, heap slot) and 1 byte
+         */
+        return 5 * 8 + 3 * 4 + 1;
+    }
+
+    /**
+     * Frees the handle of the timer
+     * @param handle handle in use
+     */
+    private void free(int handle) {
+        if (mStates[handle] == STATE_RUNNING) {
+            heapRemove(handle);
+        }
+        mStates[handle] = STATE_FREE;
+        mHeapIndexes[handle] = mFreeHead;
+        mFreeHead = handle;
+        mTimerCount--;
+    }
+
+    /**
+     * Throws IllegalArgumentException if the handle is not in use
+     * @param handle handle of the timer
+     */
+    private void checkHandle(int handle) {
+        if (handle < 0 || handle >= mUsedCount || mStates[handle] == STATE_FREE) {
+            throw new IllegalArgumentException("invalid handle : " + handle);
+        }
+    }
+
+    /**
+     * Allocates or grows the arrays
+     * @param capacity number of timers
+     */
+    private void allocate(int capacity) {
+        if (mStates == null) {
+            mIntervals = new long[capacity];
+            mDurations = new long[capacity];
+            mNextDeadlines = new long[capacity];
+            mElapsedActiveTimes = new long[capacity];
+            mLastTimes = new long[capacity];
+            mFrameCounts = new int[capacity];
+            mHeapIndexes = new int[capacity];
+            mHeap = new int[capacity];
+            mStates = new byte[capacity];
+            return;
+        }
+
+        mIntervals = Arrays.copyOf(mIntervals, capacity);
+        mDurations = Arrays.copyOf(mDurations, capacity);
+        mNextDeadlines = Arrays.copyOf(mNextDeadlines, capacity);
+        mElapsedActiveTimes = Arrays.copyOf(mElapsedActiveTimes, capacity);
+        mLastTimes = Arrays.copyOf(mLastTimes, capacity);
+        mFrameCounts = Arrays.copyOf(mFrameCounts, capacity);
+        mHeapIndexes = Arrays.copyOf(mHeapIndexes, capacity);
+        mHeap = Arrays.copyOf(mHeap, capacity);
+        mStates = Arrays.copyOf(mStates, capacity);
+    }
+
+    private void heapInsert(int handle) {
+        mHeap[mHeapSize] = handle;
+        mHeapIndexes[handle] = mHeapSize;
+        heapSiftUp(mHeapSize++);
+    }
+
+    private void heapRemove(int handle) {
+        final int index = mHeapIndexes[handle];
+        final int last = mHeap[--mHeapSize];
+        mHeapIndexes[handle] = NONE;
+        if (index == mHeapSize) {
+            return;
+        }
+
+        mHeap[index] = last;
+        mHeapIndexes[last] = index;
+        heapSiftDown(index);
+        heapSiftUp(mHeapIndexes[last]);
+    }
+
+    private void heapSiftUp(int index) {
+        final int handle = mHeap[index];
+        final long deadline = mNextDeadlines[handle];
+        while (index > 0) {
+            final int parentIndex = (index - 1) >>> 1;
+            final int parent = mHeap[parentIndex];
+            if (mNextDeadlines[parent] <= deadline) {
+                break;
+            }
+            mHeap[index] = parent;
+            mHeapIndexes[parent] = index;
+            index = parentIndex;
+        }
+        mHeap[index] = handle;
+        mHeapIndexes[handle] = index;
+    }
+
+    private void heapSiftDown(int index) {
+        final int handle = mHeap[index];
+        final long deadline = mNextDeadlines[handle];
+        while (true) {
+            int childIndex = 2 * index + 1;
+            if (childIndex >= mHeapSize) {
+                break;
+            }
+            if (childIndex + 1 < mHeapSize && mNextDeadlines[mHeap[childIndex + 1]] < mNextDeadlines[mHeap[childIndex]]) {
+                childIndex++;
+            }
+            final int child = mHeap[childIndex];
+            if (deadline <= mNextDeadlines[child]) {
+                break;
+            }
+            mHeap[index] = child;
+            mHeapIndexes[child] = index;
+            index = childIndex;
+        }
+        mHeap[index] = handle;
+        mHeapIndexes[handle] = index;
+    }
+}
@@ -0,0 +1,78 @@
+package com.badlogic.masaki.scheduler.library;
+
+/**
+ * {@link AdmissionController} that considers the engine overloaded when the queue depth,
+ * the lag of the oldest due regular task or the skip rate exceeds its limit
+ * While overloaded, new low priority schedulers are rejected, new normal priority ones are deferred,
+ * and the regular tasks of the running low priority schedulers are skipped
+ * High priority schedulers are always admitted
+ */
+public class LoadAdmissionController implements AdmissionController {
+
+    public static final String TAG = LoadAdmissionController.class.getSimpleName();
+
+    /**
+     * Limit of {@link EngineLoad#getQueueDepth()}
+     */
+    private final int mMaxQueueDepth;
+
+    /**
+     * Limit of {@link EngineLoad#getOldestDueLag()}
+     */
+    private final long mMaxOldestDueLag;
+
+    /**
+     * Limit of {@link EngineLoad#getSkipRate()}
+     */
+    private final double mMaxSkipRate;
+
+    /**
+     * Constructor
+     *
+     * @param maxQueueDepth limit of the number of waiting regular tasks
+     * @param maxOldestDueLag limit of the lag of the oldest due regular task (millis)
+     * @param maxSkipRate limit of the skip rate, between 0 and 1
+     */
+    public LoadAdmissionController(int maxQueueDepth, long maxOldestDueLag, double maxSkipRate) {
+        if (maxQueueDepth < 0) {
+            throw new IllegalArgumentException("maxQueueDepth < 0 : " + maxQueueDepth);
+        }
+
+        if (maxOldestDueLag < 0) {
+            throw new IllegalArgumentException("maxOldestDueLag < 0 : " + maxOldestDueLag);
+        }
+
+        if (!(maxSkipRate >= 0 && maxSkipRate <= 1)) {
+            throw new IllegalArgumentException("maxSkipRate must be between 0 and 1 : " + maxSkipRate);
+        }
+
+        mMaxQueueDepth = maxQueueDepth;
+        mMaxOldestDueLag = maxOldestDueLag;
+        mMaxSkipRate = maxSkipRate;
+    }
+
+    @Override
+    public int onSubmit(Scheduler scheduler, EngineLoad load) {
+        if (!isOverloaded(load) || scheduler.getPriority() == Scheduler.PRIORITY_HIGH) {
+            return ADMIT;
+        }
+
+        return scheduler.getPriority() == Scheduler.PRIORITY_NORMAL ? DEFER : REJECT;
+    }
+
+    @Override
+    public int getDegradedPriority(EngineLoad load) {
+        return isOverloaded(load) ? Scheduler.PRIORITY_NORMAL : Scheduler.PRIORITY_LOW;
+    }
+
+    /**
+     * Calculates if the load exceeds any of the limits
+     * @param load current load of the engine
+     * @return true if overloaded
+     */
+    protected boolean isOverloaded(EngineLoad load) {
+        return load.getQueueDepth() > mMaxQueueDepth
+                || load.getOldestDueLag() > mMaxOldestDueLag
+                || load.getSkipRate() > mMaxSkipRate;
+    }
+}
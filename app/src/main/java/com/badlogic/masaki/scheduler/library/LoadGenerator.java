@@ -0,0 +1,188 @@
+package com.badlogic.masaki.scheduler.library;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Scheduler that sends requests at a fixed rate regardless of how long they take (open loop),
+ * used to load test a service without coordinated omission
+ * Each request is handed to the request executor instead of running in the run loop, so a slow request
+ * neither delays nor skips the following ones, and the frames never skip
+ * The latency of a request is measured from the time it was scheduled, not from the time it was sent,
+ * so the time spent waiting behind a stall is counted as well
+ * The interval histograms are swapped as HdrHistogram's Recorder does, so no latency is lost
+ * nor recorded into a histogram already returned
+ */
+public abstract class LoadGenerator extends Scheduler {
+
+    public static final String TAG = LoadGenerator.class.getSimpleName();
+
+    /**
+     * Highest latency recorded as is (nanos)
+     */
+    public static final long HIGHEST_TRACKABLE_LATENCY = TimeUnit.HOURS.toNanos(1);
+
+    /**
+     * Number of significant digits of the recorded latencies
+     */
+    public static final int SIGNIFICANT_DIGITS = 3;
+
+    /**
+     * Executor on which the requests are sent, should have enough threads for the requests in flight
+     */
+    private final Executor mRequestExecutor;
+
+    /**
+     * Latencies of the requests completed since the last {@link #getIntervalHistogram()} (nanos)
+     */
+    private volatile LatencyHistogram mHistogram = newHistogram();
+
+    /**
+     * Incremented by the requests before recording into {@link #mHistogram}, reset at each swap of the histograms,
+     * to a negative value every other swap
+     */
+    private final AtomicLong mStartEpoch = new AtomicLong();
+
+    /**
+     * Incremented by the requests that have finished recording, started while {@link #mStartEpoch} was positive
+     */
+    private final AtomicLong mEvenEndEpoch = new AtomicLong();
+
+    /**
+     * Incremented by the requests that have finished recording, started while {@link #mStartEpoch} was negative
+     */
+    private final AtomicLong mOddEndEpoch = new AtomicLong(Long.MIN_VALUE);
+
+    /**
+     * Number of requests sent and not completed yet
+     */
+    private final AtomicInteger mInFlightCount = new AtomicInteger();
+
+    /**
+     * Constructor
+     *
+     * @param interval the interval of the requests
+     * @param taskDuration the duration of the load (millis)
+     * @param durationType must be set {@link #DURATION_REAL_TIME} or {@link #DURATION_ACTIVE_TIME}
+     * @param requestExecutor executor on which the requests are sent
+     */
+    public LoadGenerator(long interval, long taskDuration, int durationType, Executor requestExecutor) {
+        super(interval, taskDuration, durationType, false);
+
+        if (requestExecutor == null) {
+            throw new IllegalArgumentException("requestExecutor must not be null");
+        }
+
+        mRequestExecutor = requestExecutor;
+    }
+
+    /**
+     * Called on the request executor once per frame
+     */
+    protected abstract void sendRequest();
+
+    @Override
+    protected final void executeRegularTask() {
+        /*
+        sends nothing on the dry ticks, which only warm up the run loop
+         */
+        if (isWarmingUp()) {
+            return;
+        }
+
+        /*
+        the run loop may already be late, which is part of the latency
+         */
+        final long lateness = Math.max(0, getClock().currentTimeMillis() - getScheduledTime());
+        final long sentTime = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(lateness);
+
+        mInFlightCount.incrementAndGet();
+        mRequestExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    sendRequest();
+                } finally {
+                    recordLatency(System.nanoTime() - sentTime);
+                    mInFlightCount.decrementAndGet();
+                }
+            }
+        });
+    }
+
+    /**
+     * Records the latency of a request into the current histogram
+     * @param latency latency of the request (nanos)
+     */
+    private void recordLatency(long latency) {
+        final long epoch = mStartEpoch.getAndIncrement();
+        try {
+            mHistogram.recordValue(latency);
+        } finally {
+            (epoch < 0 ? mOddEndEpoch : mEvenEndEpoch).getAndIncrement();
+        }
+    }
+
+    /**
+     * The frames of a load generator never skip, each of them sends a request
+     * @param skipFrameWhenDelayed must be false
+     * @return Scheduler's instance
+     */
+    @Override
+    public Scheduler allowSkipFrameWhenDelayed(boolean skipFrameWhenDelayed) {
+        if (skipFrameWhenDelayed) {
+            throw new IllegalArgumentException("the frames of " + TAG + " must not skip");
+        }
+
+        return super.allowSkipFrameWhenDelayed(false);
+    }
+
+    /**
+     * Getter
+     * @return the histogram of the latencies recorded since the last call to {@link #getIntervalHistogram()} (nanos)
+     */
+    public LatencyHistogram getHistogram() {
+        return mHistogram;
+    }
+
+    /**
+     * Replaces the histogram with an empty one, used to write an interval log with {@link LatencyLogWriter}
+     * Waits for the requests recording into the replaced histogram, so it is complete once returned
+     * @return the histogram of the latencies recorded since the last call (nanos)
+     */
+    public synchronized LatencyHistogram getIntervalHistogram() {
+        final LatencyHistogram histogram = mHistogram;
+        mHistogram = newHistogram();
+
+        /*
+        flips the phase, then waits until all the requests started in the previous phase have finished recording
+         */
+        final boolean nextPhaseIsEven = mStartEpoch.get() < 0;
+        final long initialStartEpoch = nextPhaseIsEven ? 0 : Long.MIN_VALUE;
+        (nextPhaseIsEven ? mEvenEndEpoch : mOddEndEpoch).set(initialStartEpoch);
+        final long startEpochAtFlip = mStartEpoch.getAndSet(initialStartEpoch);
+        final AtomicLong previousEndEpoch = nextPhaseIsEven ? mOddEndEpoch : mEvenEndEpoch;
+        while (previousEndEpoch.get() != startEpochAtFlip) {
+            Thread.yield();
+        }
+        return histogram;
+    }
+
+    /**
+     * Getter
+     * @return the number of requests sent and not completed yet
+     */
+    public int getInFlightCount() {
+        return mInFlightCount.get();
+    }
+
+    /**
+     * Creates an empty histogram of latencies
+     * @return LatencyHistogram's instance
+     */
+    private static LatencyHistogram newHistogram() {
+        return new LatencyHistogram(HIGHEST_TRACKABLE_LATENCY, SIGNIFICANT_DIGITS);
+    }
+}
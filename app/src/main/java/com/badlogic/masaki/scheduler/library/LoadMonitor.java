@@ -0,0 +1,132 @@
+package com.badlogic.masaki.scheduler.library;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Class that counts the regular tasks executed, skipped and shed across a {@link SchedulerEngine}
+ * over a sliding window
+ * The window is split into buckets recycled as time goes on, so recording never allocates nor locks
+ * Counts recorded while a bucket is being recycled may be lost, which is acceptable for a load metric
+ */
+final class LoadMonitor {
+
+    /**
+     * Number of buckets the window is split into
+     */
+    static final int BUCKET_COUNT = 10;
+
+    /**
+     * Kind of the regular tasks executed
+     */
+    static final int EXECUTED = 0;
+
+    /**
+     * Kind of the regular tasks skipped because they were late
+     */
+    static final int SKIPPED = 1;
+
+    /**
+     * Kind of the regular tasks skipped because the engine degraded or shed them,
+     * kept apart so that the skips the engine causes do not keep it overloaded
+     */
+    static final int SHED = 2;
+
+    /**
+     * Width of a bucket (millis)
+     */
+    private final long mBucketWidth;
+
+    /**
+     * Time divided by {@link #mBucketWidth} the bucket is counting for, indexed by bucket
+     */
+    private final AtomicLongArray mEpochs = new AtomicLongArray(BUCKET_COUNT);
+
+    /**
+     * Number of executed regular tasks, indexed by bucket
+     */
+    private final AtomicLongArray mTicks = new AtomicLongArray(BUCKET_COUNT);
+
+    /**
+     * Number of skipped regular tasks, indexed by bucket
+     */
+    private final AtomicLongArray mSkips = new AtomicLongArray(BUCKET_COUNT);
+
+    /**
+     * Number of shed regular tasks, indexed by bucket
+     */
+    private final AtomicLongArray mSheds = new AtomicLongArray(BUCKET_COUNT);
+
+    /**
+     * Constructor
+     *
+     * @param window length of the window (millis)
+     */
+    LoadMonitor(long window) {
+        mBucketWidth = Math.max(1, window / BUCKET_COUNT);
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            mEpochs.set(i, -1);
+        }
+    }
+
+    /**
+     * Getter
+     * @return the width of a bucket (millis)
+     */
+    long getBucketWidth() {
+        return mBucketWidth;
+    }
+
+    /**
+     * Counts a regular task
+     * @param time current time
+     * @param kind {@link #EXECUTED}, {@link #SKIPPED} or {@link #SHED}
+     * @return true if the count has started a new bucket
+     */
+    boolean record(long time, int kind) {
+        final long epoch = time / mBucketWidth;
+        final int index = (int) (epoch % BUCKET_COUNT);
+
+        boolean started = false;
+        final long bucketEpoch = mEpochs.get(index);
+        if (bucketEpoch < epoch && mEpochs.compareAndSet(index, bucketEpoch, epoch)) {
+            mTicks.set(index, 0);
+            mSkips.set(index, 0);
+            mSheds.set(index, 0);
+            started = true;
+        }
+
+        switch (kind) {
+            case SKIPPED :
+                mSkips.incrementAndGet(index);
+                break;
+            case SHED :
+                mSheds.incrementAndGet(index);
+                break;
+            default:
+                mTicks.incrementAndGet(index);
+                break;
+        }
+        return started;
+    }
+
+    /**
+     * Sums the counts of the window ending at the time
+     * @param time current time
+     * @return number of executed, skipped and shed regular tasks, in this order
+     */
+    long[] sum(long time) {
+        final long epoch = time / mBucketWidth;
+        long ticks = 0;
+        long skips = 0;
+        long sheds = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            final long bucketEpoch = mEpochs.get(i);
+            if (bucketEpoch > epoch - BUCKET_COUNT && bucketEpoch <= epoch) {
+                ticks += mTicks.get(i);
+                skips += mSkips.get(i);
+                sheds += mSheds.get(i);
+            }
+        }
+        return new long[] {ticks, skips, sheds};
+    }
+}
@@ -0,0 +1,111 @@
+package com.badlogic.masaki.scheduler.library;
+
+/**
+ * Class that holds the dispatch statistics of a priority class of {@link Scheduler}s
+ * Obtained from {@link SchedulerEngine#getPriorityStats(int)} as a snapshot
+ */
+public final class PriorityStats {
+
+    /**
+     * Number of regular tasks that have been dispatched
+     */
+    private long mDispatchedCount;
+
+    /**
+     * Number of regular tasks that have waited for the execution capacity
+     */
+    private long mDelayedCount;
+
+    /**
+     * Total time the regular tasks have waited for the execution capacity (millis)
+     */
+    private long mTotalDelay;
+
+    /**
+     * Number of regular tasks that have been shed (skipped) because they waited too long
+     */
+    private long mShedCount;
+
+    /**
+     * Constructor that is package private, the stats are recorded by {@link TickDispatcher}
+     */
+    PriorityStats() {
+
+    }
+
+    /**
+     * Getter
+     * @return {@link PriorityStats#mDispatchedCount}
+     */
+    public long getDispatchedCount() {
+        return mDispatchedCount;
+    }
+
+    /**
+     * Getter
+     * @return {@link PriorityStats#mDelayedCount}
+     */
+    public long getDelayedCount() {
+        return mDelayedCount;
+    }
+
+    /**
+     * Getter
+     * @return {@link PriorityStats#mTotalDelay}
+     */
+    public long getTotalDelay() {
+        return mTotalDelay;
+    }
+
+    /**
+     * Getter
+     * @return {@link PriorityStats#mShedCount}
+     */
+    public long getShedCount() {
+        return mShedCount;
+    }
+
+    /**
+     * Records a dispatched regular task
+     * @param delay time the regular task has waited (millis)
+     */
+    void recordDispatched(long delay) {
+        mDispatchedCount++;
+        mTotalDelay += delay;
+    }
+
+    /**
+     * Records a regular task that has to wait for the execution capacity
+     */
+    void recordDelayed() {
+        mDelayedCount++;
+    }
+
+    /**
+     * Records a shed regular task
+     * @param delay time the regular task has waited (millis)
+     */
+    void recordShed(long delay) {
+        mShedCount++;
+        mTotalDelay += delay;
+    }
+
+    /**
+     * Copies the stats
+     * @return snapshot of the stats
+     */
+    PriorityStats copy() {
+        final PriorityStats stats = new PriorityStats();
+        stats.mDispatchedCount = mDispatchedCount;
+        stats.mDelayedCount = mDelayedCount;
+        stats.mTotalDelay = mTotalDelay;
+        stats.mShedCount = mShedCount;
+        return stats;
+    }
+
+    @Override
+    public String toString() {
+        return "PriorityStats{dispatched=" + mDispatchedCount + ", delayed=" + mDelayedCount
+                + ", totalDelay=" + mTotalDelay + ", shed=" + mShedCount + "}";
+    }
+}
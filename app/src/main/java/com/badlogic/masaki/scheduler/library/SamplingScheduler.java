@@ -0,0 +1,96 @@
+package com.badlogic.masaki.scheduler.library;
+
+import android.support.annotation.Nullable;
+
+/**
+ * Scheduler whose regular task produces a sample, aggregated over windows by {@link WindowAggregator}
+ * Subclasses override {@link #sample()} instead of {@link #executeRegularTask()},
+ * and the listener receives an aggregate once per window instead of a sample per frame
+ */
+public abstract class SamplingScheduler extends Scheduler {
+
+    public static final String TAG = SamplingScheduler.class.getSimpleName();
+
+    /**
+     * Aggregates the samples
+     */
+    private final WindowAggregator mAggregator;
+
+    /**
+     * Instance of OnWindowAggregateListener
+     */
+    private OnWindowAggregateListener mWindowAggregateListener;
+
+    /**
+     * Callback interface whose method is called when the samples of a window have been aggregated
+     */
+    public interface OnWindowAggregateListener {
+        /**
+         * Called once per window, and tells the main thread of the aggregate of the samples
+         *
+         * @param tag tag of the scheduler (Nullable), often used to identify this instance
+         * @param aggregate aggregate of the window
+         */
+        void onWindowAggregate(@Nullable final Object tag, final WindowAggregate aggregate);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param interval the interval of the regular task
+     * @param taskDuration the duration of the task (millis)
+     * @param durationType must be set {@link #DURATION_REAL_TIME} or {@link #DURATION_ACTIVE_TIME}
+     * @param aggregator aggregator of the samples
+     */
+    public SamplingScheduler(long interval, long taskDuration, int durationType, WindowAggregator aggregator) {
+        super(interval, taskDuration, durationType);
+
+        if (aggregator == null) {
+            throw new IllegalArgumentException("aggregator must not be null");
+        }
+
+        mAggregator = aggregator;
+    }
+
+    /**
+     * Sets windowAggregateListener to {@link SamplingScheduler#mWindowAggregateListener}
+     * @param windowAggregateListener instance of OnWindowAggregateListener
+     * @return SamplingScheduler's instance
+     */
+    public SamplingScheduler setOnWindowAggregateListener(OnWindowAggregateListener windowAggregateListener) {
+        mWindowAggregateListener = windowAggregateListener;
+        return this;
+    }
+
+    /**
+     * Called in the run loop instead of {@link #executeRegularTask()}
+     * @return sample of the frame
+     */
+    protected abstract double sample();
+
+    @Override
+    protected final void executeRegularTask() {
+        final double sample = sample();
+
+        /*
+        the samples of the dry ticks are not aggregated
+         */
+        if (isWarmingUp()) {
+            return;
+        }
+
+        final WindowAggregate aggregate = mAggregator.add(sample);
+        final OnWindowAggregateListener listener = mWindowAggregateListener;
+        if (aggregate == null || listener == null) {
+            return;
+        }
+
+        final Object tag = getTag();
+        postCallback(new Runnable() {
+            @Override
+            public void run() {
+                listener.onWindowAggregate(tag, aggregate);
+            }
+        });
+    }
+}
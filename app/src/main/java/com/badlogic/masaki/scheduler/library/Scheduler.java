@@ -5,6 +5,7 @@ import android.os.Looper;
 import android.os.Message;
 import android.support.annotation.Nullable;
 
+import java.util.concurrent.Executor;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.ReentrantLock;
 
@@ -45,6 +46,18 @@ public abstract class Scheduler implements ScheduledTask , Handler.Callback {
      */
     public static final int MSG_TASK_CANCELED = 1 << 4;
 
+    /**
+     * Used when {@link Handler#sendMessage(Message)} is called
+     * Indicates that a regular task has overrun the tick timeout
+     */
+    public static final int MSG_TICK_TIMEOUT = 1 << 5;
+
+    /**
+     * Used when {@link Handler#sendMessage(Message)} is called
+     * Indicates that the frames missed while paused have been dropped on resume
+     */
+    public static final int MSG_FRAMES_DROPPED = 1 << 6;
+
     /**
      * Used as an argument of {@link #setTaskDuration(long)} (mTaskDuration)
      * Indicates that the task continues endlessly until destroyed
@@ -62,11 +75,82 @@ public abstract class Scheduler implements ScheduledTask , Handler.Callback {
      */
     public static final long INVALID_TIME = -1;
 
+    /**
+     * Used as an argument of {@link #setTickTimeout(long)} (mTickTimeout)
+     * Indicates that a regular task is never timed out
+     */
+    public static final long TICK_TIMEOUT_NONE = 0;
+
+    /**
+     * Used as an argument of {@link #setResumePolicy(int)}
+     * Indicates that the schedule is kept as is on resume, so the frames missed while paused are found late
+     * one by one and skipped (or executed without waiting if skipping is not allowed)
+     */
+    public static final int RESUME_KEEP_SCHEDULE = 0;
+
+    /**
+     * Used as an argument of {@link #setResumePolicy(int)}
+     * Indicates that the schedule is shifted by the paused time on resume, as if it had been frozen
+     */
+    public static final int RESUME_SHIFT = 1;
+
+    /**
+     * Used as an argument of {@link #setResumePolicy(int)}
+     * Indicates that the frames missed while paused are dropped at once on resume,
+     * and the schedule continues from the next frame boundary
+     */
+    public static final int RESUME_SKIP_TO_NOW = 2;
+
+    /**
+     * Used as an argument of {@link #setResumePolicy(int)}
+     * Indicates that the last frames missed while paused, up to {@link #setMaxReplayTicks(int)}, are executed
+     * back to back on resume, the older ones are dropped, and the schedule continues from the next frame boundary
+     */
+    public static final int RESUME_REPLAY = 3;
+
+    /**
+     * Indicates that {@link #mPhaseSlot} is not set
+     */
+    static final long NO_PHASE_SLOT = -1;
+
+    /**
+     * Default maximum number of frames replayed by {@link #RESUME_REPLAY}
+     */
+    public static final int DEFAULT_MAX_REPLAY_TICKS = 10;
+
+    /**
+     * Used as an argument of {@link #setPriority(int)}
+     * Indicates background work that is shed first when the execution capacity is exhausted
+     */
+    public static final int PRIORITY_LOW = 0;
+
+    /**
+     * Used as an argument of {@link #setPriority(int)}
+     * Default priority
+     */
+    public static final int PRIORITY_NORMAL = 1;
+
+    /**
+     * Used as an argument of {@link #setPriority(int)}
+     * Indicates latency-critical work that is dispatched before the other priorities
+     */
+    public static final int PRIORITY_HIGH = 2;
+
     /**
      * Used when {@link #sendMessage(int)} is called
      */
     private final Handler mHandler = new Handler(Looper.getMainLooper(), this);
 
+    /**
+     * Executor on which the callbacks are invoked instead of the main thread, or null to use {@link #mHandler}
+     */
+    private Executor mCallbackExecutor;
+
+    /**
+     * Source of time of the run loop
+     */
+    private SchedulerClock mClock = SystemSchedulerClock.INSTANCE;
+
     /**
      * Thread to which this class is bound
      */
@@ -77,6 +161,11 @@ public abstract class Scheduler implements ScheduledTask , Handler.Callback {
      */
     private OnSkipFrameListener mSkipFrameListener;
 
+    /**
+     * Callback used when the frames missed while paused are dropped on resume
+     */
+    private OnFramesDroppedListener mFramesDroppedListener;
+
     /**
      * Callback used when the duration of the task has passed
      */
@@ -87,6 +176,11 @@ public abstract class Scheduler implements ScheduledTask , Handler.Callback {
      */
     private OnTaskCancelListener mCancelListener;
 
+    /**
+     * Callback used when a regular task overruns the tick timeout
+     */
+    private OnTickTimeoutListener mTickTimeoutListener;
+
     /**
      * Represents the current state of the task
      */
@@ -103,9 +197,25 @@ public abstract class Scheduler implements ScheduledTask , Handler.Callback {
     private final Condition mStateCondition = mStateLock.newCondition();
 
     /**
-     * Interval of the periodic task
+     * Interval of the periodic task, may be changed while the run loop is running
+     */
+    private volatile long mInterval;
+
+    /**
+     * Interval the run loop actually schedules the frames with,
+     * {@link #mInterval} scaled by {@link SchedulerEngine#getIntervalScale()}
+     */
+    private volatile long mEffectiveInterval;
+
+    /**
+     * Flags that {@link #mInterval} or {@link #mTaskDuration} has been changed since the run loop last applied them
      */
-    private long mInterval;
+    private volatile boolean mReconfigured;
+
+    /**
+     * {@link SchedulerEngine#getConfigVersion()} the run loop last applied
+     */
+    private int mEngineConfigVersion;
 
     /**
      * Saves the time the task has started
@@ -113,9 +223,9 @@ public abstract class Scheduler implements ScheduledTask , Handler.Callback {
     private long mTaskStartedTime;
 
     /**
-     * Duration of the task
+     * Duration of the task, may be changed while the run loop is running
      */
-    private long mTaskDuration = TASK_DURATION_INFINITE;
+    private volatile long mTaskDuration = TASK_DURATION_INFINITE;
 
     /**
      * Elapsed time from the launch to the current
@@ -147,6 +257,18 @@ public abstract class Scheduler implements ScheduledTask , Handler.Callback {
      */
     private int mCurrentFrameCount;
 
+    /**
+     * Copy of the states related with time, published by the run loop once per frame under {@link #mStateLock},
+     * so that {@link #saveInstanceState()} called from other threads reads consistent values
+     */
+    private final SchedulersSavedState mPublishedState = new SchedulersSavedState();
+
+    /**
+     * Flags that the run loop is running, and other threads must read {@link #mPublishedState}
+     * instead of the states it writes without the lock
+     */
+    private boolean mStatePublished;
+
     /**
      * Flags that a frame of the run loop is skipped when the regular task is delayed
      */
@@ -172,6 +294,143 @@ public abstract class Scheduler implements ScheduledTask , Handler.Callback {
      */
     private boolean mProcessInTime;
 
+    /**
+     * Time budget of a single regular task (millis)
+     */
+    private long mTickTimeout = TICK_TIMEOUT_NONE;
+
+    /**
+     * Flags that {@link #mBoundThread} is interrupted when a regular task overruns the tick timeout
+     */
+    private boolean mInterruptOnTickTimeout = true;
+
+    /**
+     * Time by which the running regular task must finish, or 0 if no regular task is being watched
+     */
+    private volatile long mTickDeadline;
+
+    /**
+     * Flags that {@link #mBoundThread} has been interrupted by the watchdog during the running regular task
+     */
+    private boolean mTickInterrupted;
+
+    /**
+     * Watchdog of the regular tasks, {@link TickWatchdog#getInstance()} unless set for tests
+     */
+    private TickWatchdog mWatchdog;
+
+    /**
+     * Flags that the run loop is registered to {@link #mWatchdog}
+     */
+    private boolean mTickWatched;
+
+    /**
+     * Token handed to the running regular task, cancelled on timeout or on {@link #cancel()}
+     */
+    private final CancellationToken mTickToken = new CancellationToken();
+
+    /**
+     * Lock that serializes the end of a regular task and the watchdog's timeout handling
+     */
+    private final ReentrantLock mTickLock = new ReentrantLock(false);
+
+    /**
+     * Offset added to every scheduled frame time, used to shift the schedule away from other schedulers
+     */
+    private long mPhaseOffset;
+
+    /**
+     * Flags that {@link #mPhaseOffset} has been set by {@link #setPhaseOffset(long)}
+     */
+    private boolean mPhaseOffsetSet;
+
+    /**
+     * Phase of the schedule relative to the clock's epoch, given by {@link SchedulerEngine}'s spread mode,
+     * or {@link #NO_PHASE_SLOT}
+     */
+    private long mPhaseSlot = NO_PHASE_SLOT;
+
+    /**
+     * Seed of {@link #jitter(int)}, the tag's hash code if tagged, otherwise the identity hash code
+     */
+    private int mJitterSeed = System.identityHashCode(this);
+
+    /**
+     * Upper bound of the random delay added to each scheduled frame time
+     */
+    private long mMaxJitter;
+
+    /**
+     * Priority class used by {@link SchedulerEngine} when the execution capacity is exhausted
+     */
+    private int mPriority = PRIORITY_NORMAL;
+
+    /**
+     * Engine that executes this instance, or null if executed directly
+     */
+    private volatile SchedulerEngine mEngine;
+
+    /**
+     * Log the transitions are recorded into, or null if not recorded
+     */
+    private SchedulerEventLog mEventLog;
+
+    /**
+     * Identifies this instance in {@link #mEventLog}
+     */
+    private int mEventLogId;
+
+    /**
+     * Flags that the regular tasks and the transitions are written as systrace sections
+     */
+    private boolean mTracingEnabled;
+
+    /**
+     * Writes the systrace sections while the task runs, or null if {@link #mTracingEnabled} is not set
+     */
+    @Nullable
+    private SchedulerTrace mTrace;
+
+    /**
+     * Delay of the last regular task from its scheduled time (millis)
+     */
+    private volatile long mLastTickDrift;
+
+    /**
+     * Execution time of the last regular task (millis)
+     */
+    private volatile long mLastTickExecutionTime;
+
+    /**
+     * Time at which the running regular task has been scheduled
+     */
+    private long mTickScheduledTime;
+
+    /**
+     * Number of dry ticks run before the first frame
+     */
+    private int mWarmUpTicks;
+
+    /**
+     * Flags that the dry ticks are running
+     */
+    private boolean mWarmingUp;
+
+    /**
+     * How the schedule is adjusted when the task resumes from a pause
+     */
+    private int mResumePolicy = RESUME_KEEP_SCHEDULE;
+
+    /**
+     * Maximum number of frames replayed on resume by {@link #RESUME_REPLAY}
+     */
+    private int mMaxReplayTicks = DEFAULT_MAX_REPLAY_TICKS;
+
+    /**
+     * Number of frames left to replay without waiting
+     */
+    private int mReplayTicks;
+
     /**
      * Callback interface whose method is called when the task is completed
      */
@@ -196,6 +455,20 @@ public abstract class Scheduler implements ScheduledTask , Handler.Callback {
         void onSkipFrame(@Nullable final Object tag);
     }
 
+    /**
+     * Callback interface whose method is called when the frames missed while paused are dropped on resume
+     */
+    public interface OnFramesDroppedListener {
+        /**
+         * Called once per resume with the number of the dropped frames, however long the pause has been,
+         * and tells the main thread of the drop
+         *
+         * @param tag {@link #mTag} set by {@link #setTag(int)} (Nullable), often used to identify this instance
+         * @param count number of the dropped frames
+         */
+        void onFramesDropped(@Nullable final Object tag, final int count);
+    }
+
     /**
      * Callback interface whose method is called when the task is cancelled
      */
@@ -207,10 +480,22 @@ public abstract class Scheduler implements ScheduledTask , Handler.Callback {
         void onScheduledTaskCancelled(@Nullable final Object tag);
     }
 
+    /**
+     * Callback interface whose method is called when a regular task overruns the tick timeout
+     */
+    public interface OnTickTimeoutListener {
+        /**
+         * Called when a regular task overruns the tick timeout, and tells the main thread of the overrun
+         *
+         * @param tag {@link #mTag} set by {@link #setTag(int)} (Nullable), often used to identify this instance
+         */
+        void onTickTimeout(@Nullable final Object tag);
+    }
+
     /**
      * Represents the state of the task
      */
-    enum State {
+    public enum State {
         /**
          * State of idle
          */
@@ -257,7 +542,7 @@ public abstract class Scheduler implements ScheduledTask , Handler.Callback {
                     "or Scheduler.DURATION_ACTIVE_TIME");
         }
 
-        mInterval = interval;
+        mInterval = mEffectiveInterval = interval;
         mDurationType = durationType;
         mTaskStartedTime = mElapsedFrameTime = mFrameStartedTime = System.currentTimeMillis();
     }
@@ -300,29 +585,59 @@ public abstract class Scheduler implements ScheduledTask , Handler.Callback {
 
     /**
      * Sets interval to {@link Scheduler#mInterval}
+     * While the run loop is running, the change is applied from the next frame,
+     * which is scheduled the new interval after the last scheduled frame
      * @param interval interval of the regular task
      * @return Scheduler's instance
      */
     public Scheduler setInterval(long interval) {
-        if (interval < MINIMUM_INTERVAL) {
-            throw new IllegalArgumentException("interval < " + MINIMUM_INTERVAL  + " : " + interval);
+        mStateLock.lock();
+        try {
+            return reconfigure(interval, mTaskDuration);
+        } finally {
+            mStateLock.unlock();
         }
-
-        mInterval = interval;
-        return this;
     }
 
     /**
      * Sets duration to {@link Scheduler#mTaskDuration}
+     * While the run loop is running, the change is applied from the next frame
      * @param taskDuration duration of the task
      * @return Scheduler's instance
      */
     public Scheduler setTaskDuration(long taskDuration) {
+        mStateLock.lock();
+        try {
+            return reconfigure(mInterval, taskDuration);
+        } finally {
+            mStateLock.unlock();
+        }
+    }
+
+    /**
+     * Sets interval to {@link Scheduler#mInterval} and duration to {@link Scheduler#mTaskDuration} at once,
+     * so that the run loop never applies one without the other
+     * @param interval interval of the regular task
+     * @param taskDuration duration of the task
+     * @return Scheduler's instance
+     */
+    public Scheduler reconfigure(long interval, long taskDuration) {
+        if (interval < MINIMUM_INTERVAL) {
+            throw new IllegalArgumentException("interval < " + MINIMUM_INTERVAL  + " : " + interval);
+        }
+
         if (taskDuration <= INVALID_TIME) {
             throw new IllegalArgumentException("taskDuration < " + INVALID_TIME + " : " + taskDuration);
         }
 
-        mTaskDuration = taskDuration;
+        mStateLock.lock();
+        try {
+            mInterval = interval;
+            mTaskDuration = taskDuration;
+            mReconfigured = true;
+        } finally {
+            mStateLock.unlock();
+        }
         return this;
     }
 
@@ -347,87 +662,470 @@ public abstract class Scheduler implements ScheduledTask , Handler.Callback {
     }
 
     /**
-     * Sets the tag associated with this instance
-     * @param tag tag associated with the instance
+     * Sets clock to {@link Scheduler#mClock} and anchors the schedule to the clock's current time
+     * Must be called before the task starts to run
+     * @param clock source of time of the run loop
      * @return Scheduler's instance
      */
-    public Scheduler setTag(final int tag) {
-        mTag = tag;
+    public Scheduler setClock(SchedulerClock clock) {
+        if (clock == null) {
+            throw new IllegalArgumentException("clock must not be null");
+        }
+
+        mClock = clock;
+        mTaskStartedTime = mElapsedFrameTime = mFrameStartedTime = clock.currentTimeMillis();
         return this;
     }
 
     /**
-     * Sets skipFrameListener to {@link Scheduler#mSkipFrameListener}
-     * @param skipFrameListener callback that will run
+     * Sets callbackExecutor to {@link Scheduler#mCallbackExecutor}
+     * @param callbackExecutor executor on which the callbacks are invoked, or null to invoke them on the main thread
      * @return Scheduler's instance
      */
-    public Scheduler setOnSkipFrameListener(OnSkipFrameListener skipFrameListener) {
-        mSkipFrameListener = skipFrameListener;
+    public Scheduler setCallbackExecutor(@Nullable Executor callbackExecutor) {
+        mCallbackExecutor = callbackExecutor;
         return this;
     }
 
     /**
-     * Sets completionListener to {@link Scheduler#mCompletionListener}
-     * @param completionListener callback that will run
+     * Sets eventLog to {@link Scheduler#mEventLog}
+     * This instance is identified in the log by its tag if set as an int, otherwise by its identity hash code
+     * Must be called before the task starts to run
+     * @param eventLog log the transitions are recorded into, or null not to record them
      * @return Scheduler's instance
      */
-    public Scheduler setOnTaskCompletionListener(OnTaskCompletionListener completionListener) {
-        mCompletionListener = completionListener;
+    public Scheduler setEventLog(@Nullable SchedulerEventLog eventLog) {
+        mEventLog = eventLog;
+        mEventLogId = mTag instanceof Integer ? (Integer) mTag : System.identityHashCode(this);
         return this;
     }
 
     /**
-     * Sets cancelListener to {@link Scheduler#mCancelListener}
-     * @param cancelListener callback that will run
+     * Sets tracingEnabled to {@link Scheduler#mTracingEnabled}
+     * The regular tasks are shown by systrace as sections named after the tag, and the other transitions
+     * as empty sections (API 18 or higher), with the frame count and the drift as counters (API 29 or higher)
+     * Nothing is written while no trace is captured (API 29 or higher)
+     * Must be called before the task starts to run
+     * @param tracingEnabled true to write the sections
      * @return Scheduler's instance
      */
-    public Scheduler setOnTaskCancelListener(OnTaskCancelListener cancelListener) {
-        mCancelListener = cancelListener;
+    public Scheduler setTracingEnabled(boolean tracingEnabled) {
+        mTracingEnabled = tracingEnabled;
         return this;
     }
 
-    @Override
-    public void run() {
-        mBoundThread = Thread.currentThread();
-        mLastTime = System.currentTimeMillis();
-        long deltaTime;
+    /**
+     * Sets resumePolicy to {@link Scheduler#mResumePolicy}
+     * The policy is applied once when the run loop resumes from a pause, only if the process stops while paused
+     * @param resumePolicy {@link #RESUME_KEEP_SCHEDULE}, {@link #RESUME_SHIFT}, {@link #RESUME_SKIP_TO_NOW}
+     *                     or {@link #RESUME_REPLAY}
+     * @return Scheduler's instance
+     */
+    public Scheduler setResumePolicy(int resumePolicy) {
+        if (resumePolicy < RESUME_KEEP_SCHEDULE || resumePolicy > RESUME_REPLAY) {
+            throw new IllegalArgumentException("resumePolicy must be Scheduler.RESUME_KEEP_SCHEDULE, " +
+                    "Scheduler.RESUME_SHIFT, Scheduler.RESUME_SKIP_TO_NOW or Scheduler.RESUME_REPLAY");
+        }
 
-        executeRegularTask();
+        mResumePolicy = resumePolicy;
+        return this;
+    }
 
-        /*
-        the run loop continues while mCurrentState is not State.DESTROYED
-         */
-        while (isAvailable()) {
-            mCurrentFrameCount++;
+    /**
+     * Sets maxReplayTicks to {@link Scheduler#mMaxReplayTicks}
+     * @param maxReplayTicks maximum number of frames replayed on resume by {@link #RESUME_REPLAY}
+     * @return Scheduler's instance
+     */
+    public Scheduler setMaxReplayTicks(int maxReplayTicks) {
+        if (maxReplayTicks < 0) {
+            throw new IllegalArgumentException("maxReplayTicks < 0 : " + maxReplayTicks);
+        }
 
-            if (getCurrentState() == State.CANCELLED) {
-                sendMessage(MSG_TASK_CANCELED);
-                return;
-            }
+        mMaxReplayTicks = maxReplayTicks;
+        return this;
+    }
 
-            stopProcessIfPaused();
+    /**
+     * Sets warmUpTicks to {@link Scheduler#mWarmUpTicks}
+     * The regular task is executed warmUpTicks times when the task starts to run, before the schedule is anchored,
+     * so that the first frames are not late because of code still being interpreted
+     * The dry ticks call the real {@link #executeRegularTask()}, so subclasses whose regular task has side effects
+     * check {@link #isWarmingUp()} to avoid them
+     * The schedule is then moved by whole intervals past the warm-up, so the frames keep their phase
+     * Must be called before the task starts to run
+     * @param warmUpTicks number of dry ticks
+     * @return Scheduler's instance
+     */
+    public Scheduler setWarmUpTicks(int warmUpTicks) {
+        if (warmUpTicks < 0) {
+            throw new IllegalArgumentException("warmUpTicks < 0 : " + warmUpTicks);
+        }
 
-            final long currentTime = System.currentTimeMillis();
-            deltaTime = currentTime - mLastTime;
+        mWarmUpTicks = warmUpTicks;
+        return this;
+    }
 
-            mElapsedActiveTime += deltaTime;
-            mLastTime = currentTime;
-            mElapsedRealTime = mLastTime - mTaskStartedTime;
+    /**
+     * Sets phaseOffset to {@link Scheduler#mPhaseOffset}
+     * The first regular task runs phaseOffset millis after the construction, and the following ones keep the same phase
+     * An offset set explicitly is kept by {@link SchedulerEngine}'s spread mode
+     * @param phaseOffset offset of the schedule (millis)
+     * @return Scheduler's instance
+     */
+    public Scheduler setPhaseOffset(long phaseOffset) {
+        if (phaseOffset < 0) {
+            throw new IllegalArgumentException("phaseOffset < 0 : " + phaseOffset);
+        }
 
-            if (isTimeLeftLessThanInterval()) {
-                sendMessage(MSG_TASK_COMPLETED);
-                return;
-            }
+        mPhaseOffset = phaseOffset;
+        mPhaseOffsetSet = true;
+        mPhaseSlot = NO_PHASE_SLOT;
+        return this;
+    }
+
+    /**
+     * Checks if the phase offset has been set by {@link #setPhaseOffset(long)}
+     * @return true if set explicitly
+     */
+    boolean isPhaseOffsetSet() {
+        return mPhaseOffsetSet;
+    }
+
+    /**
+     * Sets phaseSlot to {@link Scheduler#mPhaseSlot}
+     * The frames are scheduled at the times t where t mod interval == phaseSlot on the clock,
+     * so schedulers anchored at different times share the same slots
+     * @param phaseSlot phase of the schedule relative to the clock's epoch (millis)
+     */
+    void setPhaseSlot(long phaseSlot) {
+        mPhaseSlot = phaseSlot;
+        alignToPhaseSlot();
+    }
+
+    /**
+     * Converts {@link #mPhaseSlot} into the phase offset relative to {@link #mFrameStartedTime}
+     * Called again whenever the schedule is anchored to another time
+     */
+    private void alignToPhaseSlot() {
+        if (mPhaseSlot == NO_PHASE_SLOT) {
+            return;
+        }
+
+        final long interval = mEffectiveInterval;
+        mPhaseOffset = ((mPhaseSlot - mFrameStartedTime) % interval + interval) % interval;
+    }
+
+    /**
+     * Sets maxJitter to {@link Scheduler#mMaxJitter}
+     * Each frame is delayed by a pseudo random time between 0 and maxJitter (capped below the interval),
+     * which is deterministic for a given tag and frame count, and differs between untagged instances
+     * @param maxJitter upper bound of the delay (millis)
+     * @return Scheduler's instance
+     */
+    public Scheduler setJitter(long maxJitter) {
+        if (maxJitter < 0) {
+            throw new IllegalArgumentException("maxJitter < 0 : " + maxJitter);
+        }
+
+        mMaxJitter = maxJitter;
+        return this;
+    }
+
+    /**
+     * Sets priority to {@link Scheduler#mPriority}
+     * @param priority must be {@link #PRIORITY_LOW}, {@link #PRIORITY_NORMAL} or {@link #PRIORITY_HIGH}
+     * @return Scheduler's instance
+     */
+    public Scheduler setPriority(int priority) {
+        if (priority < PRIORITY_LOW || priority > PRIORITY_HIGH) {
+            throw new IllegalArgumentException("priority must be Scheduler.PRIORITY_LOW, " +
+                    "Scheduler.PRIORITY_NORMAL or Scheduler.PRIORITY_HIGH");
+        }
+
+        mPriority = priority;
+        return this;
+    }
+
+    /**
+     * Sets the engine that executes this instance
+     * @param engine engine that executes this instance
+     */
+    void setEngine(SchedulerEngine engine) {
+        mEngine = engine;
+    }
+
+    /**
+     * Sets tickTimeout to {@link Scheduler#mTickTimeout}
+     * A regular task running longer than this is reported and its {@link CancellationToken} is cancelled
+     * @param tickTimeout time budget of a regular task (millis), or {@link #TICK_TIMEOUT_NONE}
+     * @return Scheduler's instance
+     */
+    public Scheduler setTickTimeout(long tickTimeout) {
+        if (tickTimeout < TICK_TIMEOUT_NONE) {
+            throw new IllegalArgumentException("tickTimeout < " + TICK_TIMEOUT_NONE + " : " + tickTimeout);
+        }
+
+        mTickTimeout = tickTimeout;
+        return this;
+    }
+
+    /**
+     * Sets interruptOnTickTimeout to {@link Scheduler#mInterruptOnTickTimeout}
+     * @param interruptOnTickTimeout true to interrupt the bound thread when a regular task overruns the tick timeout
+     * @return Scheduler's instance
+     */
+    public Scheduler allowInterruptOnTickTimeout(boolean interruptOnTickTimeout) {
+        mInterruptOnTickTimeout = interruptOnTickTimeout;
+        return this;
+    }
+
+    /**
+     * Sets watchdog to {@link Scheduler#mWatchdog}
+     * @param watchdog watchdog of the regular tasks
+     */
+    void setWatchdog(TickWatchdog watchdog) {
+        mWatchdog = watchdog;
+    }
+
+    /**
+     * Sets the tag associated with this instance
+     * The tag also identifies this instance in {@link #mEventLog}, whether set before or after it
+     * @param tag tag associated with the instance
+     * @return Scheduler's instance
+     */
+    public Scheduler setTag(final int tag) {
+        mTag = tag;
+        mJitterSeed = tag;
+        mEventLogId = tag;
+        return this;
+    }
+
+    /**
+     * Sets skipFrameListener to {@link Scheduler#mSkipFrameListener}
+     * @param skipFrameListener callback that will run
+     * @return Scheduler's instance
+     */
+    public Scheduler setOnSkipFrameListener(OnSkipFrameListener skipFrameListener) {
+        mSkipFrameListener = skipFrameListener;
+        return this;
+    }
+
+    /**
+     * Sets framesDroppedListener to {@link Scheduler#mFramesDroppedListener}
+     * The frames dropped on resume by {@link #RESUME_SKIP_TO_NOW} and {@link #RESUME_REPLAY}
+     * are reported to it, not to {@link OnSkipFrameListener}
+     * @param framesDroppedListener callback that will run
+     * @return Scheduler's instance
+     */
+    public Scheduler setOnFramesDroppedListener(OnFramesDroppedListener framesDroppedListener) {
+        mFramesDroppedListener = framesDroppedListener;
+        return this;
+    }
+
+    /**
+     * Sets completionListener to {@link Scheduler#mCompletionListener}
+     * @param completionListener callback that will run
+     * @return Scheduler's instance
+     */
+    public Scheduler setOnTaskCompletionListener(OnTaskCompletionListener completionListener) {
+        mCompletionListener = completionListener;
+        return this;
+    }
+
+    /**
+     * Sets cancelListener to {@link Scheduler#mCancelListener}
+     * @param cancelListener callback that will run
+     * @return Scheduler's instance
+     */
+    public Scheduler setOnTaskCancelListener(OnTaskCancelListener cancelListener) {
+        mCancelListener = cancelListener;
+        return this;
+    }
+
+    /**
+     * Sets tickTimeoutListener to {@link Scheduler#mTickTimeoutListener}
+     * @param tickTimeoutListener callback that will run
+     * @return Scheduler's instance
+     */
+    public Scheduler setOnTickTimeoutListener(OnTickTimeoutListener tickTimeoutListener) {
+        mTickTimeoutListener = tickTimeoutListener;
+        return this;
+    }
+
+    @Override
+    public void run() {
+        mStateLock.lock();
+        try {
+            /*
+            keeps the state set before the task has started, e.g. paused
+             */
+            if (mCurrentState == State.IDLED) {
+                mCurrentState = State.RUNNING;
+            }
+        } finally {
+            mStateLock.unlock();
+        }
+
+        mBoundThread = Thread.currentThread();
+        mTrace = mTracingEnabled ? new SchedulerTrace(mTag) : null;
+        mLastTime = mClock.currentTimeMillis();
+        applyConfiguration(false);
+        alignToPhaseSlot();
+
+        final boolean watched = mTickTimeout != TICK_TIMEOUT_NONE;
+        if (watched) {
+            if (mWatchdog == null) {
+                mWatchdog = TickWatchdog.getInstance();
+            }
+            mWatchdog.register(this);
+        }
+        mTickWatched = watched;
+
+        final SchedulerEngine engine = mEngine;
+        if (engine != null) {
+            engine.onRunStarted();
+        }
+
+        SchedulerRegistry.register(this);
+        publishInstanceState();
+        try {
+            warmUp();
+            runLoop();
+        } finally {
+            mStateLock.lock();
+            try {
+                mStatePublished = false;
+            } finally {
+                mStateLock.unlock();
+            }
+            SchedulerRegistry.unregister(this);
+            if (engine != null) {
+                engine.onRunFinished();
+            }
+            if (watched) {
+                mTickWatched = false;
+                mWatchdog.unregister(this);
+            }
+        }
+    }
+
+    /**
+     * Runs {@link #mWarmUpTicks} dry ticks through the same path as the run loop, so that the code is compiled
+     * before the first frame, then moves the schedule by the whole intervals the warm-up has overrun the first frame,
+     * so that the first frame is on time and still on the phase grid
+     */
+    private void warmUp() {
+        if (mWarmUpTicks == 0) {
+            return;
+        }
+
+        mWarmingUp = true;
+        try {
+            for (int i = 0; i < mWarmUpTicks && isAvailable(); i++) {
+                executeTick();
+            }
+        } finally {
+            mWarmingUp = false;
+        }
+
+        final long lateness = mClock.currentTimeMillis() - (mFrameStartedTime + mPhaseOffset);
+        if (lateness <= 0) {
+            return;
+        }
+
+        final long interval = mEffectiveInterval;
+        final long shift = (lateness + interval - 1) / interval * interval;
+        mTaskStartedTime += shift;
+        mFrameStartedTime += shift;
+        mLastTime += shift;
+    }
+
+    /**
+     * Runs the regular tasks until the task is destroyed, cancelled or completed
+     */
+    private void runLoop() {
+        long deltaTime;
+
+        /*
+        a task started while paused runs no frame until resumed
+         */
+        stopProcessIfPaused();
+        if (getCurrentState() == State.CANCELLED) {
+            sendMessage(MSG_TASK_CANCELED);
+            return;
+        }
+
+        if (!isAvailable()) {
+            return;
+        }
+
+        /*
+        waits for the phase of the first frame
+         */
+        final long firstFrameDelay = mFrameStartedTime + scheduledFrameTime(0) - mClock.currentTimeMillis();
+        if (firstFrameDelay > 0) {
+            sleep(firstFrameDelay);
+        }
+
+        publishInstanceState();
+        dispatchTick(0);
+
+        /*
+        the run loop continues while mCurrentState is not State.DESTROYED
+         */
+        while (isAvailable()) {
+            mCurrentFrameCount++;
+
+            stopProcessIfPaused();
+
+            /*
+            the task may have been cancelled or released while paused
+             */
+            if (getCurrentState() == State.CANCELLED) {
+                sendMessage(MSG_TASK_CANCELED);
+                return;
+            }
+
+            if (!isAvailable()) {
+                return;
+            }
+
+            if (mReconfigured || isEngineReconfigured()) {
+                applyConfiguration(true);
+            }
+
+            final long currentTime = mClock.currentTimeMillis();
+            deltaTime = currentTime - mLastTime;
+
+            mElapsedActiveTime += deltaTime;
+            mLastTime = currentTime;
+            mElapsedRealTime = mLastTime - mTaskStartedTime;
+
+            if (isTimeLeftLessThanInterval()) {
+                logEvent(SchedulerEventLog.EVENT_COMPLETE, 0);
+                sendMessage(MSG_TASK_COMPLETED);
+                return;
+            }
 
             /*
             calculates the threshold that indicates the current frame is in time
              */
             mElapsedFrameTime = currentTime - mFrameStartedTime;
-            final long threshold = mInterval * mCurrentFrameCount;
+            final long threshold = scheduledFrameTime(mCurrentFrameCount);
             mProcessInTime = mElapsedFrameTime <= threshold;
+            publishInstanceState();
+
+            /*
+            replays a frame missed while paused without waiting
+             */
+            if (mReplayTicks > 0) {
+                mReplayTicks--;
+                dispatchTick(mCurrentFrameCount);
+                continue;
+            }
 
             if (!mProcessInTime && mSkipFrameWhenDelayed) {
-                sendMessage(MSG_SKIP_FRAME);
+                skipFrame(LoadMonitor.SKIPPED);
                 continue;
             }
 
@@ -439,9 +1137,317 @@ public abstract class Scheduler implements ScheduledTask , Handler.Callback {
             /*
             executes the regular task overridden by the subclass
              */
+            dispatchTick(mCurrentFrameCount);
+        }
+
+    }
+
+    /**
+     * Checks if {@link #mEngine}'s configuration has been changed since the run loop last applied it
+     * @return true if changed
+     */
+    private boolean isEngineReconfigured() {
+        final SchedulerEngine engine = mEngine;
+        return engine != null && engine.getConfigVersion() != mEngineConfigVersion;
+    }
+
+    /**
+     * Applies {@link #mInterval} and {@link #mTaskDuration} changed by {@link #reconfigure(long, long)}
+     * and {@link #mEngine}'s interval scale
+     * @param reanchor true to re-anchor the schedule at the last scheduled frame, so that the next frame comes
+     *                 the new interval after it instead of rescheduling the whole run from {@link #mFrameStartedTime}
+     */
+    private void applyConfiguration(boolean reanchor) {
+        final SchedulerEngine engine = mEngine;
+        final long interval;
+
+        mStateLock.lock();
+        try {
+            mReconfigured = false;
+            interval = mInterval;
+        } finally {
+            mStateLock.unlock();
+        }
+
+        /*
+        reads the version before the scale, so that a concurrent change is applied again on the next frame
+         */
+        double scale = 1;
+        if (engine != null) {
+            mEngineConfigVersion = engine.getConfigVersion();
+            scale = engine.getIntervalScale();
+        }
+
+        final long effectiveInterval = Math.max(MINIMUM_INTERVAL, Math.round(interval * scale));
+        if (reanchor && mCurrentFrameCount > 0) {
+            /*
+            keeps the frame before the current one at the same time under the new interval
+             */
+            mFrameStartedTime += (mEffectiveInterval - effectiveInterval) * (mCurrentFrameCount - 1);
+        }
+        mEffectiveInterval = effectiveInterval;
+    }
+
+    /**
+     * Executes the regular task of the frame once {@link #mEngine} grants the execution capacity,
+     * or skips the frame if the engine sheds it
+     * @param frameCount frame count in the run loop
+     */
+    private void dispatchTick(int frameCount) {
+        final long scheduledTime = mFrameStartedTime + scheduledFrameTime(frameCount);
+        final SchedulerEngine engine = mEngine;
+        if (engine == null) {
+            runTick(frameCount, scheduledTime);
+            return;
+        }
+
+        /*
+        the engine under load degrades the lower priority classes
+         */
+        if (mSkipFrameWhenDelayed && engine.isDegraded(mPriority)) {
+            skipFrame(LoadMonitor.SHED);
+            return;
+        }
+
+        final TickDispatcher dispatcher = engine.getTickDispatcher();
+        if (dispatcher != null && !dispatcher.acquire(this, scheduledTime)) {
+            skipFrame(LoadMonitor.SHED);
+            return;
+        }
+
+        engine.recordTick(LoadMonitor.EXECUTED);
+
+        try {
+            runTick(frameCount, scheduledTime);
+        } finally {
+            if (dispatcher != null) {
+                dispatcher.release();
+            }
+        }
+    }
+
+    /**
+     * Skips the regular task of the current frame and tells the listener and the engine
+     * @param kind {@link LoadMonitor#SKIPPED} if the frame is late,
+     *             {@link LoadMonitor#SHED} if the engine has degraded or shed it
+     */
+    private void skipFrame(int kind) {
+        logEvent(SchedulerEventLog.EVENT_SKIP, 1);
+        final SchedulerEngine engine = mEngine;
+        if (engine != null) {
+            engine.recordTick(kind);
+        }
+        sendMessage(MSG_SKIP_FRAME);
+    }
+
+    /**
+     * Drops the frames missed while paused, logged as one event and reported as one message
+     * The engine is not told, the frames have not been skipped for the lack of the execution capacity
+     * @param count number of frames dropped
+     */
+    private void dropFrames(int count) {
+        logEvent(SchedulerEventLog.EVENT_SKIP, count);
+        sendMessage(MSG_FRAMES_DROPPED, count);
+    }
+
+    /**
+     * Executes the regular task, recording its drift and execution time
+     * @param frameCount frame count in the run loop
+     * @param scheduledTime time at which the regular task is scheduled
+     */
+    private void runTick(int frameCount, long scheduledTime) {
+        final long startTime = mClock.currentTimeMillis();
+        mTickScheduledTime = scheduledTime;
+        mLastTickDrift = startTime - scheduledTime;
+        logEvent(SchedulerEventLog.EVENT_TICK, scheduledTime);
+
+        final SchedulerTrace trace = mTrace;
+        final boolean traced = trace != null && trace.beginTick(frameCount, mLastTickDrift);
+
+        try {
+            executeTick();
+        } finally {
+            mLastTickExecutionTime = mClock.currentTimeMillis() - startTime;
+            if (traced) {
+                trace.endTick();
+            }
+        }
+    }
+
+    /**
+     * Calls {@link #executeRegularTask()} under the watch of {@link TickWatchdog} when the tick timeout is set
+     */
+    private void executeTick() {
+        /*
+        a tick timeout set after the start of the run loop applies from the next run
+         */
+        final boolean watched = mTickWatched && mTickTimeout != TICK_TIMEOUT_NONE;
+        if (watched) {
+            startTickDeadline();
+        }
+
+        /*
+        the only call site of the regular task, shared by the warm-up and the run loop
+         */
+        try {
             executeRegularTask();
+        } finally {
+            if (watched) {
+                finishTickDeadline();
+            }
+        }
+    }
+
+    /**
+     * Sets the deadline of the regular task about to run for {@link TickWatchdog}
+     */
+    private void startTickDeadline() {
+        final TickWatchdog watchdog = mWatchdog;
+        final long deadline = watchdog.currentTimeMillis() + mTickTimeout;
+        mTickLock.lock();
+        try {
+            mTickToken.reset();
+            if (getCurrentState() == State.CANCELLED) {
+                mTickToken.cancel();
+            }
+            mTickDeadline = deadline;
+        } finally {
+            mTickLock.unlock();
+        }
+
+        /*
+        called outside mTickLock, the watchdog calls checkTickDeadline() while holding its own lock
+         */
+        watchdog.onDeadlineSet(deadline);
+    }
+
+    /**
+     * Clears the deadline set by {@link #startTickDeadline()} once the regular task has finished
+     */
+    private void finishTickDeadline() {
+        mTickLock.lock();
+        try {
+            mTickDeadline = 0;
+
+            /*
+            clears the interruption by the watchdog so that it does not leak into the next frame,
+            an interruption from anything else is left to the caller
+             */
+            if (mTickInterrupted) {
+                mTickInterrupted = false;
+                Thread.interrupted();
+            }
+        } finally {
+            mTickLock.unlock();
         }
+    }
 
+    /**
+     * Called by {@link TickWatchdog} to time out the running regular task if it has overrun its deadline
+     * @param currentTime current time of the watchdog
+     * @return deadline of the running regular task if it has not passed yet, or 0
+     */
+    long checkTickDeadline(long currentTime) {
+        final long deadline = mTickDeadline;
+        if (deadline == 0 || currentTime < deadline) {
+            return deadline;
+        }
+
+        mTickLock.lock();
+        try {
+            /*
+            the regular task may have finished while the lock was being acquired
+             */
+            if (mTickDeadline != deadline) {
+                return mTickDeadline;
+            }
+
+            mTickDeadline = 0;
+            mTickToken.cancel();
+            if (mInterruptOnTickTimeout && mBoundThread != null) {
+                mTickInterrupted = true;
+                mBoundThread.interrupt();
+            }
+        } finally {
+            mTickLock.unlock();
+        }
+
+        logEvent(SchedulerEventLog.EVENT_TIMEOUT, deadline);
+        sendMessage(MSG_TICK_TIMEOUT);
+        return 0;
+    }
+
+    /**
+     * Records the event into {@link #mEventLog} if set, and writes it as a systrace section if enabled
+     * @param type one of SchedulerEventLog's EVENT_ constants
+     * @param value meaning depends on the type
+     */
+    private void logEvent(int type, long value) {
+        final SchedulerEventLog eventLog = mEventLog;
+        if (eventLog != null) {
+            eventLog.record(mEventLogId, type, mClock.currentTimeMillis(), mCurrentFrameCount, value);
+        }
+
+        /*
+        ticks are written as sections lasting as long as the regular task by runTick
+         */
+        final SchedulerTrace trace = mTrace;
+        if (trace != null && type != SchedulerEventLog.EVENT_TICK) {
+            trace.instant(type, mCurrentFrameCount);
+        }
+    }
+
+    /**
+     * Takes a snapshot of this instance for {@link SchedulerRegistry}
+     * Called from threads other than {@link #mBoundThread}, so the values may be a frame apart from each other
+     * @return snapshot of this instance
+     */
+    SchedulerInfo createInfo() {
+        final Thread boundThread = mBoundThread;
+
+        final long timeLeft;
+        if (mTaskDuration == TASK_DURATION_INFINITE) {
+            timeLeft = INVALID_TIME;
+        } else if (mDurationType == DURATION_REAL_TIME) {
+            timeLeft = Math.max(0, mTaskDuration - mElapsedRealTime);
+        } else {
+            timeLeft = Math.max(0, mTaskDuration - mElapsedActiveTime);
+        }
+
+        return new SchedulerInfo(mTag, getCurrentState(), boundThread != null ? boundThread.getName() : null,
+                mEffectiveInterval, timeLeft, mCurrentFrameCount, mLastTickDrift, mLastTickExecutionTime);
+    }
+
+    /**
+     * Calculates the time at which the frame is scheduled, relative to {@link #mFrameStartedTime}
+     * @param frameCount frame count in the run loop
+     * @return scheduled time of the frame including the phase offset and the jitter (millis)
+     */
+    long scheduledFrameTime(int frameCount) {
+        return mPhaseOffset + mEffectiveInterval * frameCount + jitter(frameCount);
+    }
+
+    /**
+     * Calculates the jitter of the frame from the tag and the frame count,
+     * so that the same tag always produces the same schedule, and untagged instances do not run in lockstep
+     * @param frameCount frame count in the run loop
+     * @return delay between 0 and min({@link #mMaxJitter}, {@link #mEffectiveInterval} - 1)
+     */
+    private long jitter(int frameCount) {
+        final long bound = Math.min(mMaxJitter, mEffectiveInterval - 1);
+        if (bound <= 0) {
+            return 0;
+        }
+
+        /*
+        mixes the tag and the frame count (SplitMix64 finalizer)
+         */
+        long z = (mJitterSeed * 0x9E3779B97F4A7C15L) + frameCount * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        z = z ^ (z >>> 31);
+
+        return (z >>> 1) % (bound + 1);
     }
 
     /**
@@ -466,7 +1472,7 @@ public abstract class Scheduler implements ScheduledTask , Handler.Callback {
             timeLeft = mTaskDuration - mElapsedActiveTime;
         }
 
-        if (timeLeft < mInterval) {
+        if (timeLeft < mEffectiveInterval) {
             if (timeLeft > 0) {
 
                 /*
@@ -497,40 +1503,120 @@ public abstract class Scheduler implements ScheduledTask , Handler.Callback {
      */
     private void stopProcessIfPaused() {
         if (mStopProcessWhilePaused) {
+            long pausedTime = INVALID_TIME;
             mStateLock.lock();
             try {
+                if (mCurrentState == State.PAUSED) {
+                    pausedTime = mClock.currentTimeMillis();
+                }
                 while (mCurrentState == State.PAUSED) {
-                    mStateCondition.await();
-                    mLastTime = System.currentTimeMillis();
+                    mClock.await(mStateCondition);
+                    mLastTime = mClock.currentTimeMillis();
                 }
             } catch (InterruptedException e) {
                 e.printStackTrace();
+                return;
             } finally {
                 mStateLock.unlock();
             }
+
+            if (pausedTime != INVALID_TIME) {
+                applyResumePolicy(mLastTime - pausedTime);
+            }
         }
     }
 
     /**
-     * Sends a message to the main thread via {@link #mHandler}
+     * Adjusts the schedule according to {@link #mResumePolicy} in one step, so that the frames missed
+     * while paused are not found late one by one
+     * @param pausedDuration time the run loop has been stopped (millis)
+     */
+    private void applyResumePolicy(long pausedDuration) {
+        if (mResumePolicy == RESUME_KEEP_SCHEDULE) {
+            return;
+        }
+
+        if (mResumePolicy == RESUME_SHIFT) {
+            mFrameStartedTime += pausedDuration;
+            return;
+        }
+
+        /*
+        the first frame whose scheduled time, without the jitter, has not passed yet
+         */
+        final long elapsedFrameTime = mLastTime - mFrameStartedTime - mPhaseOffset;
+        final long interval = mEffectiveInterval;
+        final long nextFrame = elapsedFrameTime <= 0 ? 0 : (elapsedFrameTime + interval - 1) / interval;
+        final int missedFrames = (int) Math.min(Integer.MAX_VALUE, nextFrame - mCurrentFrameCount);
+        if (missedFrames <= 0) {
+            return;
+        }
+
+        final int replayTicks = mResumePolicy == RESUME_REPLAY ? Math.min(missedFrames, mMaxReplayTicks) : 0;
+        final int droppedFrames = missedFrames - replayTicks;
+        if (droppedFrames > 0) {
+            dropFrames(droppedFrames);
+        }
+        mCurrentFrameCount += droppedFrames;
+        mReplayTicks = replayTicks;
+    }
+
+    /**
+     * Posts the callback to the main thread via {@link #mHandler}, or to {@link #mCallbackExecutor} if set
+     * Used by subclasses to deliver their own results the same way as the listeners of this class
+     * @param callback callback to run
+     */
+    protected void postCallback(Runnable callback) {
+        final Executor callbackExecutor = mCallbackExecutor;
+        if (callbackExecutor != null) {
+            callbackExecutor.execute(callback);
+            return;
+        }
+
+        mHandler.post(callback);
+    }
+
+    /**
+     * Sends a message to the main thread via {@link #mHandler}, or to {@link #mCallbackExecutor} if set
      * @param what integer that is set to {@link Message#what} when {@link #mHandler#sendMessage(int)} is called
      *
      * @see OnSkipFrameListener#onSkipFrame(Object)
      * @see OnTaskCompletionListener#onScheduledTaskCompleted(Object)
      */
     private void sendMessage(int what) {
+        sendMessage(what, 1);
+    }
+
+    /**
+     * Sends a message to the main thread via {@link #mHandler}, or to {@link #mCallbackExecutor} if set
+     * @param what integer that is set to {@link Message#what} when {@link #mHandler#sendMessage(int)} is called
+     * @param count value passed on to the callback method, set to {@link Message#arg1}
+     */
+    private void sendMessage(final int what, final int count) {
+        final Executor callbackExecutor = mCallbackExecutor;
+        if (callbackExecutor != null) {
+            callbackExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    dispatchMessage(what, count);
+                }
+            });
+            return;
+        }
+
         Message msg = Message.obtain();
         msg.what = what;
+        msg.arg1 = count;
         mHandler.sendMessage(msg);
     }
 
     /**
-     * Calls {@link Thread#sleep(long)}
+     * Calls {@link SchedulerClock#sleep(long)}
      * @param millis sleep milliseconds
      */
     private void sleep(long millis) {
         try {
-            Thread.sleep(millis);
+            mClock.sleep(millis);
         } catch (InterruptedException e) {
             e.printStackTrace();
         }
@@ -544,10 +1630,20 @@ public abstract class Scheduler implements ScheduledTask , Handler.Callback {
 
     @Override
     public boolean handleMessage(Message msg) {
+        return dispatchMessage(msg.what, msg.arg1);
+    }
+
+    /**
+     * Calls the callback method according to the message
+     * @param what {@link Message#what} of the message
+     * @param count {@link Message#arg1} of the message, number of frames dropped for {@link #MSG_FRAMES_DROPPED}
+     * @return true if a callback method has been called
+     */
+    private boolean dispatchMessage(int what, int count) {
         /*
-        calls callback methods according to msg.what
+        calls callback methods according to what
          */
-        switch (msg.what) {
+        switch (what) {
             case MSG_SKIP_FRAME :
                 if (mSkipFrameListener != null) {
                     mSkipFrameListener.onSkipFrame(mTag);
@@ -555,6 +1651,13 @@ public abstract class Scheduler implements ScheduledTask , Handler.Callback {
                 }
                 return false;
 
+            case MSG_FRAMES_DROPPED :
+                if (mFramesDroppedListener != null) {
+                    mFramesDroppedListener.onFramesDropped(mTag, count);
+                    return true;
+                }
+                return false;
+
             case MSG_TASK_COMPLETED :
                 if (mCompletionListener != null) {
                     mCompletionListener.onScheduledTaskCompleted(mTag);
@@ -569,6 +1672,13 @@ public abstract class Scheduler implements ScheduledTask , Handler.Callback {
                 }
                 return false;
 
+            case MSG_TICK_TIMEOUT :
+                if (mTickTimeoutListener != null) {
+                    mTickTimeoutListener.onTickTimeout(mTag);
+                    return true;
+                }
+                return false;
+
             default:
                 return false;
         }
@@ -582,6 +1692,7 @@ public abstract class Scheduler implements ScheduledTask , Handler.Callback {
         } finally {
             mStateLock.unlock();
         }
+        logEvent(SchedulerEventLog.EVENT_PAUSE, 0);
     }
 
     @Override
@@ -593,6 +1704,7 @@ public abstract class Scheduler implements ScheduledTask , Handler.Callback {
         } finally {
             mStateLock.unlock();
         }
+        logEvent(SchedulerEventLog.EVENT_RESUME, 0);
     }
 
     @Override
@@ -600,9 +1712,15 @@ public abstract class Scheduler implements ScheduledTask , Handler.Callback {
         mStateLock.lock();
         try {
             mCurrentState = State.DESTROYED;
+
+            /*
+            wakes up the run loop if paused, so that its thread is not kept forever
+             */
+            mStateCondition.signalAll();
         } finally {
             mStateLock.unlock();
         }
+        logEvent(SchedulerEventLog.EVENT_RELEASE, 0);
     }
 
     @Override
@@ -610,9 +1728,16 @@ public abstract class Scheduler implements ScheduledTask , Handler.Callback {
         mStateLock.lock();
         try {
             mCurrentState = State.CANCELLED;
+            mStateCondition.signalAll();
         } finally {
             mStateLock.unlock();
         }
+        logEvent(SchedulerEventLog.EVENT_CANCEL, 0);
+
+        /*
+        asks the running regular task to stop cooperatively
+         */
+        mTickToken.cancel();
     }
 
     /**
@@ -621,14 +1746,47 @@ public abstract class Scheduler implements ScheduledTask , Handler.Callback {
      */
     public SchedulersSavedState saveInstanceState() {
         SchedulersSavedState savedState = new SchedulersSavedState();
+        mStateLock.lock();
+        try {
+            if (mStatePublished && Thread.currentThread() != mBoundThread) {
+                /*
+                the run loop is running on another thread, so its last published states are saved
+                 */
+                savedState.set(mPublishedState);
+            } else {
+                writeInstanceState(savedState);
+            }
+        } finally {
+            mStateLock.unlock();
+        }
+
+        return savedState;
+    }
+
+    /**
+     * Copies the states related with time into {@link #mPublishedState}, called on the run loop's thread
+     */
+    private void publishInstanceState() {
+        mStateLock.lock();
+        try {
+            writeInstanceState(mPublishedState);
+            mStatePublished = true;
+        } finally {
+            mStateLock.unlock();
+        }
+    }
+
+    /**
+     * Writes the current states related with time into the saved state
+     * @param savedState {@link SchedulersSavedState} into which the states are written
+     */
+    private void writeInstanceState(SchedulersSavedState savedState) {
         savedState.setTaskStartedTime(mTaskStartedTime);
         savedState.setElapsedRealTime(mElapsedRealTime);
         savedState.setElapsedActiveTime(mElapsedActiveTime);
         savedState.setFrameStartedTime(mFrameStartedTime);
         savedState.setCurrentFrameTime(mElapsedFrameTime);
         savedState.setCurrentFrameCount(mCurrentFrameCount);
-
-        return savedState;
     }
 
     /**
@@ -644,6 +1802,81 @@ public abstract class Scheduler implements ScheduledTask , Handler.Callback {
         mCurrentFrameCount = savedState.getCurrentFrameCount();
     }
 
+    /**
+     * Getter
+     * Regular tasks should check {@link CancellationToken#isCancelled()} and return early once it is cancelled
+     * @return the token of the running regular task
+     */
+    protected CancellationToken getTickCancellationToken() {
+        return mTickToken;
+    }
+
+    /**
+     * Getter
+     * @return the tag associated with this instance (Nullable)
+     */
+    @Nullable
+    public Object getTag() {
+        return mTag;
+    }
+
+    /**
+     * Getter
+     * @return the interval of the regular task
+     */
+    public long getInterval() {
+        return mInterval;
+    }
+
+    /**
+     * Getter, called from {@link #executeRegularTask()}
+     * @return true if the regular task is a dry tick of the warm-up
+     */
+    protected boolean isWarmingUp() {
+        return mWarmingUp;
+    }
+
+    /**
+     * Getter, called from {@link #executeRegularTask()}
+     * @return the time at which the running regular task has been scheduled, which is earlier than the current time
+     * when the regular task is late
+     */
+    protected long getScheduledTime() {
+        return mTickScheduledTime;
+    }
+
+    /**
+     * Getter
+     * @return the interval the run loop schedules the frames with, scaled by the engine
+     */
+    long getEffectiveInterval() {
+        return mEffectiveInterval;
+    }
+
+    /**
+     * Getter
+     * @return the priority class of this instance
+     */
+    public int getPriority() {
+        return mPriority;
+    }
+
+    /**
+     * Getter
+     * @return the source of time of the run loop
+     */
+    SchedulerClock getClock() {
+        return mClock;
+    }
+
+    /**
+     * Getter
+     * @return true if a frame of the run loop is skipped when delayed
+     */
+    boolean isSkipFrameAllowed() {
+        return mSkipFrameWhenDelayed;
+    }
+
     /**
      * Getter
      * @return the thread this task is bound to
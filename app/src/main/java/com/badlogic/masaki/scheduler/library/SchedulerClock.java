@@ -0,0 +1,30 @@
+package com.badlogic.masaki.scheduler.library;
+
+import java.util.concurrent.locks.Condition;
+
+/**
+ * An interface that represents the source of time and the way of waiting used by {@link Scheduler}'s run loop
+ * Replaced by a virtual clock to drive the run loop deterministically
+ */
+public interface SchedulerClock {
+    /**
+     * Used to get the current time
+     * @return current time (millis)
+     */
+    long currentTimeMillis();
+
+    /**
+     * Used to wait until the time has passed
+     * @param millis time to wait (millis), nothing happens if equal to or less than 0
+     * @throws InterruptedException if the waiting thread is interrupted
+     */
+    void sleep(long millis) throws InterruptedException;
+
+    /**
+     * Used to wait until the condition is signalled
+     * Called while the lock of the condition is held
+     * @param condition condition to wait for
+     * @throws InterruptedException if the waiting thread is interrupted
+     */
+    void await(Condition condition) throws InterruptedException;
+}
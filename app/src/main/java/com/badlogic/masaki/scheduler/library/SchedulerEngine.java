@@ -0,0 +1,503 @@
+package com.badlogic.masaki.scheduler.library;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Class that runs {@link Scheduler}s on a shared {@link Executor}
+ * In spread mode, schedulers with the same interval get phases distributed evenly across the interval,
+ * relative to the clock's epoch so that schedulers created at different times share the same slots,
+ * and do not all run their regular tasks in the same millisecond
+ * A phase offset set explicitly by {@link Scheduler#setPhaseOffset(long)} is kept
+ * When the number of concurrent regular tasks is limited, they are dispatched by priority class
+ * then earliest deadline first, and the lower priority classes are shed first under overload
+ * The intervals of all the schedulers can be scaled at once, e.g. to slow everything down under load
+ * With an {@link AdmissionController}, the engine's load is evaluated as the regular tasks run,
+ * and new schedulers are admitted, deferred or rejected, and the low priority ones degraded, accordingly
+ * The deferred schedulers are submitted again on the engine's own thread, never on a run loop's thread
+ */
+public class SchedulerEngine {
+
+    public static final String TAG = SchedulerEngine.class.getSimpleName();
+
+    /**
+     * Default length of the window the skip rate is measured over (millis)
+     */
+    public static final long DEFAULT_LOAD_WINDOW = 1000;
+
+    /**
+     * Executor on which the schedulers' run loops are executed
+     */
+    private final Executor mExecutor;
+
+    /**
+     * Flags that the phase offsets of the schedulers are spread across their interval
+     */
+    private boolean mSpreadEnabled;
+
+    /**
+     * Number of schedulers spread so far per interval
+     */
+    private final Map<Long, Integer> mSpreadCounts = new HashMap<>();
+
+    /**
+     * Limits the number of concurrent regular tasks, or null if unlimited
+     */
+    private volatile TickDispatcher mTickDispatcher;
+
+    /**
+     * Factor the intervals of the schedulers are multiplied by
+     */
+    private volatile double mIntervalScale = 1;
+
+    /**
+     * Incremented whenever the configuration shared by the schedulers changes,
+     * so that each run loop applies it on its next frame without the engine visiting the schedulers
+     */
+    private volatile int mConfigVersion;
+
+    /**
+     * Source of time of the load metric
+     */
+    private volatile SchedulerClock mClock = SystemSchedulerClock.INSTANCE;
+
+    /**
+     * Counts the regular tasks executed and skipped over the load window
+     */
+    private volatile LoadMonitor mLoadMonitor = new LoadMonitor(DEFAULT_LOAD_WINDOW);
+
+    /**
+     * Decides on the schedulers submitted under load, or null to admit all
+     */
+    private volatile AdmissionController mAdmissionController;
+
+    /**
+     * Lowest priority whose regular tasks are executed, decided by {@link #mAdmissionController}
+     */
+    private volatile int mDegradedPriority = Scheduler.PRIORITY_LOW;
+
+    /**
+     * Schedulers deferred by {@link #mAdmissionController}, guarded by this instance
+     */
+    private final ArrayDeque<Scheduler> mDeferredSchedulers = new ArrayDeque<>();
+
+    /**
+     * Thread on which the deferred schedulers are submitted again, created on the first deferral,
+     * guarded by this instance
+     */
+    private ScheduledThreadPoolExecutor mEvaluator;
+
+    /**
+     * Periodic evaluation of the load while schedulers are deferred, or null, guarded by this instance
+     */
+    private ScheduledFuture<?> mEvaluation;
+
+    /**
+     * Evaluates the load on {@link #mEvaluator}
+     */
+    private final Runnable mEvaluateTask = new Runnable() {
+        @Override
+        public void run() {
+            evaluateLoad();
+        }
+    };
+
+    /**
+     * Number of schedulers rejected by {@link #mAdmissionController}, guarded by this instance
+     */
+    private long mRejectedCount;
+
+    /**
+     * Number of schedulers whose run loop is running
+     */
+    private final AtomicInteger mRunningSchedulers = new AtomicInteger();
+
+    /**
+     * Constructor
+     *
+     * @param executor executor on which the schedulers' run loops are executed
+     */
+    public SchedulerEngine(Executor executor) {
+        if (executor == null) {
+            throw new IllegalArgumentException("executor must not be null");
+        }
+
+        mExecutor = executor;
+    }
+
+    /**
+     * Sets spreadEnabled to {@link SchedulerEngine#mSpreadEnabled}
+     * @param spreadEnabled true to spread the phase offsets of schedulers with the same interval
+     * @return SchedulerEngine's instance
+     */
+    public SchedulerEngine setSpreadEnabled(boolean spreadEnabled) {
+        mSpreadEnabled = spreadEnabled;
+        return this;
+    }
+
+    /**
+     * Limits the number of regular tasks executed at the same time across the engine
+     * Must be called before the schedulers are executed
+     * @param maxConcurrentTicks maximum number of concurrent regular tasks
+     * @return SchedulerEngine's instance
+     */
+    public SchedulerEngine setMaxConcurrentTicks(int maxConcurrentTicks) {
+        if (maxConcurrentTicks < 1) {
+            throw new IllegalArgumentException("maxConcurrentTicks < 1 : " + maxConcurrentTicks);
+        }
+
+        mTickDispatcher = new TickDispatcher(maxConcurrentTicks);
+        return this;
+    }
+
+    /**
+     * Sets intervalScale to {@link SchedulerEngine#mIntervalScale}
+     * Each running scheduler applies the scale on its next frame, keeping its last scheduled frame in place,
+     * so the cost of the change does not depend on the number of schedulers
+     * @param intervalScale factor the intervals are multiplied by, greater than 1 to slow down
+     * @return SchedulerEngine's instance
+     */
+    public SchedulerEngine setIntervalScale(double intervalScale) {
+        if (!(intervalScale > 0) || Double.isInfinite(intervalScale)) {
+            throw new IllegalArgumentException("intervalScale <= 0 : " + intervalScale);
+        }
+
+        synchronized (this) {
+            mIntervalScale = intervalScale;
+            mConfigVersion++;
+        }
+        return this;
+    }
+
+    /**
+     * Getter
+     * @return the factor the intervals of the schedulers are multiplied by
+     */
+    public double getIntervalScale() {
+        return mIntervalScale;
+    }
+
+    /**
+     * Getter
+     * @return the version of the configuration shared by the schedulers
+     */
+    int getConfigVersion() {
+        return mConfigVersion;
+    }
+
+    /**
+     * Sets admissionController to {@link SchedulerEngine#mAdmissionController}
+     * @param admissionController controller deciding on the schedulers submitted under load, or null to admit all
+     * @return SchedulerEngine's instance
+     */
+    public SchedulerEngine setAdmissionController(AdmissionController admissionController) {
+        mAdmissionController = admissionController;
+        if (admissionController == null) {
+            mDegradedPriority = Scheduler.PRIORITY_LOW;
+        }
+        return this;
+    }
+
+    /**
+     * Sets the length of the window the skip rate is measured over
+     * Must be called before the schedulers are executed
+     * @param loadWindow length of the window (millis)
+     * @return SchedulerEngine's instance
+     */
+    public SchedulerEngine setLoadWindow(long loadWindow) {
+        if (loadWindow < LoadMonitor.BUCKET_COUNT) {
+            throw new IllegalArgumentException("loadWindow < " + LoadMonitor.BUCKET_COUNT + " : " + loadWindow);
+        }
+
+        mLoadMonitor = new LoadMonitor(loadWindow);
+        return this;
+    }
+
+    /**
+     * Sets clock to {@link SchedulerEngine#mClock}, e.g. the clock the schedulers run on in a simulation
+     * Must be called before the schedulers are executed
+     * @param clock source of time of the load metric
+     * @return SchedulerEngine's instance
+     */
+    public SchedulerEngine setClock(SchedulerClock clock) {
+        if (clock == null) {
+            throw new IllegalArgumentException("clock == null");
+        }
+
+        mClock = clock;
+        return this;
+    }
+
+    /**
+     * Submits the scheduler, which is executed on {@link #mExecutor} unless
+     * {@link #mAdmissionController} defers or rejects it
+     * A deferred scheduler is submitted again periodically until admitted or rejected
+     * @param scheduler scheduler to execute
+     * @return {@link AdmissionController#ADMIT} if the scheduler has been executed,
+     * {@link AdmissionController#DEFER} or {@link AdmissionController#REJECT}
+     */
+    public int execute(Scheduler scheduler) {
+        final AdmissionController controller = mAdmissionController;
+        if (controller != null) {
+            final int decision;
+            synchronized (this) {
+                decision = controller.onSubmit(scheduler, getLoad());
+                if (decision == AdmissionController.DEFER) {
+                    mDeferredSchedulers.add(scheduler);
+                    scheduleEvaluation();
+                } else if (decision == AdmissionController.REJECT) {
+                    mRejectedCount++;
+                }
+            }
+
+            if (decision != AdmissionController.ADMIT) {
+                return decision;
+            }
+        }
+
+        executeNow(scheduler);
+        return AdmissionController.ADMIT;
+    }
+
+    /**
+     * Executes the scheduler's run loop on {@link #mExecutor}
+     * @param scheduler scheduler to execute
+     */
+    private void executeNow(Scheduler scheduler) {
+        if (mSpreadEnabled && !scheduler.isPhaseOffsetSet()) {
+            scheduler.setPhaseSlot(nextSpreadOffset(scheduler.getInterval()));
+        }
+
+        scheduler.setEngine(this);
+        mExecutor.execute(scheduler);
+    }
+
+    /**
+     * Getter
+     * @param priority {@link Scheduler#PRIORITY_LOW}, {@link Scheduler#PRIORITY_NORMAL} or {@link Scheduler#PRIORITY_HIGH}
+     * @return snapshot of the stats of the priority class, empty if the concurrent regular tasks are unlimited
+     */
+    public PriorityStats getPriorityStats(int priority) {
+        if (priority < Scheduler.PRIORITY_LOW || priority > Scheduler.PRIORITY_HIGH) {
+            throw new IllegalArgumentException("priority must be Scheduler.PRIORITY_LOW, " +
+                    "Scheduler.PRIORITY_NORMAL or Scheduler.PRIORITY_HIGH");
+        }
+
+        final TickDispatcher dispatcher = mTickDispatcher;
+        return dispatcher != null ? dispatcher.getStats(priority) : new PriorityStats();
+    }
+
+    /**
+     * Takes a snapshot of the load of this instance
+     * @return current load
+     */
+    public EngineLoad getLoad() {
+        final long currentTime = mClock.currentTimeMillis();
+        final long[] counts = mLoadMonitor.sum(currentTime);
+
+        int queueDepth = 0;
+        long oldestDueLag = 0;
+        final TickDispatcher dispatcher = mTickDispatcher;
+        if (dispatcher != null) {
+            queueDepth = dispatcher.getQueueDepth();
+            final long oldestDeadline = dispatcher.getOldestDeadline();
+            if (oldestDeadline != Long.MAX_VALUE) {
+                oldestDueLag = Math.max(0, currentTime - oldestDeadline);
+            }
+        }
+
+        return new EngineLoad(mRunningSchedulers.get(), queueDepth, oldestDueLag, counts[0], counts[1], counts[2]);
+    }
+
+    /**
+     * Asks {@link #mAdmissionController} which priority classes to degrade and which deferred schedulers to execute
+     * Called periodically on the engine's thread while schedulers are deferred, and may also be called by the user
+     * The admitted schedulers are executed on the calling thread, which must not be a run loop's thread
+     */
+    public void evaluateLoad() {
+        final AdmissionController controller = mAdmissionController;
+        if (controller == null) {
+            return;
+        }
+
+        final List<Scheduler> admitted = new ArrayList<>();
+        synchronized (this) {
+            final EngineLoad load = getLoad();
+            mDegradedPriority = controller.getDegradedPriority(load);
+
+            for (Iterator<Scheduler> iterator = mDeferredSchedulers.iterator(); iterator.hasNext(); ) {
+                final Scheduler scheduler = iterator.next();
+                final int decision = controller.onSubmit(scheduler, load);
+                if (decision == AdmissionController.ADMIT) {
+                    iterator.remove();
+                    admitted.add(scheduler);
+                } else if (decision == AdmissionController.REJECT) {
+                    iterator.remove();
+                    mRejectedCount++;
+                }
+            }
+
+            if (mDeferredSchedulers.isEmpty() && mEvaluation != null) {
+                mEvaluation.cancel(false);
+                mEvaluation = null;
+            }
+        }
+
+        /*
+        executes outside the lock, the executor may run the scheduler in place
+         */
+        for (Scheduler scheduler : admitted) {
+            executeNow(scheduler);
+        }
+    }
+
+    /**
+     * Asks {@link #mAdmissionController} which priority classes to degrade, leaving the deferred schedulers
+     * to {@link #mEvaluator}, so it can be called on a run loop's thread
+     */
+    private void evaluateDegradedPriority() {
+        final AdmissionController controller = mAdmissionController;
+        if (controller != null) {
+            synchronized (this) {
+                mDegradedPriority = controller.getDegradedPriority(getLoad());
+            }
+        }
+    }
+
+    /**
+     * Starts evaluating the load periodically on {@link #mEvaluator}, once per bucket of the load window,
+     * unless already started
+     * Must be called with this instance's lock held
+     */
+    private void scheduleEvaluation() {
+        if (mEvaluation != null) {
+            return;
+        }
+
+        if (mEvaluator == null) {
+            mEvaluator = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    final Thread thread = new Thread(runnable, TAG);
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            /*
+            the thread is let go while no scheduler is deferred
+             */
+            mEvaluator.setKeepAliveTime(DEFAULT_LOAD_WINDOW, TimeUnit.MILLISECONDS);
+            mEvaluator.allowCoreThreadTimeOut(true);
+        }
+
+        final long period = mLoadMonitor.getBucketWidth();
+        mEvaluation = mEvaluator.scheduleWithFixedDelay(mEvaluateTask, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Getter
+     * @return the lowest priority whose regular tasks are executed
+     */
+    public int getDegradedPriority() {
+        return mDegradedPriority;
+    }
+
+    /**
+     * Getter
+     * @return the number of schedulers waiting to be admitted
+     */
+    public synchronized int getDeferredCount() {
+        return mDeferredSchedulers.size();
+    }
+
+    /**
+     * Getter
+     * @return the number of schedulers rejected so far
+     */
+    public synchronized long getRejectedCount() {
+        return mRejectedCount;
+    }
+
+    /**
+     * Checks if the regular tasks of the priority class are skipped under load
+     * @param priority priority of the scheduler
+     * @return true if degraded
+     */
+    boolean isDegraded(int priority) {
+        return priority < mDegradedPriority;
+    }
+
+    /**
+     * Called by the scheduler each time a regular task is executed, skipped or shed
+     * @param kind one of LoadMonitor's {@link LoadMonitor#EXECUTED}, {@link LoadMonitor#SKIPPED}
+     *             and {@link LoadMonitor#SHED}
+     */
+    void recordTick(int kind) {
+        if (mLoadMonitor.record(mClock.currentTimeMillis(), kind)) {
+            evaluateDegradedPriority();
+        }
+    }
+
+    /**
+     * Called when the scheduler's run loop starts on the engine
+     */
+    void onRunStarted() {
+        mRunningSchedulers.incrementAndGet();
+    }
+
+    /**
+     * Called when the scheduler's run loop finishes on the engine, which may leave room for a deferred scheduler
+     */
+    void onRunFinished() {
+        mRunningSchedulers.decrementAndGet();
+        evaluateDegradedPriority();
+
+        synchronized (this) {
+            if (mEvaluation != null) {
+                mEvaluator.execute(mEvaluateTask);
+            }
+        }
+    }
+
+    /**
+     * Getter
+     * @return the dispatcher limiting the concurrent regular tasks, or null if unlimited
+     */
+    TickDispatcher getTickDispatcher() {
+        return mTickDispatcher;
+    }
+
+    /**
+     * Calculates the phase offset of the next scheduler with the interval
+     * The n-th scheduler gets interval * (n in bit-reversed binary fraction), so that the offsets
+     * fill the interval evenly however many schedulers are eventually executed
+     * @param interval interval of the scheduler
+     * @return phase of the scheduler relative to the clock's epoch (millis)
+     */
+    synchronized long nextSpreadOffset(long interval) {
+        final Integer count = mSpreadCounts.get(interval);
+        final int index = count != null ? count : 0;
+        mSpreadCounts.put(interval, index + 1);
+
+        double fraction = 0;
+        double base = 0.5;
+        for (int i = index; i > 0; i >>= 1) {
+            if ((i & 1) != 0) {
+                fraction += base;
+            }
+            base /= 2;
+        }
+
+        return (long) (interval * fraction);
+    }
+}
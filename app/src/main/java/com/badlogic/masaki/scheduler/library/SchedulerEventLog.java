@@ -0,0 +1,339 @@
+package com.badlogic.masaki.scheduler.library;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Binary log of {@link Scheduler}s' transitions, read back by {@link EventLogReplay}
+ * Each thread appends fixed-size records to its own buffer, which is copied in a batch into
+ * a memory-mapped file when full, so recording an event takes no lock shared between threads
+ * A background thread also flushes all the buffers periodically, so that the records of threads recording
+ * rarely reach the file, and forgets the buffers of the threads that have terminated
+ * Batches are copied in flush order, so {@link EventLogReplay} sorts the records by time
+ * Records that do not fit in the file are dropped and counted
+ */
+public class SchedulerEventLog {
+
+    public static final String TAG = SchedulerEventLog.class.getSimpleName();
+
+    /**
+     * A regular task has started, value is the time at which it was scheduled
+     */
+    public static final int EVENT_TICK = 1;
+
+    /**
+     * Frames have been skipped, value is the number of frames
+     */
+    public static final int EVENT_SKIP = 2;
+
+    /**
+     * {@link Scheduler#pause()} has been called
+     */
+    public static final int EVENT_PAUSE = 3;
+
+    /**
+     * {@link Scheduler#resume()} has been called
+     */
+    public static final int EVENT_RESUME = 4;
+
+    /**
+     * {@link Scheduler#cancel()} has been called
+     */
+    public static final int EVENT_CANCEL = 5;
+
+    /**
+     * {@link Scheduler#release()} has been called
+     */
+    public static final int EVENT_RELEASE = 6;
+
+    /**
+     * The task's duration has passed
+     */
+    public static final int EVENT_COMPLETE = 7;
+
+    /**
+     * A regular task has overrun the tick timeout
+     */
+    public static final int EVENT_TIMEOUT = 8;
+
+    /**
+     * Identifies the file format
+     */
+    static final int MAGIC = 0x53434845;
+
+    /**
+     * Version of the file format
+     */
+    static final int VERSION = 1;
+
+    /**
+     * Size of the header: magic, version, end of the records
+     */
+    static final int HEADER_SIZE = 16;
+
+    /**
+     * Size of a record: time, value, scheduler id, frame count, event type, reserved
+     */
+    static final int RECORD_SIZE = 32;
+
+    /**
+     * Offset of the end of the records in the header
+     */
+    private static final int END_OFFSET = 8;
+
+    /**
+     * Default number of records buffered per thread
+     */
+    public static final int DEFAULT_BUFFER_RECORDS = 256;
+
+    /**
+     * Default interval at which all the buffers are flushed (millis)
+     */
+    public static final long DEFAULT_FLUSH_INTERVAL = 1000;
+
+    /**
+     * Mapped file the batches are copied into
+     */
+    private final MappedByteBuffer mMappedBuffer;
+
+    /**
+     * File backing {@link #mMappedBuffer}
+     */
+    private final RandomAccessFile mFile;
+
+    /**
+     * Number of records buffered per thread
+     */
+    private final int mBufferRecords;
+
+    /**
+     * Buffer of each thread
+     */
+    private final ThreadLocal<ThreadBuffer> mThreadBuffer = new ThreadLocal<ThreadBuffer>() {
+        @Override
+        protected ThreadBuffer initialValue() {
+            final ThreadBuffer buffer = new ThreadBuffer(mBufferRecords);
+            mThreadBuffers.add(buffer);
+            return buffer;
+        }
+    };
+
+    /**
+     * Buffers of the threads that have recorded, kept until the threads terminate
+     */
+    private final CopyOnWriteArrayList<ThreadBuffer> mThreadBuffers = new CopyOnWriteArrayList<>();
+
+    /**
+     * Runs {@link #flushAll()} periodically until {@link #close()}
+     */
+    private final ScheduledExecutorService mFlushExecutor;
+
+    /**
+     * Number of records that did not fit in the file, guarded by this
+     */
+    private long mDroppedCount;
+
+    /**
+     * Flags that the log has been closed, guarded by this
+     */
+    private boolean mClosed;
+
+    /**
+     * Constructor
+     *
+     * @param file file the log is written to, overwritten if it exists
+     * @param maxRecords maximum number of records kept in the file
+     * @param bufferRecords number of records buffered per thread before being copied into the file
+     * @throws IOException if the file cannot be mapped
+     */
+    public SchedulerEventLog(File file, int maxRecords, int bufferRecords) throws IOException {
+        this(file, maxRecords, bufferRecords, DEFAULT_FLUSH_INTERVAL);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param file file the log is written to, overwritten if it exists
+     * @param maxRecords maximum number of records kept in the file
+     * @param bufferRecords number of records buffered per thread before being copied into the file
+     * @param flushInterval interval at which all the buffers are copied into the file (millis)
+     * @throws IOException if the file cannot be mapped
+     */
+    public SchedulerEventLog(File file, int maxRecords, int bufferRecords, long flushInterval) throws IOException {
+        if (maxRecords < 1 || bufferRecords < 1) {
+            throw new IllegalArgumentException("maxRecords and bufferRecords must be positive");
+        }
+
+        if (flushInterval < 1) {
+            throw new IllegalArgumentException("flushInterval < 1 : " + flushInterval);
+        }
+
+        final long size = HEADER_SIZE + (long) maxRecords * RECORD_SIZE;
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("maxRecords too large : " + maxRecords);
+        }
+
+        mBufferRecords = bufferRecords;
+        mFile = new RandomAccessFile(file, "rw");
+        mFile.setLength(0);
+        mFile.setLength(size);
+        mMappedBuffer = mFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+        mMappedBuffer.putInt(0, MAGIC);
+        mMappedBuffer.putInt(4, VERSION);
+        mMappedBuffer.putLong(END_OFFSET, HEADER_SIZE);
+        mMappedBuffer.position(HEADER_SIZE);
+
+        mFlushExecutor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                final Thread thread = new Thread(runnable, TAG);
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        mFlushExecutor.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                flushAll();
+            }
+        }, flushInterval, flushInterval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Records an event in the calling thread's buffer
+     * @param schedulerId id of the scheduler, see {@link Scheduler#setEventLog(SchedulerEventLog)}
+     * @param type one of the EVENT_ constants
+     * @param time time of the event on the scheduler's clock
+     * @param frameCount frame count of the scheduler
+     * @param value meaning depends on the type, e.g. the scheduled time for {@link #EVENT_TICK}
+     */
+    public void record(int schedulerId, int type, long time, int frameCount, long value) {
+        final ThreadBuffer buffer = mThreadBuffer.get();
+        synchronized (buffer) {
+            final ByteBuffer records = buffer.mRecords;
+            records.putLong(time);
+            records.putLong(value);
+            records.putInt(schedulerId);
+            records.putInt(frameCount);
+            records.putInt(type);
+            records.putInt(0);
+            if (!records.hasRemaining()) {
+                flush(buffer);
+            }
+        }
+    }
+
+    /**
+     * Copies the calling thread's buffered records into the file
+     */
+    public void flush() {
+        final ThreadBuffer buffer = mThreadBuffer.get();
+        synchronized (buffer) {
+            flush(buffer);
+        }
+    }
+
+    /**
+     * Copies all the threads' buffered records into the file and forces it to the storage
+     * Must not be called while other threads are still recording
+     * @throws IOException if the file cannot be closed
+     */
+    public void close() throws IOException {
+        mFlushExecutor.shutdown();
+        try {
+            mFlushExecutor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            e.printStackTrace();
+        }
+        flushAll();
+
+        synchronized (this) {
+            mClosed = true;
+            mMappedBuffer.force();
+        }
+        mFile.close();
+    }
+
+    /**
+     * Copies all the threads' buffered records into the file,
+     * then forgets the buffers of the threads that have terminated since they cannot record any more
+     */
+    void flushAll() {
+        for (ThreadBuffer buffer : mThreadBuffers) {
+            synchronized (buffer) {
+                flush(buffer);
+            }
+
+            final Thread thread = buffer.mThread.get();
+            if (thread == null || !thread.isAlive()) {
+                mThreadBuffers.remove(buffer);
+            }
+        }
+    }
+
+    /**
+     * Getter
+     * @return the number of threads whose buffers are kept
+     */
+    int getThreadBufferCount() {
+        return mThreadBuffers.size();
+    }
+
+    /**
+     * Getter
+     * @return the number of records that did not fit in the file
+     */
+    public synchronized long getDroppedCount() {
+        return mDroppedCount;
+    }
+
+    /**
+     * Copies the buffered records into the mapped file, called while the buffer's lock is held
+     * @param buffer buffer to flush
+     */
+    private void flush(ThreadBuffer buffer) {
+        final ByteBuffer records = buffer.mRecords;
+        records.flip();
+
+        synchronized (this) {
+            if (mClosed) {
+                mDroppedCount += records.remaining() / RECORD_SIZE;
+            } else {
+                final int fitting = Math.min(records.remaining(), mMappedBuffer.remaining());
+                mDroppedCount += (records.remaining() - fitting) / RECORD_SIZE;
+                records.limit(records.position() + fitting);
+                mMappedBuffer.put(records);
+                mMappedBuffer.putLong(END_OFFSET, mMappedBuffer.position());
+            }
+        }
+
+        records.clear();
+    }
+
+    /**
+     * Records buffered by a thread
+     */
+    private static final class ThreadBuffer {
+        private final ByteBuffer mRecords;
+
+        /**
+         * Thread recording into the buffer, weakly referenced so that the buffer does not keep it alive
+         */
+        private final WeakReference<Thread> mThread;
+
+        private ThreadBuffer(int bufferRecords) {
+            mRecords = ByteBuffer.allocate(bufferRecords * RECORD_SIZE);
+            mThread = new WeakReference<>(Thread.currentThread());
+        }
+    }
+}
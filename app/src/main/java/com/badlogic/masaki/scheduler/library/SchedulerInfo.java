@@ -0,0 +1,108 @@
+package com.badlogic.masaki.scheduler.library;
+
+import android.support.annotation.Nullable;
+
+/**
+ * Snapshot of a running {@link Scheduler}, obtained from {@link SchedulerRegistry#getLiveSchedulers()}
+ * The values are read without stopping the run loop, so they may be a frame apart from each other
+ */
+public final class SchedulerInfo {
+
+    private final Object mTag;
+    private final Scheduler.State mState;
+    private final String mBoundThreadName;
+    private final long mInterval;
+    private final long mTimeLeft;
+    private final int mFrameCount;
+    private final long mLastTickDrift;
+    private final long mLastTickExecutionTime;
+
+    /**
+     * Constructor that is package private, snapshots are created by {@link Scheduler}
+     */
+    SchedulerInfo(@Nullable Object tag, Scheduler.State state, @Nullable String boundThreadName, long interval,
+                  long timeLeft, int frameCount, long lastTickDrift, long lastTickExecutionTime) {
+        mTag = tag;
+        mState = state;
+        mBoundThreadName = boundThreadName;
+        mInterval = interval;
+        mTimeLeft = timeLeft;
+        mFrameCount = frameCount;
+        mLastTickDrift = lastTickDrift;
+        mLastTickExecutionTime = lastTickExecutionTime;
+    }
+
+    /**
+     * Getter
+     * @return the tag of the scheduler (Nullable)
+     */
+    @Nullable
+    public Object getTag() {
+        return mTag;
+    }
+
+    /**
+     * Getter
+     * @return the state of the scheduler
+     */
+    public Scheduler.State getState() {
+        return mState;
+    }
+
+    /**
+     * Getter
+     * @return the name of the thread running the scheduler (Nullable)
+     */
+    @Nullable
+    public String getBoundThreadName() {
+        return mBoundThreadName;
+    }
+
+    /**
+     * Getter
+     * @return the interval of the regular task
+     */
+    public long getInterval() {
+        return mInterval;
+    }
+
+    /**
+     * Getter
+     * @return the time left until the task's duration has passed (millis),
+     * or {@link Scheduler#INVALID_TIME} if the duration is infinite
+     */
+    public long getTimeLeft() {
+        return mTimeLeft;
+    }
+
+    /**
+     * Getter
+     * @return the current frame count in the run loop
+     */
+    public int getFrameCount() {
+        return mFrameCount;
+    }
+
+    /**
+     * Getter
+     * @return the delay of the last regular task from its scheduled time (millis)
+     */
+    public long getLastTickDrift() {
+        return mLastTickDrift;
+    }
+
+    /**
+     * Getter
+     * @return the execution time of the last regular task (millis)
+     */
+    public long getLastTickExecutionTime() {
+        return mLastTickExecutionTime;
+    }
+
+    @Override
+    public String toString() {
+        return "SchedulerInfo{tag=" + mTag + ", state=" + mState + ", thread=" + mBoundThreadName
+                + ", interval=" + mInterval + ", timeLeft=" + mTimeLeft + ", frame=" + mFrameCount
+                + ", drift=" + mLastTickDrift + ", execution=" + mLastTickExecutionTime + "}";
+    }
+}
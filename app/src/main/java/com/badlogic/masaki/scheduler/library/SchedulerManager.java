@@ -0,0 +1,252 @@
+package com.badlogic.masaki.scheduler.library;
+
+import android.app.Activity;
+import android.app.Application;
+import android.os.Bundle;
+import android.os.Process;
+import android.support.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Class that binds {@link Scheduler}s to an {@link Activity}'s lifecycle
+ * The schedulers are paused on {@link Activity#onPause()}, resumed on {@link Activity#onResume()},
+ * released on {@link Activity#onDestroy()}, and their states are saved into a single entry of the instance state
+ * All the managers run their schedulers on one {@link SchedulerEngine} shared across the application,
+ * so no thread pool is created per screen
+ */
+public class SchedulerManager implements Application.ActivityLifecycleCallbacks {
+
+    public static final String TAG = SchedulerManager.class.getSimpleName();
+
+    /**
+     * Key of the instance state's entry in which all the schedulers' states are saved
+     */
+    static final String KEY_SCHEDULERS_STATES = SchedulerManager.class.getName() + ".schedulers_states";
+
+    /**
+     * Engine shared by all the managers, created lazily by {@link #getSharedEngine()}
+     */
+    private static SchedulerEngine sSharedEngine;
+
+    /**
+     * Activity whose lifecycle the schedulers are bound to
+     */
+    private final Activity mActivity;
+
+    /**
+     * Engine the schedulers are executed on
+     */
+    private final SchedulerEngine mEngine;
+
+    /**
+     * Schedulers bound to {@link #mActivity}
+     */
+    private final List<Scheduler> mSchedulers = new ArrayList<>();
+
+    /**
+     * Keys of the schedulers' states in the instance state
+     */
+    private final Map<Scheduler, String> mKeys = new HashMap<>();
+
+    /**
+     * Number of schedulers executed without a tag, used to key their states by the order of execution
+     */
+    private int mUntaggedCount;
+
+    /**
+     * States restored from the instance state, keyed by the schedulers' tags
+     */
+    private final Bundle mRestoredStates;
+
+    /**
+     * Flags that {@link #mActivity} is between onResume and onPause
+     */
+    private boolean mResumed;
+
+    /**
+     * Getter
+     * A scheduler restored with the same tag, e.g. after a configuration change, runs on the same thread as before,
+     * and the threads do not keep the process alive
+     * @return the engine shared by all the managers
+     */
+    public static synchronized SchedulerEngine getSharedEngine() {
+        if (sSharedEngine == null) {
+            sSharedEngine = new SchedulerEngine(new WorkerPool(Scheduler.TAG, Process.THREAD_PRIORITY_DEFAULT));
+        }
+        return sSharedEngine;
+    }
+
+    /**
+     * Creates a manager bound to the activity
+     * Often called in {@link Activity#onCreate(Bundle)}
+     *
+     * @param activity activity whose lifecycle the schedulers are bound to
+     * @param savedInstanceState the activity's saved instance state (Nullable), from which the schedulers' states are restored
+     * @return created {@link SchedulerManager}'s instance
+     */
+    public static SchedulerManager bind(Activity activity, @Nullable Bundle savedInstanceState) {
+        final Bundle restoredStates = savedInstanceState != null
+                ? savedInstanceState.getBundle(KEY_SCHEDULERS_STATES) : null;
+        final SchedulerManager manager = new SchedulerManager(activity, restoredStates, getSharedEngine());
+        activity.getApplication().registerActivityLifecycleCallbacks(manager);
+        return manager;
+    }
+
+    /**
+     * Constructor that is package private, use {@link #bind(Activity, Bundle)}
+     *
+     * @param activity activity whose lifecycle the schedulers are bound to
+     * @param restoredStates states restored from the instance state (Nullable)
+     * @param engine engine the schedulers are executed on
+     */
+    SchedulerManager(Activity activity, @Nullable Bundle restoredStates, SchedulerEngine engine) {
+        mActivity = activity;
+        mRestoredStates = restoredStates;
+        mEngine = engine;
+    }
+
+    /**
+     * Binds the scheduler to the activity, restores its saved state, and executes it
+     * The state is identified by the scheduler's tag, which must be unique within the manager,
+     * or by the order of execution among the untagged schedulers
+     * The scheduler starts paused if the activity is not resumed yet, and runs no frame until resumed
+     * A scheduler the engine rejects is not bound, while a deferred one is bound and runs once admitted
+     * @param scheduler scheduler to bind
+     * @return the scheduler, or null if the engine's {@link AdmissionController} has rejected it
+     */
+    @Nullable
+    public Scheduler execute(Scheduler scheduler) {
+        final String key = keyOf(scheduler);
+        if (mKeys.containsValue(key)) {
+            throw new IllegalArgumentException("a scheduler with the tag is already bound : " + scheduler.getTag());
+        }
+
+        if (mRestoredStates != null) {
+            final SchedulersSavedState savedState = mRestoredStates.getParcelable(key);
+            if (savedState != null) {
+                scheduler.restoreInstanceState(savedState);
+            }
+        }
+
+        if (!mResumed) {
+            scheduler.pause();
+        }
+
+        mSchedulers.add(scheduler);
+        mKeys.put(scheduler, key);
+        if (mEngine.execute(scheduler) == AdmissionController.REJECT) {
+            mSchedulers.remove(scheduler);
+            mKeys.remove(scheduler);
+
+            /*
+            the next untagged scheduler takes the key over, so the keys keep following the bound schedulers
+             */
+            if (scheduler.getTag() == null) {
+                mUntaggedCount--;
+            }
+            return null;
+        }
+        return scheduler;
+    }
+
+    /**
+     * Releases the scheduler and unbinds it from the activity
+     * @param scheduler scheduler to release
+     */
+    public void release(Scheduler scheduler) {
+        if (mSchedulers.remove(scheduler)) {
+            mKeys.remove(scheduler);
+            scheduler.release();
+        }
+    }
+
+    /**
+     * Calculates the key of the scheduler's state in the saved instance state
+     * @param scheduler scheduler about to be bound
+     * @return key made from the scheduler's tag, or from the number of untagged schedulers bound so far
+     */
+    private String keyOf(Scheduler scheduler) {
+        final Object tag = scheduler.getTag();
+        if (tag != null) {
+            return "tag:" + tag;
+        }
+        return "untagged:" + mUntaggedCount++;
+    }
+
+    /**
+     * Getter
+     * @param scheduler scheduler bound to the activity
+     * @return key of the scheduler's state in the saved instance state, or null if not bound
+     */
+    @Nullable
+    String getKey(Scheduler scheduler) {
+        return mKeys.get(scheduler);
+    }
+
+    @Override
+    public void onActivityCreated(Activity activity, Bundle savedInstanceState) {
+    }
+
+    @Override
+    public void onActivityStarted(Activity activity) {
+    }
+
+    @Override
+    public void onActivityResumed(Activity activity) {
+        if (activity != mActivity) {
+            return;
+        }
+
+        mResumed = true;
+        for (Scheduler scheduler : mSchedulers) {
+            scheduler.resume();
+        }
+    }
+
+    @Override
+    public void onActivityPaused(Activity activity) {
+        if (activity != mActivity) {
+            return;
+        }
+
+        mResumed = false;
+        for (Scheduler scheduler : mSchedulers) {
+            scheduler.pause();
+        }
+    }
+
+    @Override
+    public void onActivityStopped(Activity activity) {
+    }
+
+    @Override
+    public void onActivitySaveInstanceState(Activity activity, Bundle outState) {
+        if (activity != mActivity) {
+            return;
+        }
+
+        final Bundle states = new Bundle();
+        for (Scheduler scheduler : mSchedulers) {
+            states.putParcelable(mKeys.get(scheduler), scheduler.saveInstanceState());
+        }
+        outState.putBundle(KEY_SCHEDULERS_STATES, states);
+    }
+
+    @Override
+    public void onActivityDestroyed(Activity activity) {
+        if (activity != mActivity) {
+            return;
+        }
+
+        for (Scheduler scheduler : mSchedulers) {
+            scheduler.release();
+        }
+        mSchedulers.clear();
+        mKeys.clear();
+        activity.getApplication().unregisterActivityLifecycleCallbacks(this);
+    }
+}
@@ -0,0 +1,77 @@
+package com.badlogic.masaki.scheduler.library;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registry of the {@link Scheduler}s whose run loop is running in this process
+ * Used to find the lagging schedulers in production without attaching a debugger
+ */
+public final class SchedulerRegistry {
+
+    /**
+     * Orders the snapshots by drift of the last regular task, the most lagging first
+     */
+    private static final Comparator<SchedulerInfo> LAGGING_FIRST = new Comparator<SchedulerInfo>() {
+        @Override
+        public int compare(SchedulerInfo lhs, SchedulerInfo rhs) {
+            final long lhsDrift = lhs.getLastTickDrift();
+            final long rhsDrift = rhs.getLastTickDrift();
+            return lhsDrift > rhsDrift ? -1 : (lhsDrift == rhsDrift ? 0 : 1);
+        }
+    };
+
+    /**
+     * Schedulers whose run loop is running
+     */
+    private static final Set<Scheduler> sLiveSchedulers =
+            Collections.newSetFromMap(new ConcurrentHashMap<Scheduler, Boolean>());
+
+    /**
+     * Called when the scheduler's run loop starts
+     * @param scheduler scheduler starting to run
+     */
+    static void register(Scheduler scheduler) {
+        sLiveSchedulers.add(scheduler);
+    }
+
+    /**
+     * Called when the scheduler's run loop ends
+     * @param scheduler scheduler finishing to run
+     */
+    static void unregister(Scheduler scheduler) {
+        sLiveSchedulers.remove(scheduler);
+    }
+
+    /**
+     * Takes a snapshot of every running scheduler
+     * @return the snapshots, the most lagging scheduler first
+     */
+    public static List<SchedulerInfo> getLiveSchedulers() {
+        final List<SchedulerInfo> infos = new ArrayList<>(sLiveSchedulers.size());
+        for (Scheduler scheduler : sLiveSchedulers) {
+            infos.add(scheduler.createInfo());
+        }
+        Collections.sort(infos, LAGGING_FIRST);
+        return infos;
+    }
+
+    /**
+     * Getter
+     * @return the number of running schedulers
+     */
+    public static int getLiveSchedulerCount() {
+        return sLiveSchedulers.size();
+    }
+
+    /**
+     * Constructor that is private, the class only has static methods
+     */
+    private SchedulerRegistry() {
+
+    }
+}
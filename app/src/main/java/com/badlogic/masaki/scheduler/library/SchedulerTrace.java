@@ -0,0 +1,213 @@
+package com.badlogic.masaki.scheduler.library;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.os.Trace;
+import android.support.annotation.Nullable;
+
+import java.lang.reflect.Method;
+
+/**
+ * Writes {@link Scheduler}'s ticks and transitions as {@link Trace} sections, shown by systrace
+ * A tick is a section lasting as long as the regular task, and the other transitions are empty sections
+ * Section names only carry the tag and the event, so that systrace aggregates the sections of a scheduler,
+ * and the frame count and the drift are written as counters (API 29 or higher)
+ * The names are calculated once per scheduler, and nothing is written while no trace is captured (API 29 or higher)
+ * Does nothing below API 18, where {@link Trace} is not available
+ */
+final class SchedulerTrace {
+
+    /**
+     * Maximum length of a section name accepted by {@link Trace#beginSection(String)}
+     */
+    private static final int MAX_SECTION_NAME_LENGTH = 127;
+
+    /**
+     * Flags that {@link Trace} is available
+     */
+    private static final boolean AVAILABLE = Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2;
+
+    /**
+     * Trace.isEnabled(), looked up at run time since it is newer than the compile SDK,
+     * or null if not available
+     */
+    private static final Method IS_ENABLED = findMethod("isEnabled");
+
+    /**
+     * Trace.setCounter(String, long), looked up at run time since it is newer than the compile SDK,
+     * or null if not available
+     */
+    private static final Method SET_COUNTER = findMethod("setCounter", String.class, long.class);
+
+    /**
+     * Name of the section of a regular task
+     */
+    private final String mTickSectionName;
+
+    /**
+     * Name of the frame count counter
+     */
+    private final String mFrameCounterName;
+
+    /**
+     * Name of the drift counter
+     */
+    private final String mDriftCounterName;
+
+    /**
+     * Names of the transitions' sections, indexed by SchedulerEventLog's EVENT_ constants
+     */
+    private final String[] mEventSectionNames = new String[SchedulerEventLog.EVENT_TIMEOUT + 1];
+
+    /**
+     * Constructor
+     * @param tag tag of the scheduler (Nullable)
+     */
+    SchedulerTrace(@Nullable Object tag) {
+        mTickSectionName = sectionName(tag, "tick");
+        mFrameCounterName = sectionName(tag, "frame");
+        mDriftCounterName = sectionName(tag, "drift");
+        for (int type = 0; type < mEventSectionNames.length; type++) {
+            mEventSectionNames[type] = sectionName(tag, eventName(type));
+        }
+    }
+
+    /**
+     * Begins the section of a regular task if a trace is captured
+     * @param frameCount frame count of the tick
+     * @param drift delay of the tick from its scheduled time (millis)
+     * @return true if the section has begun, and must be ended by {@link #endTick()}
+     */
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR2)
+    boolean beginTick(int frameCount, long drift) {
+        if (!isEnabled()) {
+            return false;
+        }
+
+        setCounter(mFrameCounterName, frameCount);
+        setCounter(mDriftCounterName, drift);
+        Trace.beginSection(mTickSectionName);
+        return true;
+    }
+
+    /**
+     * Ends the section begun by {@link #beginTick(int, long)}
+     */
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR2)
+    void endTick() {
+        Trace.endSection();
+    }
+
+    /**
+     * Writes an empty section for a transition if a trace is captured
+     * @param type one of SchedulerEventLog's EVENT_ constants
+     * @param frameCount frame count of the scheduler
+     */
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR2)
+    void instant(int type, int frameCount) {
+        if (!isEnabled()) {
+            return;
+        }
+
+        setCounter(mFrameCounterName, frameCount);
+        Trace.beginSection(mEventSectionNames[type]);
+        Trace.endSection();
+    }
+
+    /**
+     * Checks if the sections are written
+     * Below API 29, where it cannot be told, {@link Trace} itself drops the sections when no trace is captured
+     * @return true if {@link Trace} is available, and a trace is captured or it cannot be told
+     */
+    private static boolean isEnabled() {
+        if (!AVAILABLE) {
+            return false;
+        }
+        if (IS_ENABLED == null) {
+            return true;
+        }
+
+        try {
+            return (Boolean) IS_ENABLED.invoke(null);
+        } catch (Exception e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Writes the value of the counter if {@link #SET_COUNTER} is available
+     * @param name name of the counter
+     * @param value value of the counter
+     */
+    private static void setCounter(String name, long value) {
+        if (SET_COUNTER == null) {
+            return;
+        }
+
+        try {
+            SET_COUNTER.invoke(null, name, value);
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Looks up a method of {@link Trace} added in API 29
+     * @param name name of the method
+     * @param parameterTypes parameter types of the method
+     * @return the method, or null below API 29
+     */
+    @Nullable
+    private static Method findMethod(String name, Class<?>... parameterTypes) {
+        /*
+        Build.VERSION_CODES.Q
+         */
+        if (Build.VERSION.SDK_INT < 29) {
+            return null;
+        }
+
+        try {
+            return Trace.class.getMethod(name, parameterTypes);
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Calculates the name of the event
+     * @param type one of SchedulerEventLog's EVENT_ constants
+     * @return name of the event
+     */
+    private static String eventName(int type) {
+        switch (type) {
+            case SchedulerEventLog.EVENT_SKIP :
+                return "skip";
+            case SchedulerEventLog.EVENT_PAUSE :
+                return "pause";
+            case SchedulerEventLog.EVENT_RESUME :
+                return "resume";
+            case SchedulerEventLog.EVENT_CANCEL :
+                return "cancel";
+            case SchedulerEventLog.EVENT_RELEASE :
+                return "release";
+            case SchedulerEventLog.EVENT_COMPLETE :
+                return "complete";
+            case SchedulerEventLog.EVENT_TIMEOUT :
+                return "timeout";
+            default:
+                return "event" + type;
+        }
+    }
+
+    /**
+     * Calculates the name of the scheduler's section or counter, truncated to the length accepted by {@link Trace}
+     * @param tag tag of the scheduler (Nullable)
+     * @param event name of the event or the counter
+     * @return the name, the same for all the sections of the event
+     */
+    private static String sectionName(@Nullable Object tag, String event) {
+        final String name = Scheduler.TAG + "#" + tag + " " + event;
+        return name.length() <= MAX_SECTION_NAME_LENGTH ? name : name.substring(0, MAX_SECTION_NAME_LENGTH);
+    }
+}
@@ -3,6 +3,12 @@ package com.badlogic.masaki.scheduler.library;
 import android.os.Parcel;
 import android.os.Parcelable;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
 /**
  * Class that saves {@link Scheduler}'s instance state
  * Created by shojimasaki on 2016/04/28.
@@ -134,6 +140,19 @@ public class SchedulersSavedState implements SavedState, Parcelable {
         mCurrentFrameCount = currentFrameCount;
     }
 
+    /**
+     * Copies all the values of the other state
+     * @param other state from which the values are copied
+     */
+    void set(SchedulersSavedState other) {
+        mTaskStartedTime = other.mTaskStartedTime;
+        mElapsedRealTime = other.mElapsedRealTime;
+        mElapsedActiveTime = other.mElapsedActiveTime;
+        mFrameStartedTime = other.mFrameStartedTime;
+        mElapsedFrameTime = other.mElapsedFrameTime;
+        mCurrentFrameCount = other.mCurrentFrameCount;
+    }
+
     @Override
     public int describeContents() {
         return 0;
@@ -162,6 +181,48 @@ public class SchedulersSavedState implements SavedState, Parcelable {
                 }
             };
 
+    /**
+     * Serializes the state, used to hand it over to another process through a {@link LeaseStore}
+     * @return the serialized state
+     */
+    public byte[] toByteArray() {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            out.writeLong(mTaskStartedTime);
+            out.writeLong(mElapsedRealTime);
+            out.writeLong(mElapsedActiveTime);
+            out.writeLong(mFrameStartedTime);
+            out.writeLong(mElapsedFrameTime);
+            out.writeInt(mCurrentFrameCount);
+            out.flush();
+        } catch (IOException e) {
+            /*
+            never happens with ByteArrayOutputStream
+             */
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Deserializes the state serialized by {@link #toByteArray()}
+     * @param state the serialized state
+     * @return the restored {@link SchedulersSavedState}
+     * @throws IOException if the state is truncated
+     */
+    public static SchedulersSavedState fromByteArray(byte[] state) throws IOException {
+        final DataInputStream in = new DataInputStream(new ByteArrayInputStream(state));
+        final SchedulersSavedState savedState = new SchedulersSavedState();
+        savedState.mTaskStartedTime = in.readLong();
+        savedState.mElapsedRealTime = in.readLong();
+        savedState.mElapsedActiveTime = in.readLong();
+        savedState.mFrameStartedTime = in.readLong();
+        savedState.mElapsedFrameTime = in.readLong();
+        savedState.mCurrentFrameCount = in.readInt();
+        return savedState;
+    }
+
     /**
      * Constructor that is package private to encapsulate its information
      */
@@ -0,0 +1,480 @@
+package com.badlogic.masaki.scheduler.library;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Class that splits a large population of logical schedulers across the worker processes of a cluster
+ * Tags are hashed into a fixed number of partitions, and partitions are assigned to the live workers
+ * with a {@link ConsistentHashRing}, so only the partitions of a joining or leaving worker move
+ * A worker is live while it holds its worker lease in the shared {@link LeaseStore}, so workers join and leave
+ * the cluster without being configured on the others
+ * Each partition has one lease and one state entry in the store: a worker loads the states of the partitions
+ * it owns only, and takes over a departed worker's partitions without resetting their schedules
+ * The tags of the owned partitions run as {@link LightweightTimers} on a single driver thread,
+ * so that a worker hosts hundreds of thousands of tags
+ */
+public class ShardCoordinator {
+
+    public static final String TAG = ShardCoordinator.class.getSimpleName();
+
+    private static final String WORKER_LEASE_PREFIX = "worker-";
+    private static final String PARTITION_LEASE_PREFIX = "partition-";
+
+    /**
+     * Callback interface invoked when the frame of a tag owned by this worker is due
+     */
+    public interface OnTickListener {
+        /**
+         * Called on the driver thread, may be called once more just after the tag's partition has been handed over
+         * @param tag tag of the logical scheduler
+         * @param frameCount frame count of the tag, including the frames skipped and the ones run by previous owners
+         */
+        void onTick(String tag, int frameCount);
+    }
+
+    /**
+     * Store holding the leases and the states
+     */
+    private final LeaseStore mStore;
+
+    /**
+     * Id of this worker
+     */
+    private final String mWorkerId;
+
+    /**
+     * Time a lease stays valid without renewal (millis)
+     */
+    private final long mLeaseDuration;
+
+    /**
+     * Maximum difference between the clocks of the workers and the store (millis)
+     */
+    private long mMaxClockSkew;
+
+    /**
+     * Callback invoked on every frame of the owned tags
+     */
+    private final OnTickListener mListener;
+
+    /**
+     * Intervals of the registered tags per partition, keyed by tag
+     */
+    private final List<Map<String, Long>> mPartitionTags;
+
+    /**
+     * Maps the partitions to the live workers
+     */
+    private final ConsistentHashRing mRing = new ConsistentHashRing(ConsistentHashRing.DEFAULT_VIRTUAL_NODES);
+
+    /**
+     * Partitions owned by this worker
+     */
+    private final Map<Integer, Partition> mOwnedPartitions = new HashMap<>();
+
+    /**
+     * Tags of the timers in {@link #mTimers} keyed by handle, read by the driver thread
+     */
+    private final Map<Integer, String> mTagsByHandle = new ConcurrentHashMap<>();
+
+    /**
+     * Timers of the owned tags, created with the driver thread when the first partition is assigned
+     */
+    private LightweightTimers mTimers;
+
+    /**
+     * Runs {@link #renew()} periodically between {@link #start()} and {@link #stop()}
+     */
+    private ScheduledExecutorService mRenewalExecutor;
+
+    /**
+     * Constructor
+     *
+     * @param store store shared by the workers
+     * @param workerId id of this worker, unique in the cluster
+     * @param partitionCount number of partitions, the same on every worker
+     * @param leaseDuration time a lease stays valid without renewal (millis), leases are renewed 3 times per duration
+     * @param listener callback invoked on every frame of the tags owned by this worker
+     */
+    public ShardCoordinator(LeaseStore store, String workerId, int partitionCount, long leaseDuration,
+                            OnTickListener listener) {
+        if (store == null || workerId == null || listener == null) {
+            throw new IllegalArgumentException("store, workerId and listener must not be null");
+        }
+
+        if (partitionCount < 1) {
+            throw new IllegalArgumentException("partitionCount < 1 : " + partitionCount);
+        }
+
+        if (leaseDuration < 3) {
+            throw new IllegalArgumentException("leaseDuration < 3 : " + leaseDuration);
+        }
+
+        mStore = store;
+        mWorkerId = workerId;
+        mLeaseDuration = leaseDuration;
+        mListener = listener;
+        mPartitionTags = new ArrayList<>(partitionCount);
+        for (int i = 0; i < partitionCount; i++) {
+            mPartitionTags.add(new LinkedHashMap<String, Long>());
+        }
+    }
+
+    /**
+     * Sets maxClockSkew to {@link ShardCoordinator#mMaxClockSkew}
+     * A partition whose lease could not be renewed is stopped once the lease may expire before the next renewal,
+     * counting this skew
+     * Must be called before {@link #start()}
+     * @param maxClockSkew maximum difference between the clocks of the workers and the store (millis)
+     * @return ShardCoordinator's instance
+     */
+    public synchronized ShardCoordinator setMaxClockSkew(long maxClockSkew) {
+        if (maxClockSkew < 0) {
+            throw new IllegalArgumentException("maxClockSkew < 0 : " + maxClockSkew);
+        }
+
+        if (ClusterCoordinator.safeOwnershipTime(mLeaseDuration, maxClockSkew) <= 0) {
+            throw new IllegalArgumentException("maxClockSkew is too long for the lease : " + maxClockSkew);
+        }
+
+        mMaxClockSkew = maxClockSkew;
+        return this;
+    }
+
+    /**
+     * Registers a logical scheduler, the same tags must be registered on every worker
+     * Must be called before {@link #start()}
+     * @param tag tag of the logical scheduler
+     * @param interval the interval of the logical scheduler
+     * @return ShardCoordinator's instance
+     */
+    public synchronized ShardCoordinator register(String tag, long interval) {
+        if (tag == null) {
+            throw new IllegalArgumentException("tag must not be null");
+        }
+
+        if (interval < Scheduler.MINIMUM_INTERVAL) {
+            throw new IllegalArgumentException("interval < " + Scheduler.MINIMUM_INTERVAL + " : " + interval);
+        }
+
+        mPartitionTags.get(partitionOf(tag)).put(tag, interval);
+        return this;
+    }
+
+    /**
+     * Starts joining the cluster and balancing the partitions periodically
+     */
+    public synchronized void start() {
+        if (mRenewalExecutor != null) {
+            return;
+        }
+
+        mRenewalExecutor = Executors.newSingleThreadScheduledExecutor();
+        mRenewalExecutor.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                renew();
+            }
+        }, 0, mLeaseDuration / 3, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Leaves the cluster, saving the states of the owned partitions and giving up their leases
+     */
+    public void stop() {
+        final ScheduledExecutorService renewalExecutor;
+        synchronized (this) {
+            renewalExecutor = mRenewalExecutor;
+            mRenewalExecutor = null;
+        }
+
+        if (renewalExecutor != null) {
+            renewalExecutor.shutdown();
+            try {
+                renewalExecutor.awaitTermination(mLeaseDuration, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                e.printStackTrace();
+            }
+        }
+
+        synchronized (this) {
+            for (int partition : new ArrayList<>(mOwnedPartitions.keySet())) {
+                revoke(partition, true);
+            }
+            try {
+                mStore.release(WORKER_LEASE_PREFIX + mWorkerId, mWorkerId);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+
+            if (mTimers != null) {
+                mTimers.release();
+                mTimers = null;
+                mTagsByHandle.clear();
+            }
+        }
+    }
+
+    /**
+     * Renews this worker's membership, recomputes the assignment from the workers holding their worker lease,
+     * then acquires, renews or gives up each partition accordingly
+     */
+    synchronized void renew() {
+        final List<String> liveWorkers;
+        try {
+            mStore.tryAcquire(WORKER_LEASE_PREFIX + mWorkerId, mWorkerId, mLeaseDuration);
+            liveWorkers = mStore.getOwners(WORKER_LEASE_PREFIX);
+        } catch (IOException e) {
+            e.printStackTrace();
+            expireUnrenewedPartitions();
+            return;
+        }
+        mRing.setMembers(liveWorkers);
+
+        for (int partition = 0; partition < mPartitionTags.size(); partition++) {
+            final boolean assigned = mWorkerId.equals(mRing.getOwner(PARTITION_LEASE_PREFIX + partition));
+            final Partition owned = mOwnedPartitions.get(partition);
+
+            try {
+                if (owned != null && !assigned) {
+                    /*
+                    hands the partition over to the worker it has been assigned to
+                     */
+                    revoke(partition, true);
+                } else if (owned != null) {
+                    final long renewedTime = System.currentTimeMillis();
+                    if (mStore.tryAcquire(PARTITION_LEASE_PREFIX + partition, mWorkerId, mLeaseDuration)
+                            && mStore.saveState(PARTITION_LEASE_PREFIX + partition, mWorkerId,
+                            owned.toByteArray(mTimers))) {
+                        owned.mRenewedTime = renewedTime;
+                    } else {
+                        revoke(partition, false);
+                    }
+                } else if (assigned) {
+                    /*
+                    fails while the previous owner still holds the lease, and is retried on the next renewal
+                     */
+                    final long renewedTime = System.currentTimeMillis();
+                    if (mStore.tryAcquire(PARTITION_LEASE_PREFIX + partition, mWorkerId, mLeaseDuration)) {
+                        assign(partition, renewedTime);
+                    }
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+
+        expireUnrenewedPartitions();
+    }
+
+    /**
+     * Starts the timers of the partition's tags, continuing the schedules saved by the previous owner
+     * @param partition partition newly owned by this worker
+     * @param renewedTime time just before the lease has been acquired
+     * @throws IOException if the states cannot be loaded
+     */
+    private void assign(int partition, long renewedTime) throws IOException {
+        final byte[] blob = mStore.loadState(PARTITION_LEASE_PREFIX + partition);
+        if (mTimers == null) {
+            mTimers = new LightweightTimers(16, new TimersHandler());
+            new Thread(mTimers, TAG).start();
+        }
+
+        final Map<String, Long> tags = mPartitionTags.get(partition);
+        final Partition owned = new Partition();
+        owned.mRenewedTime = renewedTime;
+        if (blob != null) {
+            final DataInputStream in = new DataInputStream(new ByteArrayInputStream(blob));
+            try {
+                final int count = in.readInt();
+                for (int i = 0; i < count; i++) {
+                    final String tag = in.readUTF();
+                    final int handle = mTimers.readTimer(in);
+                    if (tags.containsKey(tag)) {
+                        owned.mHandles.put(tag, handle);
+                        mTagsByHandle.put(handle, tag);
+                    } else {
+                        /*
+                        the tag is no longer registered
+                         */
+                        mTimers.cancel(handle);
+                    }
+                }
+            } catch (IOException e) {
+                for (int handle : owned.mHandles.values()) {
+                    mTagsByHandle.remove(handle);
+                    mTimers.cancel(handle);
+                }
+                throw e;
+            }
+        }
+
+        for (Map.Entry<String, Long> entry : tags.entrySet()) {
+            if (!owned.mHandles.containsKey(entry.getKey())) {
+                final int handle = mTimers.add(entry.getValue(), Scheduler.TASK_DURATION_INFINITE);
+                owned.mHandles.put(entry.getKey(), handle);
+                mTagsByHandle.put(handle, entry.getKey());
+            }
+        }
+        mOwnedPartitions.put(partition, owned);
+    }
+
+    /**
+     * Stops the timers of the partition's tags
+     * @param partition partition owned by this worker
+     * @param handOver true to save the states and give up the lease, false if the lease has already been lost
+     */
+    private void revoke(int partition, boolean handOver) {
+        final Partition owned = mOwnedPartitions.remove(partition);
+        if (owned == null) {
+            return;
+        }
+
+        if (handOver) {
+            try {
+                mStore.saveState(PARTITION_LEASE_PREFIX + partition, mWorkerId, owned.toByteArray(mTimers));
+                mStore.release(PARTITION_LEASE_PREFIX + partition, mWorkerId);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+
+        for (int handle : owned.mHandles.values()) {
+            mTagsByHandle.remove(handle);
+            mTimers.cancel(handle);
+        }
+    }
+
+    /**
+     * Stops the partitions whose lease may expire before the next renewal, since another worker may then run them
+     */
+    private void expireUnrenewedPartitions() {
+        final long currentTime = System.currentTimeMillis();
+        final long safeOwnershipTime = ClusterCoordinator.safeOwnershipTime(mLeaseDuration, mMaxClockSkew);
+        for (int partition : new ArrayList<>(mOwnedPartitions.keySet())) {
+            if (currentTime - mOwnedPartitions.get(partition).mRenewedTime >= safeOwnershipTime) {
+                revoke(partition, false);
+            }
+        }
+    }
+
+    /**
+     * Calculates the partition of the tag
+     * @param tag tag of the logical scheduler
+     * @return partition index, the same on every worker
+     */
+    int partitionOf(String tag) {
+        return (int) ((ConsistentHashRing.hash(tag) >>> 1) % mPartitionTags.size());
+    }
+
+    /**
+     * Getter
+     * @return indexes of the partitions owned by this worker
+     */
+    public synchronized List<Integer> getOwnedPartitions() {
+        return new ArrayList<>(mOwnedPartitions.keySet());
+    }
+
+    /**
+     * Getter
+     * @return the number of tags running on this worker
+     */
+    public synchronized int getOwnedTagCount() {
+        int count = 0;
+        for (Partition owned : mOwnedPartitions.values()) {
+            count += owned.mHandles.size();
+        }
+        return count;
+    }
+
+    /**
+     * Checks if the tag runs on this worker
+     * @param tag tag of the logical scheduler
+     * @return true if the tag's partition is owned by this worker
+     */
+    public synchronized boolean isOwner(String tag) {
+        final Partition owned = mOwnedPartitions.get(partitionOf(tag));
+        return owned != null && owned.mHandles.containsKey(tag);
+    }
+
+    /**
+     * Getter
+     * @param tag tag of the logical scheduler, which must run on this worker
+     * @return the number of frames of the tag so far, including the skipped ones and the ones run by previous owners
+     */
+    public synchronized int getFrameCount(String tag) {
+        final Partition owned = mOwnedPartitions.get(partitionOf(tag));
+        final Integer handle = owned != null ? owned.mHandles.get(tag) : null;
+        if (handle == null) {
+            throw new IllegalArgumentException("not owned by this worker : " + tag);
+        }
+        return mTimers.getFrameCount(handle);
+    }
+
+    /**
+     * Calls {@link #mListener} with the tag of the timer
+     */
+    private final class TimersHandler implements LightweightTimers.TickHandler {
+        @Override
+        public void onTick(int handle, int frameCount) {
+            final String tag = mTagsByHandle.get(handle);
+            if (tag != null) {
+                mListener.onTick(tag, frameCount);
+            }
+        }
+
+        @Override
+        public void onSkipFrames(int handle, int frameCount, int skipCount) {
+        }
+
+        @Override
+        public void onCompleted(int handle) {
+        }
+    }
+
+    /**
+     * Represents a partition owned by this worker
+     */
+    private static final class Partition {
+        /**
+         * Handles of the partition's timers keyed by tag
+         */
+        private final Map<String, Integer> mHandles = new LinkedHashMap<>();
+
+        /**
+         * Last time the lease has been renewed
+         */
+        private long mRenewedTime;
+
+        /**
+         * Serializes the schedules of all the tags of the partition
+         * @param timers timers of the tags
+         * @return the serialized schedules
+         * @throws IOException never with ByteArrayOutputStream
+         */
+        private byte[] toByteArray(LightweightTimers timers) throws IOException {
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            final DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(mHandles.size());
+            for (Map.Entry<String, Integer> entry : mHandles.entrySet()) {
+                out.writeUTF(entry.getKey());
+                timers.writeTimer(entry.getValue(), out);
+            }
+            out.flush();
+            return bytes.toByteArray();
+        }
+    }
+}
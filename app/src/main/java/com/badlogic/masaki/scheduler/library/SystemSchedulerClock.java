@@ -0,0 +1,41 @@
+package com.badlogic.masaki.scheduler.library;
+
+import java.util.concurrent.locks.Condition;
+
+/**
+ * {@link SchedulerClock} backed by the system time and {@link Thread#sleep(long)}
+ */
+final class SystemSchedulerClock implements SchedulerClock {
+
+    /**
+     * Shared instance, the class has no state
+     */
+    static final SystemSchedulerClock INSTANCE = new SystemSchedulerClock();
+
+    /**
+     * Constructor that is private, use {@link #INSTANCE}
+     */
+    private SystemSchedulerClock() {
+
+    }
+
+    @Override
+    public long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    @Override
+    public void sleep(long millis) throws InterruptedException {
+        /*
+        Thread.sleep() throws IllegalArgumentException for negative values
+         */
+        if (millis > 0) {
+            Thread.sleep(millis);
+        }
+    }
+
+    @Override
+    public void await(Condition condition) throws InterruptedException {
+        condition.await();
+    }
+}
@@ -0,0 +1,390 @@
+package com.badlogic.masaki.scheduler.library;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Class that implements {@link ScheduledTask} and runs a graph of dependent stages on every tick
+ * A stage runs once all the stages it depends on have finished in the same tick,
+ * and independent stages run in parallel on the stage executor
+ * The pipeline is paused, resumed, released or cancelled as one unit through {@link #getScheduler()}'s run loop
+ * A tick whose regular task is interrupted or timed out runs no more stages, but still waits for the running ones,
+ * so the stages of two ticks never overlap
+ * A stage that throws or is rejected by the stage executor does not run its dependents,
+ * and its tick is left out of the completion stats
+ */
+public class TaskPipeline implements ScheduledTask {
+
+    public static final String TAG = TaskPipeline.class.getSimpleName();
+
+    /**
+     * Scheduler whose regular task runs the whole graph
+     */
+    private final Scheduler mScheduler;
+
+    /**
+     * Executor on which the stages run
+     */
+    private final Executor mStageExecutor;
+
+    /**
+     * Stages in the order they were added, which is a topological order
+     */
+    private final List<Stage> mStages = new ArrayList<>();
+
+    /**
+     * Flags that the pipeline has been cancelled, so that the remaining stages are not run
+     */
+    private volatile boolean mCancelled;
+
+    /**
+     * Number of ticks in which all the stages have run and finished
+     */
+    private volatile long mCompletedTickCount;
+
+    /**
+     * Total time from the start of a tick to the end of its last stage (nanos)
+     */
+    private volatile long mTotalTickLatency;
+
+    /**
+     * Longest time from the start of a tick to the end of its last stage (nanos)
+     */
+    private volatile long mMaxTickLatency;
+
+    /**
+     * A node of the graph
+     */
+    public static final class Stage {
+        /**
+         * Task run by the stage
+         */
+        private final Runnable mTask;
+
+        /**
+         * Index of the stage in {@link TaskPipeline#mStages}
+         */
+        private final int mIndex;
+
+        /**
+         * Number of stages this stage depends on
+         */
+        private final int mDependencyCount;
+
+        /**
+         * Stages that depend on this stage
+         */
+        private final List<Stage> mDependents = new ArrayList<>();
+
+        /**
+         * Constructor that is private, use {@link TaskPipeline#addStage(Runnable, Stage...)}
+         */
+        private Stage(Runnable task, int index, int dependencyCount) {
+            mTask = task;
+            mIndex = index;
+            mDependencyCount = dependencyCount;
+        }
+    }
+
+    /**
+     * Constructor
+     *
+     * @param interval the interval of the ticks
+     * @param taskDuration the duration of the pipeline (millis)
+     * @param durationType must be set {@link Scheduler#DURATION_REAL_TIME} or {@link Scheduler#DURATION_ACTIVE_TIME}
+     * @param stageExecutor executor on which the stages run, should have as many threads as parallel branches
+     */
+    public TaskPipeline(long interval, long taskDuration, int durationType, Executor stageExecutor) {
+        if (stageExecutor == null) {
+            throw new IllegalArgumentException("stageExecutor must not be null");
+        }
+
+        mStageExecutor = stageExecutor;
+        mScheduler = new Scheduler(interval, taskDuration, durationType) {
+            @Override
+            protected void executeRegularTask() {
+                /*
+                the stages have side effects, so the dry ticks only warm up the run loop
+                 */
+                if (isWarmingUp()) {
+                    return;
+                }
+
+                executeGraph();
+            }
+
+            @Override
+            public void cancel() {
+                mCancelled = true;
+                super.cancel();
+            }
+        };
+    }
+
+    /**
+     * Adds a stage that runs after all the dependencies in each tick
+     * A stage can only depend on stages already added, so the graph never has a cycle
+     * Must be called before the pipeline starts to run
+     * @param task task run by the stage
+     * @param dependencies stages that must finish before this stage runs
+     * @return the added stage
+     */
+    public Stage addStage(Runnable task, Stage... dependencies) {
+        if (task == null) {
+            throw new IllegalArgumentException("task must not be null");
+        }
+
+        final Stage stage = new Stage(task, mStages.size(), dependencies.length);
+        for (Stage dependency : dependencies) {
+            if (dependency == null || dependency.mIndex >= mStages.size()
+                    || mStages.get(dependency.mIndex) != dependency) {
+                throw new IllegalArgumentException("dependency must be a stage of this pipeline");
+            }
+            dependency.mDependents.add(stage);
+        }
+
+        mStages.add(stage);
+        return stage;
+    }
+
+    /**
+     * Runs all the stages of a tick and waits for the last one
+     */
+    private void executeGraph() {
+        if (mStages.isEmpty()) {
+            return;
+        }
+
+        final long startTime = System.nanoTime();
+        final TickRun tickRun = new TickRun(mStages);
+        for (Stage stage : mStages) {
+            if (stage.mDependencyCount == 0) {
+                submit(tickRun, stage);
+            }
+        }
+
+        /*
+        on an interruption the stages not started yet are skipped, and the running ones are waited for
+         */
+        boolean interrupted = false;
+        while (true) {
+            try {
+                tickRun.mRemaining.await();
+                break;
+            } catch (InterruptedException e) {
+                tickRun.mAbandoned = true;
+                interrupted = true;
+            }
+        }
+
+        /*
+        an interruption from anything else than the watchdog is left to the caller, as the scheduler does
+         */
+        if (interrupted && !mScheduler.getTickCancellationToken().isCancelled()) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (tickRun.mSkipped || tickRun.mFailed) {
+            return;
+        }
+
+        final long latency = System.nanoTime() - startTime;
+        mTotalTickLatency += latency;
+        mMaxTickLatency = Math.max(mMaxTickLatency, latency);
+        mCompletedTickCount++;
+    }
+
+    /**
+     * Runs the stage on {@link #mStageExecutor}, or skips it if one of its dependencies has not run
+     * or the executor rejects it
+     * @param tickRun the tick the stage belongs to
+     * @param stage stage to run
+     */
+    private void submit(final TickRun tickRun, final Stage stage) {
+        if (tickRun.mMissingInputs.get(stage.mIndex) != 0) {
+            tickRun.mSkipped = true;
+            finishStage(tickRun, stage, false);
+            return;
+        }
+
+        try {
+            mStageExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    runStage(tickRun, stage);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            e.printStackTrace();
+            tickRun.mSkipped = true;
+            finishStage(tickRun, stage, false);
+        }
+    }
+
+    /**
+     * Runs the stage on the calling thread unless the tick is stopped, then finishes it
+     * @param tickRun the tick the stage belongs to
+     * @param stage stage to run
+     */
+    private void runStage(TickRun tickRun, Stage stage) {
+        final boolean runnable = isStageRunnable(tickRun);
+        boolean completed = false;
+        try {
+            if (runnable) {
+                stage.mTask.run();
+                completed = true;
+            }
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+        } finally {
+            if (!runnable) {
+                tickRun.mSkipped = true;
+            } else if (!completed) {
+                tickRun.mFailed = true;
+            }
+            finishStage(tickRun, stage, completed);
+        }
+    }
+
+    /**
+     * Submits the dependents whose dependencies have all finished, and counts the stage down
+     * @param tickRun the tick the stage belongs to
+     * @param stage finished stage
+     * @param completed false if the stage has not run to the end, so that its dependents are skipped
+     */
+    private void finishStage(TickRun tickRun, Stage stage, boolean completed) {
+        for (Stage dependent : stage.mDependents) {
+            if (!completed) {
+                tickRun.mMissingInputs.set(dependent.mIndex, 1);
+            }
+            if (tickRun.mPendingCounts.decrementAndGet(dependent.mIndex) == 0) {
+                submit(tickRun, dependent);
+            }
+        }
+        tickRun.mRemaining.countDown();
+    }
+
+    /**
+     * Checks if the next stage of the tick may run
+     * @param tickRun the tick the stage belongs to
+     * @return false if the pipeline has been cancelled, or the tick interrupted or timed out
+     */
+    private boolean isStageRunnable(TickRun tickRun) {
+        return !mCancelled && !tickRun.mAbandoned && !mScheduler.getTickCancellationToken().isCancelled();
+    }
+
+    /**
+     * Getter
+     * Used to configure the run loop (tag, listeners, priority...) and to execute the pipeline on a {@link SchedulerEngine}
+     * @return the scheduler whose regular task runs the whole graph
+     */
+    public Scheduler getScheduler() {
+        return mScheduler;
+    }
+
+    /**
+     * Getter
+     * @return true if the pipeline has been cancelled
+     */
+    public boolean isCancelled() {
+        return mCancelled;
+    }
+
+    /**
+     * Getter
+     * @return the number of ticks in which all the stages have run and finished
+     */
+    public long getCompletedTickCount() {
+        return mCompletedTickCount;
+    }
+
+    /**
+     * Getter
+     * @return the average time from the start of a tick to the end of its last stage (nanos)
+     */
+    public long getAverageTickLatency() {
+        final long count = mCompletedTickCount;
+        return count != 0 ? mTotalTickLatency / count : 0;
+    }
+
+    /**
+     * Getter
+     * @return the longest time from the start of a tick to the end of its last stage (nanos)
+     */
+    public long getMaxTickLatency() {
+        return mMaxTickLatency;
+    }
+
+    @Override
+    public void run() {
+        mScheduler.run();
+    }
+
+    @Override
+    public void pause() {
+        mScheduler.pause();
+    }
+
+    @Override
+    public void resume() {
+        mScheduler.resume();
+    }
+
+    @Override
+    public void release() {
+        mScheduler.release();
+    }
+
+    @Override
+    public void cancel() {
+        mScheduler.cancel();
+    }
+
+    /**
+     * Represents the progress of the stages in a tick
+     */
+    private static final class TickRun {
+        /**
+         * Number of unfinished dependencies per stage index
+         */
+        private final AtomicIntegerArray mPendingCounts;
+
+        /**
+         * Non zero for the stages one of whose dependencies has not run to the end, per stage index
+         */
+        private final AtomicIntegerArray mMissingInputs;
+
+        /**
+         * Counts down as the stages finish
+         */
+        private final CountDownLatch mRemaining;
+
+        /**
+         * Flags that the regular task running the tick has been interrupted
+         */
+        private volatile boolean mAbandoned;
+
+        /**
+         * Flags that a stage of the tick has not been run
+         */
+        private volatile boolean mSkipped;
+
+        /**
+         * Flags that a stage of the tick has thrown
+         */
+        private volatile boolean mFailed;
+
+        private TickRun(List<Stage> stages) {
+            mPendingCounts = new AtomicIntegerArray(stages.size());
+            for (Stage stage : stages) {
+                mPendingCounts.set(stage.mIndex, stage.mDependencyCount);
+            }
+            mMissingInputs = new AtomicIntegerArray(stages.size());
+            mRemaining = new CountDownLatch(stages.size());
+        }
+    }
+}
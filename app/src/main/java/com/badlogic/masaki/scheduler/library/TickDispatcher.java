@@ -0,0 +1,218 @@
+package com.badlogic.masaki.scheduler.library;
+
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Class that limits the number of regular tasks executed at the same time across a {@link SchedulerEngine}
+ * Waiting regular tasks are dispatched by priority class, then earliest deadline first
+ * A waiting regular task whose next frame is already due is shed, if its scheduler allows skipping frames,
+ * so the lower priority classes, which wait the longest, are shed first under overload
+ */
+final class TickDispatcher {
+
+    /**
+     * Orders the waiters by priority (higher first), deadline (earlier first), then arrival
+     */
+    private static final Comparator<Waiter> WAITER_ORDER = new Comparator<Waiter>() {
+        @Override
+        public int compare(Waiter lhs, Waiter rhs) {
+            if (lhs.mPriority != rhs.mPriority) {
+                return lhs.mPriority > rhs.mPriority ? -1 : 1;
+            }
+            if (lhs.mDeadline != rhs.mDeadline) {
+                return lhs.mDeadline < rhs.mDeadline ? -1 : 1;
+            }
+            return lhs.mSequence < rhs.mSequence ? -1 : (lhs.mSequence == rhs.mSequence ? 0 : 1);
+        }
+    };
+
+    /**
+     * Maximum number of regular tasks executed at the same time
+     */
+    private final int mMaxConcurrentTicks;
+
+    /**
+     * Lock for all the fields below
+     */
+    private final ReentrantLock mLock = new ReentrantLock(false);
+
+    /**
+     * Condition used when a regular task finishes or a waiter leaves the queue
+     */
+    private final Condition mChanged = mLock.newCondition();
+
+    /**
+     * Regular tasks waiting for the execution capacity
+     */
+    private final PriorityQueue<Waiter> mWaiters = new PriorityQueue<>(16, WAITER_ORDER);
+
+    /**
+     * Stats indexed by priority
+     */
+    private final PriorityStats[] mStats = new PriorityStats[Scheduler.PRIORITY_HIGH + 1];
+
+    /**
+     * Number of regular tasks being executed
+     */
+    private int mRunningTicks;
+
+    /**
+     * Used to order the waiters with the same priority and deadline
+     */
+    private long mSequence;
+
+    /**
+     * Constructor
+     *
+     * @param maxConcurrentTicks maximum number of regular tasks executed at the same time
+     */
+    TickDispatcher(int maxConcurrentTicks) {
+        mMaxConcurrentTicks = maxConcurrentTicks;
+        for (int i = 0; i < mStats.length; i++) {
+            mStats[i] = new PriorityStats();
+        }
+    }
+
+    /**
+     * Waits for the execution capacity for the scheduler's regular task
+     * @param scheduler scheduler whose regular task is about to be executed
+     * @param deadline time at which the regular task is scheduled
+     * @return true if the regular task may be executed, false if it has been shed and must be skipped
+     */
+    boolean acquire(Scheduler scheduler, long deadline) {
+        final SchedulerClock clock = scheduler.getClock();
+        final int priority = scheduler.getPriority();
+        final PriorityStats stats = mStats[priority];
+
+        Waiter waiter = null;
+        mLock.lock();
+        try {
+            final long startTime = clock.currentTimeMillis();
+            if (mWaiters.isEmpty() && mRunningTicks < mMaxConcurrentTicks) {
+                mRunningTicks++;
+                stats.recordDispatched(0);
+                return true;
+            }
+
+            waiter = new Waiter(priority, deadline, mSequence++);
+            mWaiters.add(waiter);
+            stats.recordDelayed();
+
+            final long shedTime = deadline + scheduler.getEffectiveInterval();
+            while (true) {
+                final long currentTime = clock.currentTimeMillis();
+                if (mWaiters.peek() == waiter && mRunningTicks < mMaxConcurrentTicks) {
+                    mWaiters.poll();
+                    mRunningTicks++;
+                    stats.recordDispatched(currentTime - startTime);
+
+                    /*
+                    the next waiter may be dispatched as well
+                     */
+                    mChanged.signalAll();
+                    return true;
+                }
+
+                if (!scheduler.isSkipFrameAllowed()) {
+                    mChanged.await();
+                    continue;
+                }
+
+                if (currentTime >= shedTime) {
+                    mWaiters.remove(waiter);
+                    stats.recordShed(currentTime - startTime);
+                    mChanged.signalAll();
+                    return false;
+                }
+
+                mChanged.await(shedTime - currentTime, TimeUnit.MILLISECONDS);
+            }
+        } catch (InterruptedException e) {
+            e.printStackTrace();
+            mWaiters.remove(waiter);
+            mChanged.signalAll();
+            return false;
+        } finally {
+            mLock.unlock();
+        }
+    }
+
+    /**
+     * Gives back the execution capacity acquired by {@link #acquire(Scheduler, long)}
+     */
+    void release() {
+        mLock.lock();
+        try {
+            mRunningTicks--;
+            mChanged.signalAll();
+        } finally {
+            mLock.unlock();
+        }
+    }
+
+    /**
+     * Getter
+     * @return the number of regular tasks waiting for the execution capacity
+     */
+    int getQueueDepth() {
+        mLock.lock();
+        try {
+            return mWaiters.size();
+        } finally {
+            mLock.unlock();
+        }
+    }
+
+    /**
+     * Getter
+     * @return the earliest scheduled time of the waiting regular tasks, or Long.MAX_VALUE if none waits
+     */
+    long getOldestDeadline() {
+        mLock.lock();
+        try {
+            /*
+            the queue is ordered by priority first, so every waiter is visited
+             */
+            long oldest = Long.MAX_VALUE;
+            for (Waiter waiter : mWaiters) {
+                oldest = Math.min(oldest, waiter.mDeadline);
+            }
+            return oldest;
+        } finally {
+            mLock.unlock();
+        }
+    }
+
+    /**
+     * Getter
+     * @param priority priority class
+     * @return snapshot of the stats of the priority class
+     */
+    PriorityStats getStats(int priority) {
+        mLock.lock();
+        try {
+            return mStats[priority].copy();
+        } finally {
+            mLock.unlock();
+        }
+    }
+
+    /**
+     * Represents a regular task waiting for the execution capacity
+     */
+    private static final class Waiter {
+        private final int mPriority;
+        private final long mDeadline;
+        private final long mSequence;
+
+        private Waiter(int priority, long deadline, long sequence) {
+            mPriority = priority;
+            mDeadline = deadline;
+            mSequence = sequence;
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package com.badlogic.masaki.scheduler.library;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Preallocated ring buffer that hands tick payloads from {@link Scheduler} threads to a single consumer thread
+ * Producers claim a slot with {@link #next()}, fill the reused payload and {@link #publish(long)} it,
+ * so no object is allocated per tick, and {@link #next()} waits while the buffer is full (back pressure)
+ * The consumer drains all the published slots at once with {@link #drain(BatchHandler)}
+ *
+ * @param <T> type of the payload
+ */
+public class TickRingBuffer<T> {
+
+    public static final String TAG = TickRingBuffer.class.getSimpleName();
+
+    /**
+     * Returned by {@link #tryNext()} when the buffer is full
+     */
+    public static final long NO_SLOT = -1;
+
+    /**
+     * Creates the payloads once, when the buffer is constructed
+     *
+     * @param <T> type of the payload
+     */
+    public interface SlotFactory<T> {
+        /**
+         * Called for each slot of the buffer
+         * @return a new payload
+         */
+        T newSlot();
+    }
+
+    /**
+     * Callback interface whose method is called for each slot drained by the consumer
+     *
+     * @param <T> type of the payload
+     */
+    public interface BatchHandler<T> {
+        /**
+         * Called for each published slot, the payload must not be kept after this method returns
+         * @param slot the payload
+         * @param sequence sequence of the slot
+         * @param endOfBatch true if this is the last slot of the batch
+         */
+        void onSlot(T slot, long sequence, boolean endOfBatch);
+    }
+
+    /**
+     * Preallocated payloads
+     */
+    private final Object[] mSlots;
+
+    /**
+     * Used to calculate the index of a sequence, capacity - 1
+     */
+    private final int mMask;
+
+    /**
+     * Sequence last published into each slot, used to see which slots are readable
+     */
+    private final AtomicLongArray mPublishedSequences;
+
+    /**
+     * Next sequence claimed by the producers
+     */
+    private final AtomicLong mClaimSequence = new AtomicLong();
+
+    /**
+     * Next sequence read by the consumer, slots before it can be reused
+     */
+    private volatile long mConsumeSequence;
+
+    /**
+     * Flags that several threads may claim slots at the same time
+     */
+    private final boolean mMultiProducer;
+
+    /**
+     * How the producers and the consumer wait
+     */
+    private final WaitStrategy mWaitStrategy;
+
+    /**
+     * Constructor
+     *
+     * @param capacity number of slots, must be a power of 2
+     * @param slotFactory creates the payload of each slot
+     * @param waitStrategy how the producers and the consumer wait
+     * @param multiProducer true if several threads publish into the buffer
+     */
+    public TickRingBuffer(int capacity, SlotFactory<T> slotFactory, WaitStrategy waitStrategy, boolean multiProducer) {
+        if (capacity < 1 || (capacity & (capacity - 1)) != 0) {
+            throw new IllegalArgumentException("capacity must be a power of 2 : " + capacity);
+        }
+
+        if (slotFactory == null || waitStrategy == null) {
+            throw new IllegalArgumentException("slotFactory and waitStrategy must not be null");
+        }
+
+        mSlots = new Object[capacity];
+        mMask = capacity - 1;
+        mPublishedSequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            mSlots[i] = slotFactory.newSlot();
+            mPublishedSequences.set(i, -1);
+        }
+        mWaitStrategy = waitStrategy;
+        mMultiProducer = multiProducer;
+    }
+
+    /**
+     * Claims the next slot, waiting while the buffer is full
+     * Nothing is claimed until a slot is free, so an interruption while waiting leaves no gap for the consumer
+     * @return sequence of the claimed slot, which must always be published
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public long next() throws InterruptedException {
+        int attempt = 0;
+        long sequence;
+        while ((sequence = tryNext()) == NO_SLOT) {
+            mWaitStrategy.idle(attempt++);
+        }
+        return sequence;
+    }
+
+    /**
+     * Claims the next slot if the buffer is not full
+     * @return sequence of the claimed slot, which must always be published, or {@link #NO_SLOT} if the buffer is full
+     */
+    public long tryNext() {
+        while (true) {
+            final long sequence = mClaimSequence.get();
+            if (sequence - mSlots.length >= mConsumeSequence) {
+                return NO_SLOT;
+            }
+            if (!mMultiProducer) {
+                mClaimSequence.lazySet(sequence + 1);
+                return sequence;
+            }
+            if (mClaimSequence.compareAndSet(sequence, sequence + 1)) {
+                return sequence;
+            }
+        }
+    }
+
+    /**
+     * Getter
+     * @param sequence sequence claimed by {@link #next()} or {@link #tryNext()}
+     * @return the payload of the slot, to be filled before {@link #publish(long)}
+     */
+    @SuppressWarnings("unchecked")
+    public T get(long sequence) {
+        return (T) mSlots[(int) sequence & mMask];
+    }
+
+    /**
+     * Makes the slot readable by the consumer
+     * @param sequence sequence claimed by {@link #next()} or {@link #tryNext()}
+     */
+    public void publish(long sequence) {
+        mPublishedSequences.set((int) sequence & mMask, sequence);
+        mWaitStrategy.signal();
+    }
+
+    /**
+     * Hands all the slots published so far, in order, to the handler, then frees them
+     * Must always be called from the same consumer thread
+     * @param handler callback called for each slot
+     * @return number of drained slots
+     */
+    public int drain(BatchHandler<T> handler) {
+        final long first = mConsumeSequence;
+        long last = first;
+        while (last - first < mSlots.length && mPublishedSequences.get((int) last & mMask) == last) {
+            last++;
+        }
+
+        if (last == first) {
+            return 0;
+        }
+
+        for (long sequence = first; sequence < last; sequence++) {
+            handler.onSlot(get(sequence), sequence, sequence == last - 1);
+        }
+
+        mConsumeSequence = last;
+        mWaitStrategy.signal();
+        return (int) (last - first);
+    }
+
+    /**
+     * Waits until at least one slot is published, then drains all the published slots
+     * @param handler callback called for each slot
+     * @return number of drained slots
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public int drainBlocking(BatchHandler<T> handler) throws InterruptedException {
+        int attempt = 0;
+        int count;
+        while ((count = drain(handler)) == 0) {
+            mWaitStrategy.idle(attempt++);
+        }
+        return count;
+    }
+
+    /**
+     * Getter
+     * @return the number of slots
+     */
+    public int getCapacity() {
+        return mSlots.length;
+    }
+}
@@ -0,0 +1,164 @@
+package com.badlogic.masaki.scheduler.library;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Watchdog shared by all the {@link Scheduler}s that detects regular tasks overrunning their tick timeout
+ * A single daemon thread sleeps until the earliest deadline of the registered schedulers,
+ * so no thread or timer is created per scheduler or per tick, and nothing runs while no regular task is watched
+ */
+final class TickWatchdog implements Runnable {
+
+    /**
+     * Returned by {@link #scan(long)} when no regular task is being watched
+     */
+    static final long NO_DEADLINE = Long.MAX_VALUE;
+
+    /**
+     * Shared instance, created lazily by {@link #getInstance()}
+     */
+    private static TickWatchdog sInstance;
+
+    /**
+     * Source of the time the deadlines are based on
+     */
+    private final SchedulerClock mClock;
+
+    /**
+     * Schedulers whose regular tasks are watched
+     */
+    private final CopyOnWriteArrayList<Scheduler> mSchedulers = new CopyOnWriteArrayList<>();
+
+    /**
+     * Lock for {@link #mWakeUp}
+     */
+    private final ReentrantLock mLock = new ReentrantLock(false);
+
+    /**
+     * Condition used when a deadline earlier than the one being waited for is set
+     */
+    private final Condition mDeadlineChanged = mLock.newCondition();
+
+    /**
+     * Earliest deadline the watchdog thread is waiting for, or {@link #NO_DEADLINE}
+     */
+    private volatile long mNextDeadline = NO_DEADLINE;
+
+    /**
+     * Flags that a deadline has been set since the last scan
+     */
+    private boolean mWakeUp;
+
+    /**
+     * Getter
+     * @return the watchdog shared by all the schedulers
+     */
+    static synchronized TickWatchdog getInstance() {
+        if (sInstance == null) {
+            sInstance = new TickWatchdog(SystemSchedulerClock.INSTANCE);
+            final Thread thread = new Thread(sInstance, TickWatchdog.class.getSimpleName());
+            thread.setDaemon(true);
+            thread.start();
+        }
+        return sInstance;
+    }
+
+    /**
+     * Constructor
+     * Nothing runs {@link #run()} for an instance created directly, {@link #scan(long)} is called by the owner
+     * @param clock source of the time the deadlines are based on
+     */
+    TickWatchdog(SchedulerClock clock) {
+        mClock = clock;
+    }
+
+    /**
+     * Used to get the current time the deadlines are based on
+     * @return current time (millis)
+     */
+    long currentTimeMillis() {
+        return mClock.currentTimeMillis();
+    }
+
+    /**
+     * Starts watching the regular tasks of the scheduler
+     * @param scheduler scheduler to watch
+     */
+    void register(Scheduler scheduler) {
+        mSchedulers.addIfAbsent(scheduler);
+    }
+
+    /**
+     * Stops watching the regular tasks of the scheduler
+     * @param scheduler scheduler not to watch any more
+     */
+    void unregister(Scheduler scheduler) {
+        mSchedulers.remove(scheduler);
+    }
+
+    /**
+     * Called by a registered scheduler when a regular task starts
+     * Wakes the watchdog thread up only if it is waiting for a later deadline
+     * @param deadline time by which the regular task must finish
+     */
+    void onDeadlineSet(long deadline) {
+        if (deadline >= mNextDeadline) {
+            return;
+        }
+
+        mLock.lock();
+        try {
+            mWakeUp = true;
+            mDeadlineChanged.signal();
+        } finally {
+            mLock.unlock();
+        }
+    }
+
+    /**
+     * Times out the regular tasks that have overrun their deadlines
+     * @param currentTime current time of {@link #mClock}
+     * @return the earliest deadline still pending, or {@link #NO_DEADLINE}
+     */
+    long scan(long currentTime) {
+        long nextDeadline = NO_DEADLINE;
+        for (Scheduler scheduler : mSchedulers) {
+            final long deadline = scheduler.checkTickDeadline(currentTime);
+            if (deadline != 0 && deadline < nextDeadline) {
+                nextDeadline = deadline;
+            }
+        }
+        return nextDeadline;
+    }
+
+    @Override
+    public void run() {
+        while (true) {
+            /*
+            a deadline set during the scan may be missed by it, so it always wakes the thread up until the wait
+             */
+            mNextDeadline = NO_DEADLINE;
+            final long nextDeadline = scan(mClock.currentTimeMillis());
+
+            mLock.lock();
+            try {
+                mNextDeadline = nextDeadline;
+                if (!mWakeUp) {
+                    if (nextDeadline == NO_DEADLINE) {
+                        mDeadlineChanged.await();
+                    } else {
+                        mDeadlineChanged.await(nextDeadline - mClock.currentTimeMillis(), TimeUnit.MILLISECONDS);
+                    }
+                }
+                mWakeUp = false;
+            } catch (InterruptedException e) {
+                e.printStackTrace();
+            } finally {
+                mLock.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.badlogic.masaki.scheduler.library;
+
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * An interface that represents how a thread of {@link TickRingBuffer} waits for a slot
+ * Producers wait for a free slot and the consumer waits for a published slot
+ */
+public interface WaitStrategy {
+    /**
+     * Called repeatedly while the awaited slot is not ready
+     * @param attempt number of times this method has been called for the same wait, starting from 0
+     * @throws InterruptedException if the waiting thread is interrupted
+     */
+    void idle(int attempt) throws InterruptedException;
+
+    /**
+     * Called after a slot has been published or consumed, to wake up the waiting threads
+     */
+    void signal();
+
+    /**
+     * Spins without giving up the CPU, lowest latency but burns a core
+     */
+    final class BusySpin implements WaitStrategy {
+        @Override
+        public void idle(int attempt) {
+        }
+
+        @Override
+        public void signal() {
+        }
+    }
+
+    /**
+     * Spins for a while, then yields the CPU to other threads
+     */
+    final class Yielding implements WaitStrategy {
+        private static final int SPIN_TRIES = 100;
+
+        @Override
+        public void idle(int attempt) {
+            if (attempt >= SPIN_TRIES) {
+                Thread.yield();
+            }
+        }
+
+        @Override
+        public void signal() {
+        }
+    }
+
+    /**
+     * Spins, yields, then parks for a short time, a compromise between latency and CPU usage
+     */
+    final class Sleeping implements WaitStrategy {
+        private static final int SPIN_TRIES = 100;
+        private static final int YIELD_TRIES = 200;
+        private static final long PARK_NANOS = 100 * 1000;
+
+        @Override
+        public void idle(int attempt) throws InterruptedException {
+            if (attempt >= YIELD_TRIES) {
+                LockSupport.parkNanos(PARK_NANOS);
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+            } else if (attempt >= SPIN_TRIES) {
+                Thread.yield();
+            }
+        }
+
+        @Override
+        public void signal() {
+        }
+    }
+
+    /**
+     * Blocks on a condition until signalled, lowest CPU usage but highest latency
+     */
+    final class Blocking implements WaitStrategy {
+        /**
+         * Upper bound of a wait, in case a signal is missed between the check of the slot and the wait
+         */
+        private static final long MAX_WAIT_NANOS = 1000 * 1000;
+
+        private final ReentrantLock mLock = new ReentrantLock(false);
+        private final Condition mCondition = mLock.newCondition();
+
+        @Override
+        public void idle(int attempt) throws InterruptedException {
+            mLock.lock();
+            try {
+                mCondition.awaitNanos(MAX_WAIT_NANOS);
+            } finally {
+                mLock.unlock();
+            }
+        }
+
+        @Override
+        public void signal() {
+            mLock.lock();
+            try {
+                mCondition.signalAll();
+            } finally {
+                mLock.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.badlogic.masaki.scheduler.library;
+
+import java.util.Arrays;
+
+/**
+ * Aggregate of the samples in a window, emitted by {@link WindowAggregator}
+ */
+public final class WindowAggregate {
+
+    private final int mCount;
+    private final double mMin;
+    private final double mMax;
+    private final double mMean;
+    private final double[] mPercentiles;
+    private final double[] mPercentileValues;
+
+    /**
+     * Constructor that is package private, aggregates are created by {@link WindowAggregator}
+     */
+    WindowAggregate(int count, double min, double max, double mean, double[] percentiles, double[] percentileValues) {
+        mCount = count;
+        mMin = min;
+        mMax = max;
+        mMean = mean;
+        mPercentiles = percentiles;
+        mPercentileValues = percentileValues;
+    }
+
+    /**
+     * Getter
+     * @return the number of samples in the window
+     */
+    public int getCount() {
+        return mCount;
+    }
+
+    /**
+     * Getter
+     * @return the smallest sample in the window
+     */
+    public double getMin() {
+        return mMin;
+    }
+
+    /**
+     * Getter
+     * @return the largest sample in the window
+     */
+    public double getMax() {
+        return mMax;
+    }
+
+    /**
+     * Getter
+     * @return the mean of the samples in the window
+     */
+    public double getMean() {
+        return mMean;
+    }
+
+    /**
+     * Getter
+     * @param percentile one of the percentiles the aggregator has been created with
+     * @return the sample at the percentile (nearest rank)
+     */
+    public double getPercentile(double percentile) {
+        for (int i = 0; i < mPercentiles.length; i++) {
+            if (mPercentiles[i] == percentile) {
+                return mPercentileValues[i];
+            }
+        }
+        throw new IllegalArgumentException("percentile is not aggregated : " + percentile);
+    }
+
+    @Override
+    public String toString() {
+        return "WindowAggregate{count=" + mCount + ", min=" + mMin + ", max=" + mMax + ", mean=" + mMean
+                + ", percentiles=" + Arrays.toString(mPercentiles) + "=" + Arrays.toString(mPercentileValues) + "}";
+    }
+}
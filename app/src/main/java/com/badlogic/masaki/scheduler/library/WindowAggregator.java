@@ -0,0 +1,158 @@
+package com.badlogic.masaki.scheduler.library;
+
+import java.util.Arrays;
+
+/**
+ * Class that aggregates samples over a window kept in a primitive ring buffer
+ * A tumbling window emits an aggregate every windowSize samples over disjoint windows,
+ * a sliding window emits one every slide samples over the last windowSize samples
+ * Adding a sample never allocates, only emitting an aggregate does
+ * Not thread safe, meant to be fed from a single run loop
+ */
+public final class WindowAggregator {
+
+    public static final String TAG = WindowAggregator.class.getSimpleName();
+
+    /**
+     * Last samples, written circularly
+     */
+    private final double[] mSamples;
+
+    /**
+     * Used to sort the window when calculating the percentiles
+     */
+    private final double[] mSortBuffer;
+
+    /**
+     * Number of samples added between two aggregates
+     */
+    private final int mSlide;
+
+    /**
+     * Percentiles calculated for each window, between 0 and 100
+     */
+    private final double[] mPercentiles;
+
+    /**
+     * Index the next sample is written at
+     */
+    private int mWriteIndex;
+
+    /**
+     * Number of samples in the window, up to its size
+     */
+    private int mCount;
+
+    /**
+     * Number of samples added since the last aggregate
+     */
+    private int mSinceEmitted;
+
+    /**
+     * Creates an aggregator over disjoint windows
+     * @param windowSize number of samples in a window
+     * @param percentiles percentiles calculated for each window, between 0 and 100
+     * @return WindowAggregator's instance
+     */
+    public static WindowAggregator tumbling(int windowSize, double... percentiles) {
+        return new WindowAggregator(windowSize, windowSize, percentiles);
+    }
+
+    /**
+     * Creates an aggregator over overlapping windows
+     * @param windowSize number of samples in a window
+     * @param slide number of samples added between two aggregates, up to windowSize
+     * @param percentiles percentiles calculated for each window, between 0 and 100
+     * @return WindowAggregator's instance
+     */
+    public static WindowAggregator sliding(int windowSize, int slide, double... percentiles) {
+        return new WindowAggregator(windowSize, slide, percentiles);
+    }
+
+    /**
+     * Constructor that is private, use {@link #tumbling(int, double...)} or {@link #sliding(int, int, double...)}
+     */
+    private WindowAggregator(int windowSize, int slide, double[] percentiles) {
+        if (windowSize < 1) {
+            throw new IllegalArgumentException("windowSize < 1 : " + windowSize);
+        }
+
+        if (slide < 1 || slide > windowSize) {
+            throw new IllegalArgumentException("slide must be between 1 and windowSize : " + slide);
+        }
+
+        for (double percentile : percentiles) {
+            if (!(percentile >= 0 && percentile <= 100)) {
+                throw new IllegalArgumentException("percentile must be between 0 and 100 : " + percentile);
+            }
+        }
+
+        mSamples = new double[windowSize];
+        mSortBuffer = percentiles.length > 0 ? new double[windowSize] : null;
+        mSlide = slide;
+        mPercentiles = percentiles.clone();
+    }
+
+    /**
+     * Adds a sample to the window
+     * @param sample sample of the regular task
+     * @return the aggregate of the window if it is due, otherwise null
+     */
+    public WindowAggregate add(double sample) {
+        mSamples[mWriteIndex] = sample;
+        mWriteIndex = (mWriteIndex + 1) % mSamples.length;
+        if (mCount < mSamples.length) {
+            mCount++;
+        }
+
+        /*
+        a sliding window emits only once it is full
+         */
+        if (++mSinceEmitted < mSlide || mCount < mSamples.length) {
+            return null;
+        }
+
+        mSinceEmitted = 0;
+        return aggregate();
+    }
+
+    /**
+     * Getter
+     * @return the number of samples in the window
+     */
+    public int getCount() {
+        return mCount;
+    }
+
+    /**
+     * Calculates the aggregate of the samples in the window
+     * @return aggregate of the window
+     */
+    private WindowAggregate aggregate() {
+        final int count = mCount;
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        double sum = 0;
+        for (int i = 0; i < count; i++) {
+            final double sample = mSamples[i];
+            min = Math.min(min, sample);
+            max = Math.max(max, sample);
+            sum += sample;
+        }
+
+        final double[] percentileValues = new double[mPercentiles.length];
+        if (percentileValues.length > 0) {
+            System.arraycopy(mSamples, 0, mSortBuffer, 0, count);
+            Arrays.sort(mSortBuffer, 0, count);
+            for (int i = 0; i < percentileValues.length; i++) {
+                /*
+                nearest rank
+                 */
+                final int rank = (int) Math.ceil(mPercentiles[i] / 100 * count);
+                percentileValues[i] = mSortBuffer[Math.max(0, rank - 1)];
+            }
+        }
+
+        return new WindowAggregate(count, min, max, sum / count, mPercentiles, percentileValues);
+    }
+}
@@ -0,0 +1,275 @@
+package com.badlogic.masaki.scheduler.library;
+
+import android.os.Process;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Executor that gives each {@link Scheduler} a home worker thread, chosen by its tag,
+ * so that a scheduler executed again (after a configuration change, a lease takeover or a shard move)
+ * runs on the same thread as before, along with its thread local data such as {@link SchedulerEventLog}'s buffer
+ * The home worker is only reused while idle, a scheduler whose home worker is busy runs on any idle worker,
+ * which becomes its new home, or on a new worker if none is idle
+ * Other runnables, and schedulers without a tag, have no home and run on any idle worker
+ * A worker keeps no reference to a runnable once it has run
+ * The workers run at the given Android thread priority, the only placement control available to an app;
+ * pinning them to CPUs would need sched_setaffinity from native code, which apps cannot use reliably
+ * A worker left idle for the keep alive time exits, and is created again on demand
+ */
+public class WorkerPool implements Executor {
+
+    public static final String TAG = WorkerPool.class.getSimpleName();
+
+    /**
+     * Default time an idle worker waits before it exits (millis)
+     */
+    public static final long DEFAULT_KEEP_ALIVE_TIME = 60 * 1000;
+
+    /**
+     * Prefix of the workers' names
+     */
+    private final String mName;
+
+    /**
+     * Android thread priority of the workers, one of {@link Process}'s THREAD_PRIORITY_ constants
+     */
+    private final int mThreadPriority;
+
+    /**
+     * Time an idle worker waits before it exits (millis)
+     */
+    private final long mKeepAliveTime;
+
+    /**
+     * Idle workers keyed by home key, in the order they became idle, guarded by this instance
+     */
+    private final LinkedHashMap<Object, Worker> mIdleWorkers = new LinkedHashMap<>();
+
+    /**
+     * Idle workers without a home key, guarded by this instance
+     */
+    private final ArrayDeque<Worker> mSpareWorkers = new ArrayDeque<>();
+
+    /**
+     * Number of live workers, guarded by this instance
+     */
+    private int mWorkerCount;
+
+    /**
+     * Number of workers created so far, used to name them, guarded by this instance
+     */
+    private int mCreatedCount;
+
+    /**
+     * Constructor
+     *
+     * @param name prefix of the workers' names
+     * @param threadPriority Android thread priority of the workers, e.g. {@link Process#THREAD_PRIORITY_DEFAULT}
+     */
+    public WorkerPool(String name, int threadPriority) {
+        this(name, threadPriority, DEFAULT_KEEP_ALIVE_TIME);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param name prefix of the workers' names
+     * @param threadPriority Android thread priority of the workers, e.g. {@link Process#THREAD_PRIORITY_DEFAULT}
+     * @param keepAliveTime time an idle worker waits before it exits (millis)
+     */
+    public WorkerPool(String name, int threadPriority, long keepAliveTime) {
+        if (name == null) {
+            throw new IllegalArgumentException("name must not be null");
+        }
+
+        if (keepAliveTime < 1) {
+            throw new IllegalArgumentException("keepAliveTime < 1 : " + keepAliveTime);
+        }
+
+        mName = name;
+        mThreadPriority = threadPriority;
+        mKeepAliveTime = keepAliveTime;
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        if (command == null) {
+            throw new IllegalArgumentException("command must not be null");
+        }
+
+        final Object key = homeKey(command);
+        synchronized (this) {
+            Worker worker = key != null ? mIdleWorkers.remove(key) : null;
+            if (worker == null) {
+                worker = takeAnyIdleWorker();
+            }
+
+            if (worker != null) {
+                worker.mKey = key;
+                worker.mQueue.add(command);
+                return;
+            }
+
+            worker = new Worker(key, mName + "-" + mCreatedCount++);
+            worker.mQueue.add(command);
+            mWorkerCount++;
+            worker.start();
+        }
+    }
+
+    /**
+     * Getter
+     * @return the number of live workers
+     */
+    public synchronized int getWorkerCount() {
+        return mWorkerCount;
+    }
+
+    /**
+     * Getter
+     * @return the number of workers waiting for a runnable
+     */
+    public synchronized int getIdleWorkerCount() {
+        return mIdleWorkers.size() + mSpareWorkers.size();
+    }
+
+    /**
+     * Calculates the key the home worker of the runnable is chosen by
+     * @param command runnable to execute
+     * @return the scheduler's tag, or null if the runnable has no home
+     */
+    private static Object homeKey(Runnable command) {
+        if (command instanceof Scheduler) {
+            return ((Scheduler) command).getTag();
+        }
+        return null;
+    }
+
+    /**
+     * Takes an idle worker, the last spare one, otherwise the one idle for the longest time
+     * Must be called with this instance's lock held
+     * @return the idle worker, or null if none
+     */
+    private Worker takeAnyIdleWorker() {
+        final Worker spareWorker = mSpareWorkers.pollLast();
+        if (spareWorker != null) {
+            return spareWorker;
+        }
+
+        final Iterator<Worker> iterator = mIdleWorkers.values().iterator();
+        if (!iterator.hasNext()) {
+            return null;
+        }
+
+        final Worker worker = iterator.next();
+        iterator.remove();
+        return worker;
+    }
+
+    /**
+     * Called by a worker that has finished its runnable to wait for the next one
+     * The worker becomes a spare one if it has no home key or another worker is already idle for it
+     * @param worker worker becoming idle
+     */
+    private synchronized void idle(Worker worker) {
+        if (worker.mKey == null || mIdleWorkers.containsKey(worker.mKey)) {
+            worker.mKey = null;
+            mSpareWorkers.add(worker);
+            return;
+        }
+
+        mIdleWorkers.put(worker.mKey, worker);
+    }
+
+    /**
+     * Called by an idle worker to exit, unless a runnable has been handed to it in the meantime
+     * @param worker idle worker
+     * @return true if the worker may exit
+     */
+    private synchronized boolean retire(Worker worker) {
+        if (!worker.mQueue.isEmpty()) {
+            return false;
+        }
+
+        if (!mSpareWorkers.remove(worker) && mIdleWorkers.get(worker.mKey) == worker) {
+            mIdleWorkers.remove(worker.mKey);
+        }
+        mWorkerCount--;
+        return true;
+    }
+
+    /**
+     * Thread running the runnables of a home key, one at a time
+     */
+    private final class Worker extends Thread {
+
+        /**
+         * Home key, or null for a spare worker, guarded by the pool
+         */
+        private Object mKey;
+
+        private final BlockingQueue<Runnable> mQueue = new LinkedBlockingQueue<>();
+
+        private Worker(Object key, String name) {
+            super(name);
+            mKey = key;
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            Process.setThreadPriority(mThreadPriority);
+
+            Runnable command = mQueue.poll();
+            while (command != null) {
+                try {
+                    command.run();
+                } catch (RuntimeException e) {
+                    e.printStackTrace();
+                }
+
+                /*
+                lets the runnable, e.g. a finished scheduler, be collected while the worker waits
+                 */
+                command = null;
+
+                /*
+                clears an interruption left by the runnable, e.g. by the tick watchdog
+                 */
+                Thread.interrupted();
+
+                command = awaitNext();
+            }
+        }
+
+        /**
+         * Waits for the next runnable
+         * @return the next runnable, or null if the worker exits
+         */
+        private Runnable awaitNext() {
+            idle(this);
+
+            while (true) {
+                try {
+                    final Runnable command = mQueue.poll(mKeepAliveTime, TimeUnit.MILLISECONDS);
+                    if (command != null) {
+                        return command;
+                    }
+                } catch (InterruptedException e) {
+                    e.printStackTrace();
+                    continue;
+                }
+
+                if (retire(this)) {
+                    return null;
+                }
+            }
+        }
+    }
+}
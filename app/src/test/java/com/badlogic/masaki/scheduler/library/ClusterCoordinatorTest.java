@@ -0,0 +1,128 @@
+package com.badlogic.masaki.scheduler.library;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs two nodes sharing an {@link InProcessLeaseStore} and checks the failover of a logical scheduler
+ */
+public class ClusterCoordinatorTest {
+
+    private static final String NAME = "poll";
+    private static final long LEASE_DURATION = 300;
+
+    private ExecutorService mExecutor;
+    private LeaseStore mStore;
+    private ClusterCoordinator.SchedulerFactory mFactory;
+    private ClusterCoordinator mNodeA;
+    private ClusterCoordinator mNodeB;
+
+    @Before
+    public void setUp() {
+        mExecutor = Executors.newCachedThreadPool();
+        final SchedulerEngine engine = new SchedulerEngine(mExecutor);
+        mStore = new InProcessLeaseStore();
+        mFactory = new ClusterCoordinator.SchedulerFactory() {
+            @Override
+            public Scheduler newScheduler(String name) {
+                return new Scheduler(20, Scheduler.DURATION_REAL_TIME) {
+                    @Override
+                    protected void executeRegularTask() {
+                    }
+                }.allowSkipFrameWhenDelayed(false).setCallbackExecutor(VirtualClock.DIRECT_EXECUTOR);
+            }
+        };
+
+        mNodeA = new ClusterCoordinator(mStore, "a", LEASE_DURATION, engine).register(NAME, mFactory);
+        mNodeB = new ClusterCoordinator(mStore, "b", LEASE_DURATION, engine).register(NAME, mFactory);
+    }
+
+    @After
+    public void tearDown() {
+        mNodeA.stop();
+        mNodeB.stop();
+        mExecutor.shutdownNow();
+    }
+
+    @Test
+    public void onlyOneNodeOwnsTheScheduler() {
+        mNodeA.renew();
+        mNodeB.renew();
+
+        assertTrue(mNodeA.isOwner(NAME));
+        assertFalse(mNodeB.isOwner(NAME));
+    }
+
+    @Test
+    public void stateIsHandedOverOnFailover() throws Exception {
+        mNodeA.renew();
+        Thread.sleep(200);
+        mNodeA.renew();
+
+        final SchedulersSavedState stateOfA = mNodeA.getScheduler(NAME).saveInstanceState();
+        assertTrue(stateOfA.getCurrentFrameCount() > 0);
+
+        /*
+        node A stops renewing without giving up the lease, as if it had crashed
+         */
+        mNodeB.renew();
+        assertFalse(mNodeB.isOwner(NAME));
+        Thread.sleep(LEASE_DURATION);
+        mNodeB.renew();
+
+        assertTrue(mNodeB.isOwner(NAME));
+        final SchedulersSavedState stateOfB = mNodeB.getScheduler(NAME).saveInstanceState();
+        assertEquals(stateOfA.getTaskStartedTime(), stateOfB.getTaskStartedTime());
+        assertEquals(stateOfA.getFrameStartedTime(), stateOfB.getFrameStartedTime());
+        assertTrue(stateOfB.getCurrentFrameCount() >= stateOfA.getCurrentFrameCount());
+
+        /*
+        node A notices the lost lease and stops its scheduler
+         */
+        mNodeA.renew();
+        assertFalse(mNodeA.isOwner(NAME));
+    }
+
+    @Test
+    public void rejectedSchedulerHandsTheLeaseOver() {
+        final SchedulerEngine rejectingEngine = new SchedulerEngine(mExecutor).setAdmissionController(
+                new AdmissionController() {
+                    @Override
+                    public int onSubmit(Scheduler scheduler, EngineLoad load) {
+                        return REJECT;
+                    }
+
+                    @Override
+                    public int getDegradedPriority(EngineLoad load) {
+                        return Scheduler.PRIORITY_LOW;
+                    }
+                });
+        final ClusterCoordinator node = new ClusterCoordinator(mStore, "c", LEASE_DURATION, rejectingEngine)
+                .register(NAME, mFactory);
+        node.renew();
+        assertFalse(node.isOwner(NAME));
+        assertNull(node.getScheduler(NAME));
+
+        /*
+        the lease is released at once, so another node need not wait for it to expire
+         */
+        mNodeB.renew();
+        assertTrue(mNodeB.isOwner(NAME));
+        node.stop();
+    }
+
+    @Test
+    public void stopHandsOverAtOnce() {
+        mNodeA.renew();
+        mNodeA.stop();
+        mNodeB.renew();
+
+        assertTrue(mNodeB.isOwner(NAME));
+    }
+}
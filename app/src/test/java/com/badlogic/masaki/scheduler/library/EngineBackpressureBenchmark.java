@@ -0,0 +1,101 @@
+package com.badlogic.masaki.scheduler.library;
+
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Overloads an engine with schedulers of mixed priorities for a while, and reports how the admission controller
+ * keeps the high priority schedulers on time by rejecting, deferring and degrading the others
+ * Run manually, it is not part of the unit tests
+ */
+@Ignore("benchmark")
+public class EngineBackpressureBenchmark {
+
+    private static final long SOAK_TIME = 2000;
+    private static final long SUBMIT_INTERVAL = 5;
+    private static final long INTERVAL = 20;
+    private static final long DURATION = 1000;
+    private static final long TICK_TIME = 2;
+    private static final int MAX_CONCURRENT_TICKS = 4;
+
+    private final AtomicLongArray mStarted = new AtomicLongArray(Scheduler.PRIORITY_HIGH + 1);
+    private final AtomicLongArray mTicks = new AtomicLongArray(Scheduler.PRIORITY_HIGH + 1);
+
+    @Test
+    public void gracefulDegradation() throws Exception {
+        final ExecutorService executor = Executors.newCachedThreadPool(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                final Thread thread = new Thread(runnable);
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        final SchedulerEngine engine = new SchedulerEngine(executor)
+                .setMaxConcurrentTicks(MAX_CONCURRENT_TICKS)
+                .setLoadWindow(500)
+                .setAdmissionController(new LoadAdmissionController(MAX_CONCURRENT_TICKS * 2, INTERVAL, 0.2));
+
+        final long startTime = System.currentTimeMillis();
+        long nextReport = startTime;
+        int submitted = 0;
+        while (System.currentTimeMillis() - startTime < SOAK_TIME) {
+            engine.execute(createScheduler(submitted % (Scheduler.PRIORITY_HIGH + 1)));
+            submitted++;
+
+            if (System.currentTimeMillis() >= nextReport) {
+                System.out.println("t=" + (System.currentTimeMillis() - startTime) + "ms " + engine.getLoad()
+                        + " degraded<" + engine.getDegradedPriority() + " deferred=" + engine.getDeferredCount()
+                        + " rejected=" + engine.getRejectedCount());
+                nextReport += 500;
+            }
+            Thread.sleep(SUBMIT_INTERVAL);
+        }
+
+        /*
+        waits for the running and deferred schedulers to drain
+         */
+        final long drainDeadline = System.currentTimeMillis() + DURATION * 10;
+        while ((engine.getLoad().getRunningSchedulers() > 0 || engine.getDeferredCount() > 0)
+                && System.currentTimeMillis() < drainDeadline) {
+            Thread.sleep(50);
+        }
+        executor.shutdownNow();
+        executor.awaitTermination(1, TimeUnit.SECONDS);
+
+        final double[] ratios = new double[Scheduler.PRIORITY_HIGH + 1];
+        for (int priority = Scheduler.PRIORITY_LOW; priority <= Scheduler.PRIORITY_HIGH; priority++) {
+            final long expected = mStarted.get(priority) * (DURATION / INTERVAL);
+            ratios[priority] = expected > 0 ? (double) mTicks.get(priority) / expected : 0;
+            System.out.println("priority " + priority + ": started=" + mStarted.get(priority)
+                    + " ticks=" + mTicks.get(priority) + " on-time ratio=" + String.format("%.2f", ratios[priority]));
+        }
+        System.out.println(submitted + " submitted, " + engine.getRejectedCount() + " rejected");
+    }
+
+    private Scheduler createScheduler(final int priority) {
+        return new Scheduler(INTERVAL, DURATION, Scheduler.DURATION_REAL_TIME) {
+            private boolean mRunning;
+
+            @Override
+            protected void executeRegularTask() {
+                if (!mRunning) {
+                    mRunning = true;
+                    mStarted.incrementAndGet(priority);
+                }
+                mTicks.incrementAndGet(priority);
+
+                final long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(TICK_TIME);
+                while (System.nanoTime() < end) {
+                    Thread.yield();
+                }
+            }
+        }.setPriority(priority).setCallbackExecutor(VirtualClock.DIRECT_EXECUTOR);
+    }
+}
@@ -0,0 +1,175 @@
+package com.badlogic.masaki.scheduler.library;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the leases and the states of {@link FileLeaseStore} in a temporary directory,
+ * with two instances on the same directory standing in for two nodes
+ */
+public class FileLeaseStoreTest {
+
+    private static final String NAME = "poll";
+    private static final long LEASE_DURATION = 200;
+
+    private File mDirectory;
+    private FileLeaseStore mStoreA;
+    private FileLeaseStore mStoreB;
+
+    @Before
+    public void setUp() throws IOException {
+        mDirectory = File.createTempFile("leases", "");
+        assertTrue(mDirectory.delete());
+        mStoreA = new FileLeaseStore(mDirectory);
+        mStoreB = new FileLeaseStore(mDirectory);
+    }
+
+    @After
+    public void tearDown() {
+        final File[] files = mDirectory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        mDirectory.delete();
+    }
+
+    @Test
+    public void leaseIsHeldByOneOwnerUntilExpired() throws Exception {
+        assertNull(mStoreA.getOwner(NAME));
+        assertTrue(mStoreA.tryAcquire(NAME, "a", LEASE_DURATION));
+        assertTrue(mStoreA.tryAcquire(NAME, "a", LEASE_DURATION));
+        assertFalse(mStoreB.tryAcquire(NAME, "b", LEASE_DURATION));
+        assertEquals("a", mStoreB.getOwner(NAME));
+
+        Thread.sleep(LEASE_DURATION + 10);
+        assertNull(mStoreB.getOwner(NAME));
+        assertTrue(mStoreB.tryAcquire(NAME, "b", LEASE_DURATION));
+        assertEquals("b", mStoreA.getOwner(NAME));
+    }
+
+    @Test
+    public void releasedLeaseIsFreeAtOnce() throws Exception {
+        assertTrue(mStoreA.tryAcquire(NAME, "a", LEASE_DURATION));
+        mStoreB.release(NAME, "b");
+        assertEquals("a", mStoreB.getOwner(NAME));
+
+        mStoreA.release(NAME, "a");
+        assertNull(mStoreB.getOwner(NAME));
+        assertTrue(mStoreB.tryAcquire(NAME, "b", LEASE_DURATION));
+    }
+
+    @Test
+    public void stateIsSavedByTheOwnerOnly() throws Exception {
+        final byte[] state = {1, 2, 3};
+        assertNull(mStoreA.loadState(NAME));
+        assertFalse(mStoreA.saveState(NAME, "a", state));
+        assertNull(mStoreA.loadState(NAME));
+
+        assertTrue(mStoreA.tryAcquire(NAME, "a", LEASE_DURATION));
+        assertTrue(mStoreA.saveState(NAME, "a", state));
+        assertFalse(mStoreB.saveState(NAME, "b", new byte[]{4}));
+        assertTrue(Arrays.equals(state, mStoreB.loadState(NAME)));
+
+        /*
+        once the lease has expired, the previous owner cannot overwrite the state of the next one
+         */
+        Thread.sleep(LEASE_DURATION + 10);
+        assertFalse(mStoreA.saveState(NAME, "a", new byte[]{5}));
+        assertTrue(mStoreB.tryAcquire(NAME, "b", LEASE_DURATION));
+        assertTrue(mStoreB.saveState(NAME, "b", new byte[]{6, 7}));
+        assertTrue(Arrays.equals(new byte[]{6, 7}, mStoreA.loadState(NAME)));
+    }
+
+    @Test
+    public void instancesOnTheSameDirectoryShareTheFiles() throws Exception {
+        final int threadCount = 4;
+        final int roundCount = 200;
+        final AtomicInteger acquiredCount = new AtomicInteger();
+        final AtomicReference<Throwable> thrown = new AtomicReference<>();
+        final List<Thread> threads = new ArrayList<>();
+
+        /*
+        the threads go through two instances, so they lock the same files concurrently
+         */
+        for (int t = 0; t < threadCount; t++) {
+            final FileLeaseStore store = t % 2 == 0 ? mStoreA : mStoreB;
+            final String owner = "node" + t;
+            final Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        for (int i = 0; i < roundCount; i++) {
+                            if (store.tryAcquire(NAME, owner, LEASE_DURATION)) {
+                                acquiredCount.incrementAndGet();
+                                assertTrue(store.saveState(NAME, owner, owner.getBytes("UTF-8")));
+                                store.loadState(NAME);
+                                store.release(NAME, owner);
+                            }
+                        }
+                    } catch (Throwable e) {
+                        thrown.set(e);
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertNull(thrown.get());
+        assertTrue(acquiredCount.get() > 0);
+        assertNull(mStoreA.getOwner(NAME));
+    }
+
+    @Test
+    public void damagedStateIsReportedAsCorrupt() throws Exception {
+        assertTrue(mStoreA.tryAcquire(NAME, "a", LEASE_DURATION));
+        assertTrue(mStoreA.saveState(NAME, "a", new byte[]{1, 2, 3}));
+
+        /*
+        a state file cut short, as a crash in the middle of an in-place write would leave it
+         */
+        final File stateFile = new File(mDirectory, NAME + ".state");
+        final FileOutputStream out = new FileOutputStream(stateFile);
+        try {
+            out.write(new byte[]{0, 0, 0, 3, 1});
+        } finally {
+            out.close();
+        }
+
+        try {
+            mStoreB.loadState(NAME);
+            fail("corrupt state loaded");
+        } catch (StreamCorruptedException expected) {
+        }
+
+        /*
+        the next save replaces the damaged file as a whole
+         */
+        assertTrue(mStoreA.saveState(NAME, "a", new byte[]{4}));
+        assertTrue(Arrays.equals(new byte[]{4}, mStoreB.loadState(NAME)));
+        assertFalse(new File(mDirectory, NAME + ".state.tmp").exists());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void nameOutsideTheDirectoryIsRejected() throws Exception {
+        mStoreA.tryAcquire("../" + NAME, "a", LEASE_DURATION);
+    }
+}
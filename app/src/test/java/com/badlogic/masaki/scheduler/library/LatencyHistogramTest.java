@@ -0,0 +1,68 @@
+package com.badlogic.masaki.scheduler.library;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.zip.Inflater;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the bytes written by {@link LatencyHistogram} and {@link LatencyLogWriter} against the encodings
+ * of HdrHistogram and RFC 4648, worked out by hand
+ */
+public class LatencyHistogramTest {
+
+    /**
+     * V2 encoding of a histogram of 1 hour with 3 digits holding the values 1 and 1000
+     */
+    private static final byte[] ENCODED = {
+            /*
+            cookie, payload length, normalizing index offset, significant digits
+             */
+            0x1C, (byte) 0x84, (byte) 0x93, 0x13, 0x00, 0x00, 0x00, 0x05,
+            0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x03,
+            /*
+            lowest discernible value, highest trackable value, integer to double ratio
+             */
+            0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x01,
+            0x00, 0x00, 0x03, 0x46, 0x30, (byte) 0xB8, (byte) 0xA0, 0x00,
+            0x3F, (byte) 0xF0, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00,
+            /*
+            a single 0, the count of 1, a run of 998 zeros, the count of 1000
+             */
+            0x00, 0x02, (byte) 0xCB, 0x0F, 0x02
+    };
+
+    @Test
+    public void compressedEncodingMatchesHdrHistogram() throws Exception {
+        final LatencyHistogram histogram =
+                new LatencyHistogram(LoadGenerator.HIGHEST_TRACKABLE_LATENCY, LoadGenerator.SIGNIFICANT_DIGITS);
+        histogram.recordValue(1);
+        histogram.recordValue(1000);
+
+        final byte[] compressed = histogram.encodeCompressed();
+        final ByteBuffer header = ByteBuffer.wrap(compressed);
+        assertEquals(0x1c849314, header.getInt());
+        assertEquals(compressed.length - 8, header.getInt());
+
+        final Inflater inflater = new Inflater();
+        inflater.setInput(compressed, 8, compressed.length - 8);
+        final byte[] encoded = new byte[ENCODED.length + 1];
+        final int length = inflater.inflate(encoded);
+        assertTrue(inflater.finished());
+        inflater.end();
+
+        assertTrue(Arrays.equals(ENCODED, Arrays.copyOf(encoded, length)));
+    }
+
+    @Test
+    public void base64MatchesTheTestVectors() throws Exception {
+        final String[] expected = {"", "Zg==", "Zm8=", "Zm9v", "Zm9vYg==", "Zm9vYmE=", "Zm9vYmFy"};
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i], LatencyLogWriter.base64("foobar".substring(0, i).getBytes("US-ASCII")));
+        }
+        assertEquals("/+8=", LatencyLogWriter.base64(new byte[]{(byte) 0xFF, (byte) 0xEF}));
+    }
+}
@@ -0,0 +1,89 @@
+package com.badlogic.masaki.scheduler.library;
+
+import org.junit.Ignore;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Reports the memory footprint of a million lightweight timers and the tick throughput of the pool
+ * Run manually, it is not part of the unit tests
+ */
+@Ignore("benchmark")
+public class LightweightTimersBenchmark {
+
+    private static final int TIMER_COUNT = 1000 * 1000;
+
+    private static final LightweightTimers.TickHandler NO_OP_HANDLER = new LightweightTimers.TickHandler() {
+        @Override
+        public void onTick(int handle, int frameCount) {
+        }
+
+        @Override
+        public void onSkipFrames(int handle, int frameCount, int skipCount) {
+        }
+
+        @Override
+        public void onCompleted(int handle) {
+        }
+    };
+
+    @Test
+    public void footprintPerTimer() {
+        final Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        final long usedBefore = runtime.totalMemory() - runtime.freeMemory();
+
+        final LightweightTimers timers = new LightweightTimers(TIMER_COUNT, NO_OP_HANDLER, new VirtualClock(0));
+        for (int i = 0; i < TIMER_COUNT; i++) {
+            timers.add(100 + i % 900, Scheduler.TASK_DURATION_INFINITE);
+        }
+
+        System.gc();
+        final long usedAfter = runtime.totalMemory() - runtime.freeMemory();
+        final long measured = (usedAfter - usedBefore) / TIMER_COUNT;
+        final long computed = timers.getFootprintBytes() / TIMER_COUNT;
+        System.out.println(TIMER_COUNT + " lightweight timers: " + computed + " bytes/timer in arrays, "
+                + measured + " bytes/timer measured on the heap");
+
+        assertEquals(TIMER_COUNT, timers.getTimerCount());
+        assertTrue(computed < 64);
+    }
+
+    @Test
+    public void tickThroughput() {
+        final int timerCount = 100 * 1000;
+        final long simulatedTime = 10 * 1000;
+        final VirtualClock clock = new VirtualClock(0);
+        final long[] ticks = new long[1];
+        final LightweightTimers timers = new LightweightTimers(timerCount, new LightweightTimers.TickHandler() {
+            @Override
+            public void onTick(int handle, int frameCount) {
+                ticks[0]++;
+            }
+
+            @Override
+            public void onSkipFrames(int handle, int frameCount, int skipCount) {
+            }
+
+            @Override
+            public void onCompleted(int handle) {
+            }
+        }, clock);
+        for (int i = 0; i < timerCount; i++) {
+            timers.add(100 + i % 900, Scheduler.TASK_DURATION_INFINITE);
+        }
+
+        final long startTime = System.nanoTime();
+        for (long time = 0; time <= simulatedTime; time++) {
+            timers.processDueTimers();
+            clock.advance(1);
+        }
+        final long elapsed = System.nanoTime() - startTime;
+
+        System.out.println(timerCount + " lightweight timers, " + simulatedTime + "ms simulated: " + ticks[0]
+                + " ticks in " + elapsed / 1000000 + "ms, " + (elapsed / Math.max(ticks[0], 1)) + "ns/tick");
+
+        assertEquals(simulatedTime / 100 + 1, timers.getFrameCount(0));
+    }
+}
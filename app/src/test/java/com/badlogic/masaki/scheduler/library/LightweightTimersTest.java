@@ -0,0 +1,172 @@
+package com.badlogic.masaki.scheduler.library;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Drives {@link LightweightTimers} with {@link LightweightTimers#processDueTimers()} on a {@link VirtualClock},
+ * recording every call of the handler with the time it is made at
+ */
+public class LightweightTimersTest {
+
+    private VirtualClock mClock;
+    private RecordingHandler mHandler;
+    private LightweightTimers mTimers;
+
+    @Before
+    public void setUp() {
+        mClock = new VirtualClock(0);
+        mHandler = new RecordingHandler();
+        mTimers = new LightweightTimers(2, mHandler, mClock);
+    }
+
+    @Test
+    public void timersTickInDeadlineOrder() {
+        final int slow = mTimers.add(170, Scheduler.TASK_DURATION_INFINITE);
+        final int fast = mTimers.add(100, Scheduler.TASK_DURATION_INFINITE);
+        final int middle = mTimers.add(130, Scheduler.TASK_DURATION_INFINITE);
+        assertEquals(100, mTimers.processDueTimers());
+        assertEquals(3, mHandler.mEvents.size());
+        mHandler.mEvents.clear();
+
+        advanceTo(300);
+
+        assertEquals(6, mHandler.mEvents.size());
+        assertEquals("tick " + fast + " 1 at 100", mHandler.mEvents.get(0));
+        assertEquals("tick " + middle + " 1 at 130", mHandler.mEvents.get(1));
+        assertEquals("tick " + slow + " 1 at 170", mHandler.mEvents.get(2));
+        assertEquals("tick " + fast + " 2 at 200", mHandler.mEvents.get(3));
+        assertEquals("tick " + middle + " 2 at 260", mHandler.mEvents.get(4));
+        assertEquals("tick " + fast + " 3 at 300", mHandler.mEvents.get(5));
+        assertEquals(2, mTimers.getFrameCount(slow));
+        assertEquals(4, mTimers.getFrameCount(fast));
+        assertEquals(3, mTimers.getFrameCount(middle));
+        assertEquals(340, mTimers.processDueTimers());
+    }
+
+    @Test
+    public void pausedTimerKeepsTheTimeLeft() {
+        final int handle = mTimers.add(100, Scheduler.TASK_DURATION_INFINITE);
+        advanceTo(30);
+        mTimers.pause(handle);
+        assertEquals(LightweightTimers.STATE_PAUSED, mTimers.getState(handle));
+        assertEquals(Long.MAX_VALUE, mTimers.processDueTimers());
+
+        advanceTo(500);
+        mTimers.resume(handle);
+        assertEquals(570, mTimers.processDueTimers());
+        advanceTo(570);
+
+        assertEquals(2, mHandler.mEvents.size());
+        assertEquals("tick " + handle + " 1 at 570", mHandler.mEvents.get(1));
+        assertEquals(100, mTimers.getElapsedActiveTime(handle));
+    }
+
+    @Test
+    public void cancelledHandleIsReused() {
+        final int first = mTimers.add(100, Scheduler.TASK_DURATION_INFINITE);
+        final int second = mTimers.add(100, Scheduler.TASK_DURATION_INFINITE);
+        final int third = mTimers.add(100, Scheduler.TASK_DURATION_INFINITE);
+        mTimers.cancel(second);
+        mTimers.cancel(first);
+        assertEquals(LightweightTimers.STATE_FREE, mTimers.getState(second));
+        assertEquals(1, mTimers.getTimerCount());
+
+        /*
+        the last freed handle is reused first, and starts from frame 0
+         */
+        assertEquals(first, mTimers.add(100, Scheduler.TASK_DURATION_INFINITE));
+        assertEquals(second, mTimers.add(100, Scheduler.TASK_DURATION_INFINITE));
+        assertEquals(third + 1, mTimers.add(100, Scheduler.TASK_DURATION_INFINITE));
+        assertEquals(0, mTimers.getFrameCount(second));
+        assertEquals(4, mTimers.getTimerCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void freeHandleIsRejected() {
+        final int handle = mTimers.add(100, Scheduler.TASK_DURATION_INFINITE);
+        mTimers.cancel(handle);
+        mTimers.pause(handle);
+    }
+
+    @Test
+    public void handlerCanCancelItsTimer() {
+        final int handle = mTimers.add(100, Scheduler.TASK_DURATION_INFINITE);
+        mHandler.mCancelAtFrame = 2;
+        advanceTo(500);
+
+        assertEquals(3, mHandler.mEvents.size());
+        assertEquals(LightweightTimers.STATE_FREE, mTimers.getState(handle));
+        assertEquals(0, mTimers.getTimerCount());
+    }
+
+    @Test
+    public void lateFramesAreSkippedAndReported() {
+        final int handle = mTimers.add(100, Scheduler.TASK_DURATION_INFINITE);
+        mTimers.processDueTimers();
+        mClock.advance(350);
+        assertEquals(400, mTimers.processDueTimers());
+
+        assertEquals(3, mHandler.mEvents.size());
+        assertEquals("skip " + handle + " 1 x2 at 350", mHandler.mEvents.get(1));
+        assertEquals("tick " + handle + " 3 at 350", mHandler.mEvents.get(2));
+        assertEquals(4, mTimers.getFrameCount(handle));
+    }
+
+    @Test
+    public void handleIsFreedAfterCompletion() {
+        final int handle = mTimers.add(100, 250);
+        advanceTo(300);
+
+        /*
+        the handle is still in use while the handler is notified of the completion
+         */
+        assertEquals(4, mHandler.mEvents.size());
+        assertEquals("tick " + handle + " 2 at 200", mHandler.mEvents.get(2));
+        assertEquals("completed " + handle + " state 3 at 250", mHandler.mEvents.get(3));
+        assertEquals(LightweightTimers.STATE_FREE, mTimers.getState(handle));
+        assertEquals(0, mTimers.getTimerCount());
+        assertEquals(handle, mTimers.add(100, 250));
+    }
+
+    /**
+     * Moves the clock a millisecond at a time up to the time, processing the due timers at each step
+     */
+    private void advanceTo(long time) {
+        mTimers.processDueTimers();
+        while (mClock.currentTimeMillis() < time) {
+            mClock.advance(1);
+            mTimers.processDueTimers();
+        }
+    }
+
+    private class RecordingHandler implements LightweightTimers.TickHandler {
+
+        private final List<String> mEvents = new ArrayList<>();
+        private int mCancelAtFrame = -1;
+
+        @Override
+        public void onTick(int handle, int frameCount) {
+            mEvents.add("tick " + handle + " " + frameCount + " at " + mClock.currentTimeMillis());
+            if (frameCount == mCancelAtFrame) {
+                mTimers.cancel(handle);
+            }
+        }
+
+        @Override
+        public void onSkipFrames(int handle, int frameCount, int skipCount) {
+            mEvents.add("skip " + handle + " " + frameCount + " x" + skipCount + " at " + mClock.currentTimeMillis());
+        }
+
+        @Override
+        public void onCompleted(int handle) {
+            mEvents.add("completed " + handle + " state " + mTimers.getState(handle)
+                    + " at " + mClock.currentTimeMillis());
+        }
+    }
+}
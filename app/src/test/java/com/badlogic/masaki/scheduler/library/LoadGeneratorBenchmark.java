@@ -0,0 +1,99 @@
+package com.badlogic.masaki.scheduler.library;
+
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.io.StringWriter;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Load tests a simulated service that stalls once in a while, first with a plain scheduler timing each call
+ * (closed loop), then with {@link LoadGenerator} (open loop), and reports the latencies each one measures
+ * Run manually, it is not part of the unit tests
+ */
+@Ignore("benchmark")
+public class LoadGeneratorBenchmark {
+
+    private static final long INTERVAL = 10;
+    private static final long DURATION = 2000;
+    private static final long SERVICE_TIME = 1;
+    private static final long STALL_TIME = 200;
+    private static final int STALL_EVERY = 150;
+
+    private final Object mServiceLock = new Object();
+    private int mRequestCount;
+
+    @Test
+    public void coordinatedOmission() throws Exception {
+        final LatencyHistogram closedLoop = runClosedLoop();
+        final LatencyHistogram openLoop = runOpenLoop();
+
+        report("closed loop", closedLoop);
+        report("open loop", openLoop);
+
+        final StringWriter log = new StringWriter();
+        final LatencyLogWriter writer = new LatencyLogWriter(log, 0);
+        writer.writeInterval(0, DURATION, openLoop);
+        System.out.print(log);
+    }
+
+    private LatencyHistogram runClosedLoop() {
+        mRequestCount = 0;
+        final LatencyHistogram histogram =
+                new LatencyHistogram(LoadGenerator.HIGHEST_TRACKABLE_LATENCY, LoadGenerator.SIGNIFICANT_DIGITS);
+        new Scheduler(INTERVAL, DURATION, Scheduler.DURATION_REAL_TIME) {
+            @Override
+            protected void executeRegularTask() {
+                final long startTime = System.nanoTime();
+                callService();
+                histogram.recordValue(System.nanoTime() - startTime);
+            }
+        }.setCallbackExecutor(VirtualClock.DIRECT_EXECUTOR).run();
+        return histogram;
+    }
+
+    private LatencyHistogram runOpenLoop() throws InterruptedException {
+        mRequestCount = 0;
+        final ExecutorService requestExecutor = Executors.newCachedThreadPool();
+        final LoadGenerator generator = new LoadGenerator(INTERVAL, DURATION, Scheduler.DURATION_REAL_TIME,
+                requestExecutor) {
+            @Override
+            protected void sendRequest() {
+                callService();
+            }
+        };
+        generator.setCallbackExecutor(VirtualClock.DIRECT_EXECUTOR);
+        generator.run();
+
+        requestExecutor.shutdown();
+        requestExecutor.awaitTermination(STALL_TIME * 10, TimeUnit.MILLISECONDS);
+        return generator.getHistogram();
+    }
+
+    /**
+     * Serves one request at a time, and stalls every {@link #STALL_EVERY} requests
+     */
+    private void callService() {
+        synchronized (mServiceLock) {
+            final long time = ++mRequestCount % STALL_EVERY == 0 ? STALL_TIME : SERVICE_TIME;
+            try {
+                Thread.sleep(time);
+            } catch (InterruptedException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private static void report(String name, LatencyHistogram histogram) {
+        System.out.println(name + ": count=" + histogram.getTotalCount()
+                + " p50=" + micros(histogram.getValueAtPercentile(50))
+                + "us p99=" + micros(histogram.getValueAtPercentile(99))
+                + "us max=" + micros(histogram.getMaxValue()) + "us");
+    }
+
+    private static long micros(long nanos) {
+        return TimeUnit.NANOSECONDS.toMicros(nanos);
+    }
+}
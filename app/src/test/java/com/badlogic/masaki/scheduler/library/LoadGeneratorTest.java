@@ -0,0 +1,52 @@
+package com.badlogic.masaki.scheduler.library;
+
+import org.junit.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs a {@link LoadGenerator} sending requests from several threads, and checks that the interval histograms
+ * taken while the requests complete add up to the requests sent
+ */
+public class LoadGeneratorTest {
+
+    @Test
+    public void intervalHistogramsLoseNoLatency() throws Exception {
+        final ExecutorService requestExecutor = Executors.newFixedThreadPool(4);
+        final AtomicInteger requestCount = new AtomicInteger();
+        final LoadGenerator generator = new LoadGenerator(1, 300, Scheduler.DURATION_REAL_TIME, requestExecutor) {
+            @Override
+            protected void sendRequest() {
+                requestCount.incrementAndGet();
+            }
+        };
+        generator.setCallbackExecutor(VirtualClock.DIRECT_EXECUTOR);
+        final Thread thread = new Thread(generator);
+        thread.start();
+
+        long recordedCount = 0;
+        while (thread.isAlive()) {
+            recordedCount += generator.getIntervalHistogram().getTotalCount();
+        }
+        requestExecutor.shutdown();
+        assertTrue(requestExecutor.awaitTermination(1, TimeUnit.SECONDS));
+        recordedCount += generator.getIntervalHistogram().getTotalCount();
+
+        assertTrue(requestCount.get() > 0);
+        assertEquals(requestCount.get(), recordedCount);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void skippingFramesIsRejected() {
+        new LoadGenerator(10, 100, Scheduler.DURATION_REAL_TIME, VirtualClock.DIRECT_EXECUTOR) {
+            @Override
+            protected void sendRequest() {
+            }
+        }.allowSkipFrameWhenDelayed(true);
+    }
+}
@@ -0,0 +1,85 @@
+package com.badlogic.masaki.scheduler.library;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Submits schedulers to a {@link SchedulerEngine} whose executor only records them,
+ * and checks the decisions of the admission controller and the submission of the deferred schedulers
+ */
+public class SchedulerEngineTest {
+
+    private static final long LOAD_WINDOW = 100;
+
+    private final BlockingQueue<Thread> mExecutingThreads = new LinkedBlockingQueue<>();
+    private volatile int mDecision;
+    private SchedulerEngine mEngine;
+
+    @Before
+    public void setUp() {
+        mEngine = new SchedulerEngine(new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                mExecutingThreads.add(Thread.currentThread());
+            }
+        }).setLoadWindow(LOAD_WINDOW).setAdmissionController(new AdmissionController() {
+            @Override
+            public int onSubmit(Scheduler scheduler, EngineLoad load) {
+                return mDecision;
+            }
+
+            @Override
+            public int getDegradedPriority(EngineLoad load) {
+                return Scheduler.PRIORITY_LOW;
+            }
+        });
+    }
+
+    @Test
+    public void executeReturnsTheDecision() {
+        mDecision = AdmissionController.ADMIT;
+        assertEquals(AdmissionController.ADMIT, mEngine.execute(createScheduler()));
+        mDecision = AdmissionController.REJECT;
+        assertEquals(AdmissionController.REJECT, mEngine.execute(createScheduler()));
+        mDecision = AdmissionController.DEFER;
+        assertEquals(AdmissionController.DEFER, mEngine.execute(createScheduler()));
+
+        assertEquals(1, mExecutingThreads.size());
+        assertEquals(1, mEngine.getRejectedCount());
+        assertEquals(1, mEngine.getDeferredCount());
+    }
+
+    @Test
+    public void deferredSchedulerIsSubmittedAgainOnTheEnginesThread() throws Exception {
+        mDecision = AdmissionController.DEFER;
+        mEngine.execute(createScheduler());
+
+        /*
+        no regular task runs, still the deferred scheduler is submitted again once the load allows it
+         */
+        Thread.sleep(LOAD_WINDOW);
+        assertTrue(mExecutingThreads.isEmpty());
+        assertEquals(1, mEngine.getDeferredCount());
+        mDecision = AdmissionController.ADMIT;
+
+        final Thread thread = mExecutingThreads.poll(LOAD_WINDOW * 10, TimeUnit.MILLISECONDS);
+        assertNotNull(thread);
+        assertEquals(SchedulerEngine.TAG, thread.getName());
+        assertEquals(0, mEngine.getDeferredCount());
+    }
+
+    private static Scheduler createScheduler() {
+        return new Scheduler(100, 1000, Scheduler.DURATION_REAL_TIME) {
+            @Override
+            protected void executeRegularTask() {
+            }
+        };
+    }
+}
@@ -0,0 +1,44 @@
+package com.badlogic.masaki.scheduler.library;
+
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.io.File;
+
+import static org.junit.Assert.*;
+
+/**
+ * Reports the cost of recording an event
+ * Run manually, it is not part of the unit tests
+ */
+@Ignore("benchmark")
+public class SchedulerEventLogBenchmark {
+
+    private static final int EVENT_COUNT = 5 * 1000 * 1000;
+
+    @Test
+    public void recordingOverhead() throws Exception {
+        final File file = File.createTempFile("scheduler", ".log");
+        file.deleteOnExit();
+        final SchedulerEventLog log = new SchedulerEventLog(file, EVENT_COUNT, SchedulerEventLog.DEFAULT_BUFFER_RECORDS);
+
+        /*
+        warms up, then measures
+         */
+        for (int i = 0; i < EVENT_COUNT / 10; i++) {
+            log.record(1, SchedulerEventLog.EVENT_TICK, i, i, i);
+        }
+        final long startTime = System.nanoTime();
+        for (int i = 0; i < EVENT_COUNT / 10 * 9; i++) {
+            log.record(1, SchedulerEventLog.EVENT_TICK, i, i, i);
+        }
+        final long elapsed = System.nanoTime() - startTime;
+        log.close();
+
+        final long nanosPerEvent = elapsed / (EVENT_COUNT / 10 * 9);
+        System.out.println("event log: " + nanosPerEvent + "ns/event");
+
+        assertEquals(0, log.getDroppedCount());
+        assertEquals(EVENT_COUNT, EventLogReplay.replay(file).get(1).getTickCount());
+    }
+}
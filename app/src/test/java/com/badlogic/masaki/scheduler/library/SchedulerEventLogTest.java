@@ -0,0 +1,220 @@
+package com.badlogic.masaki.scheduler.library;
+
+import android.support.annotation.Nullable;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.*;
+
+/**
+ * Records events from several threads into a {@link SchedulerEventLog} and reads them back with {@link EventLogReplay}
+ */
+public class SchedulerEventLogTest {
+
+    private File mFile;
+
+    @Before
+    public void setUp() throws Exception {
+        mFile = File.createTempFile("scheduler", ".log");
+    }
+
+    @After
+    public void tearDown() {
+        mFile.delete();
+    }
+
+    @Test
+    public void recordsAreReplayedInTimeOrder() throws Exception {
+        final SchedulerEventLog log = new SchedulerEventLog(mFile, 1000, 4, 60 * 1000);
+
+        /*
+        the other thread's batch of even times is flushed before this thread's batch of odd times
+         */
+        log.record(1, SchedulerEventLog.EVENT_TICK, 1, 0, 1);
+        log.record(1, SchedulerEventLog.EVENT_TICK, 3, 1, 3);
+        final Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                for (int time = 0; time < 8; time += 2) {
+                    log.record(2, SchedulerEventLog.EVENT_TICK, time, time / 2, time);
+                }
+            }
+        });
+        thread.start();
+        thread.join();
+        log.record(1, SchedulerEventLog.EVENT_TICK, 5, 2, 5);
+        log.close();
+
+        final List<Long> times = new ArrayList<>();
+        EventLogReplay.replay(mFile, new EventLogReplay.EventHandler() {
+            @Override
+            public void onEvent(int schedulerId, int type, long time, int frameCount, long value) {
+                times.add(time);
+            }
+        });
+
+        assertEquals(7, times.size());
+        for (int i = 0; i < times.size(); i++) {
+            assertEquals(i, times.get(i).longValue());
+        }
+    }
+
+    @Test
+    public void rarelyRecordingThreadIsFlushedPeriodically() throws Exception {
+        final SchedulerEventLog log = new SchedulerEventLog(mFile, 1000, 256, 10);
+        final CountDownLatch recorded = new CountDownLatch(1);
+        final CountDownLatch finished = new CountDownLatch(1);
+        final Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                log.record(3, SchedulerEventLog.EVENT_PAUSE, 100, 0, 0);
+                recorded.countDown();
+                try {
+                    finished.await();
+                } catch (InterruptedException e) {
+                    e.printStackTrace();
+                }
+            }
+        });
+        thread.start();
+        recorded.await();
+
+        /*
+        the thread's buffer is far from full, and the thread is still alive
+         */
+        Map<Integer, EventLogReplay.Timeline> timelines = EventLogReplay.replay(mFile);
+        for (int i = 0; i < 200 && timelines.isEmpty(); i++) {
+            Thread.sleep(10);
+            timelines = EventLogReplay.replay(mFile);
+        }
+        assertEquals(1, timelines.get(3).getPauseCount());
+
+        finished.countDown();
+        thread.join();
+        log.close();
+    }
+
+    @Test
+    public void buffersOfTerminatedThreadsAreForgotten() throws Exception {
+        final SchedulerEventLog log = new SchedulerEventLog(mFile, 1000, 256, 60 * 1000);
+        for (int i = 0; i < 10; i++) {
+            final int schedulerId = i;
+            final Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    log.record(schedulerId, SchedulerEventLog.EVENT_TICK, 0, 0, 0);
+                }
+            });
+            thread.start();
+            thread.join();
+        }
+        assertEquals(10, log.getThreadBufferCount());
+
+        log.flushAll();
+        assertEquals(0, log.getThreadBufferCount());
+        assertEquals(10, EventLogReplay.replay(mFile).size());
+        log.close();
+    }
+
+    @Test
+    public void replayRebuildsTimeline() throws Exception {
+        final SchedulerEventLog log = new SchedulerEventLog(mFile, 10000, 16);
+        final VirtualClock clock = new VirtualClock(0);
+
+        final Scheduler scheduler = new Scheduler(100, 2000, Scheduler.DURATION_REAL_TIME) {
+            @Override
+            protected void executeRegularTask() {
+                clock.advance(10);
+            }
+        };
+        /*
+        the tag is set after the log, still the records are keyed by it
+         */
+        scheduler.setEventLog(log)
+                .setTag(7)
+                .setClock(clock)
+                .setCallbackExecutor(VirtualClock.DIRECT_EXECUTOR)
+                .setOnSkipFrameListener(new Scheduler.OnSkipFrameListener() {
+                    @Override
+                    public void onSkipFrame(@Nullable Object tag) {
+                    }
+                });
+        clock.schedule(550, new Runnable() {
+            @Override
+            public void run() {
+                scheduler.pause();
+            }
+        }).schedule(1050, new Runnable() {
+            @Override
+            public void run() {
+                scheduler.resume();
+            }
+        });
+        scheduler.run();
+        log.close();
+
+        final Map<Integer, EventLogReplay.Timeline> timelines = EventLogReplay.replay(mFile);
+        final EventLogReplay.Timeline timeline = timelines.get(7);
+
+        assertEquals(1, timelines.size());
+        assertEquals(1, timeline.getPauseCount());
+        assertEquals(500, timeline.getPausedTime());
+        assertTrue(timeline.getSkipCount() > 0);
+        assertEquals(SchedulerEventLog.EVENT_COMPLETE, timeline.getEndEvent());
+        assertEquals(0, timeline.getMaxJitter());
+    }
+
+    @Test
+    public void framesDroppedOnResumeAreCountedOnce() throws Exception {
+        final SchedulerEventLog log = new SchedulerEventLog(mFile, 10000, 16);
+        final VirtualClock clock = new VirtualClock(0);
+        final int[] skipCount = new int[1];
+
+        final Scheduler scheduler = new Scheduler(100, 2000, Scheduler.DURATION_REAL_TIME) {
+            @Override
+            protected void executeRegularTask() {
+            }
+        };
+        scheduler.setTag(8)
+                .setResumePolicy(Scheduler.RESUME_SKIP_TO_NOW)
+                .setEventLog(log)
+                .setClock(clock)
+                .setCallbackExecutor(VirtualClock.DIRECT_EXECUTOR)
+                .setOnFramesDroppedListener(new Scheduler.OnFramesDroppedListener() {
+                    @Override
+                    public void onFramesDropped(@Nullable Object tag, int count) {
+                        skipCount[0] += count;
+                    }
+                });
+        clock.schedule(550, new Runnable() {
+            @Override
+            public void run() {
+                scheduler.pause();
+            }
+        }).schedule(1050, new Runnable() {
+            @Override
+            public void run() {
+                scheduler.resume();
+            }
+        });
+        scheduler.run();
+        log.close();
+
+        /*
+        the frame at 600 runs before the run loop stops, then the frames from 700 to 1000 are dropped at once,
+        logged as one event and reported as one call carrying the count
+         */
+        final EventLogReplay.Timeline timeline = EventLogReplay.replay(mFile).get(8);
+        assertEquals(4, skipCount[0]);
+        assertEquals(4, timeline.getSkipCount());
+        assertEquals(1, timeline.getPauseCount());
+    }
+}
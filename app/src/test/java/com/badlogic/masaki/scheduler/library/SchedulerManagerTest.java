@@ -0,0 +1,164 @@
+package com.badlogic.masaki.scheduler.library;
+
+import android.app.Activity;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.*;
+
+/**
+ * Drives {@link SchedulerManager} with lifecycle callbacks called by hand, and its schedulers on a {@link VirtualClock}
+ */
+public class SchedulerManagerTest {
+
+    private static final long START_TIME = 1000000;
+
+    private static final Executor NO_OP_EXECUTOR = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+        }
+    };
+
+    private VirtualClock mClock;
+    private Activity mActivity;
+
+    @Before
+    public void setUp() {
+        mClock = new VirtualClock(START_TIME);
+        mActivity = new Activity();
+    }
+
+    @Test
+    public void untaggedSchedulersGetDistinctStableKeys() {
+        final SchedulerManager first = new SchedulerManager(mActivity, null, new SchedulerEngine(NO_OP_EXECUTOR));
+        final Scheduler a = first.execute(createScheduler());
+        final Scheduler b = first.execute(createScheduler());
+        final Scheduler tagged = first.execute(createScheduler().setTag(5));
+
+        assertFalse(first.getKey(a).equals(first.getKey(b)));
+        assertFalse(first.getKey(a).equals(first.getKey(tagged)));
+
+        /*
+        the activity recreated after a configuration change executes its schedulers in the same order
+         */
+        final SchedulerManager second = new SchedulerManager(mActivity, null, new SchedulerEngine(NO_OP_EXECUTOR));
+        assertEquals(first.getKey(a), second.getKey(second.execute(createScheduler())));
+        assertEquals(first.getKey(b), second.getKey(second.execute(createScheduler())));
+        assertEquals(first.getKey(tagged), second.getKey(second.execute(createScheduler().setTag(5))));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void duplicateTagIsRejected() {
+        final SchedulerManager manager = new SchedulerManager(mActivity, null, new SchedulerEngine(NO_OP_EXECUTOR));
+        manager.execute(createScheduler().setTag(5));
+        manager.execute(createScheduler().setTag(5));
+    }
+
+    @Test
+    public void releasedSchedulerIsUnbound() {
+        final SchedulerManager manager = new SchedulerManager(mActivity, null, new SchedulerEngine(NO_OP_EXECUTOR));
+        final Scheduler scheduler = manager.execute(createScheduler().setTag(5));
+        manager.release(scheduler);
+
+        assertNull(manager.getKey(scheduler));
+        assertFalse(scheduler.isAvailable());
+        manager.execute(createScheduler().setTag(5));
+    }
+
+    @Test
+    public void rejectedSchedulerIsNotBound() {
+        final boolean[] rejecting = {true};
+        final SchedulerEngine engine = new SchedulerEngine(NO_OP_EXECUTOR).setAdmissionController(
+                new AdmissionController() {
+                    @Override
+                    public int onSubmit(Scheduler scheduler, EngineLoad load) {
+                        return rejecting[0] ? REJECT : ADMIT;
+                    }
+
+                    @Override
+                    public int getDegradedPriority(EngineLoad load) {
+                        return Scheduler.PRIORITY_LOW;
+                    }
+                });
+        final SchedulerManager manager = new SchedulerManager(mActivity, null, engine);
+        final Scheduler rejected = createScheduler();
+        assertNull(manager.execute(rejected));
+        assertNull(manager.getKey(rejected));
+
+        /*
+        the next untagged scheduler takes the key the rejected one would have had
+         */
+        rejecting[0] = false;
+        final Scheduler admitted = manager.execute(createScheduler());
+        final SchedulerManager other = new SchedulerManager(mActivity, null, new SchedulerEngine(NO_OP_EXECUTOR));
+        assertEquals(other.getKey(other.execute(createScheduler())), manager.getKey(admitted));
+    }
+
+    @Test
+    public void schedulersFollowTheActivity() {
+        final SchedulerManager manager = new SchedulerManager(mActivity, null, new SchedulerEngine(NO_OP_EXECUTOR));
+        final Scheduler scheduler = manager.execute(createScheduler());
+        assertEquals(Scheduler.State.PAUSED, scheduler.getCurrentState());
+
+        manager.onActivityResumed(new Activity());
+        assertEquals(Scheduler.State.PAUSED, scheduler.getCurrentState());
+
+        manager.onActivityResumed(mActivity);
+        assertEquals(Scheduler.State.RUNNING, scheduler.getCurrentState());
+
+        manager.onActivityPaused(mActivity);
+        assertEquals(Scheduler.State.PAUSED, scheduler.getCurrentState());
+    }
+
+    @Test
+    public void schedulerExecutedBeforeResumeRunsNoFrame() {
+        final SchedulerManager manager = new SchedulerManager(mActivity, null,
+                new SchedulerEngine(VirtualClock.DIRECT_EXECUTOR));
+        final RecordingScheduler scheduler = createScheduler();
+        mClock.schedule(START_TIME + 500, new Runnable() {
+            @Override
+            public void run() {
+                manager.onActivityResumed(mActivity);
+            }
+        });
+        mClock.schedule(START_TIME + 1000, new Runnable() {
+            @Override
+            public void run() {
+                scheduler.cancel();
+            }
+        });
+
+        /*
+        the engine runs the run loop on this thread, until the cancel
+         */
+        manager.execute(scheduler);
+
+        assertEquals(START_TIME + 500, scheduler.mTickTimes.get(0).longValue());
+    }
+
+    private RecordingScheduler createScheduler() {
+        final RecordingScheduler scheduler = new RecordingScheduler();
+        scheduler.setClock(mClock);
+        scheduler.setCallbackExecutor(VirtualClock.DIRECT_EXECUTOR);
+        return scheduler;
+    }
+
+    private class RecordingScheduler extends Scheduler {
+
+        private final List<Long> mTickTimes = new ArrayList<>();
+
+        private RecordingScheduler() {
+            super(100, Scheduler.DURATION_REAL_TIME);
+        }
+
+        @Override
+        protected void executeRegularTask() {
+            mTickTimes.add(mClock.currentTimeMillis());
+        }
+    }
+}
@@ -0,0 +1,438 @@
+package com.badlogic.masaki.scheduler.library;
+
+import android.support.annotation.Nullable;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Drives {@link Scheduler}'s run loop on a {@link VirtualClock}, so scenarios lasting hours run in milliseconds
+ */
+public class SchedulerSimulationTest {
+
+    private static final long START_TIME = 1000000;
+
+    private VirtualClock mClock;
+    private RecordingScheduler mScheduler;
+
+    @Before
+    public void setUp() {
+        mClock = new VirtualClock(START_TIME);
+    }
+
+    @Test
+    public void activeTimeTaskCompletesAfterDuration() {
+        mScheduler = createScheduler(700, 1000 * 10, Scheduler.DURATION_ACTIVE_TIME);
+        mScheduler.run();
+
+        assertEquals(15, mScheduler.mTickTimes.size());
+        assertEquals(0, mScheduler.mTickTimes.get(0) - START_TIME);
+        assertEquals(9800, mScheduler.mTickTimes.get(14) - START_TIME);
+        assertEquals(START_TIME + 1000 * 10, mScheduler.mCompletedTime);
+        assertEquals(0, mScheduler.mSkipCount);
+    }
+
+    @Test
+    public void pauseIsExcludedFromActiveTime() {
+        mScheduler = createScheduler(700, 1000 * 10, Scheduler.DURATION_ACTIVE_TIME);
+        schedulePause(3000, 8000);
+        mScheduler.run();
+
+        assertTrue(mScheduler.mCompletedTime >= START_TIME + 1000 * 15);
+        for (long time : mScheduler.mTickTimes) {
+            assertFalse(time > START_TIME + 3500 && time < START_TIME + 8000);
+        }
+
+        /*
+        the frames scheduled during the pause are skipped right after the resume
+         */
+        assertEquals(6, mScheduler.mSkipCount);
+    }
+
+    @Test
+    public void shiftResumePolicyFreezesSchedule() {
+        mScheduler = createScheduler(700, 1000 * 10, Scheduler.DURATION_ACTIVE_TIME);
+        mScheduler.setResumePolicy(Scheduler.RESUME_SHIFT);
+        schedulePause(3000, 8000);
+        mScheduler.run();
+
+        /*
+        the loop stops at 3500, so the next frame keeps its 700 millis left after the resume at 8000
+         */
+        assertEquals(0, mScheduler.mSkipCount);
+        assertEquals(START_TIME + 8700, mScheduler.mTickTimes.get(6).longValue());
+        for (int i = 7; i < mScheduler.mTickTimes.size(); i++) {
+            assertEquals(700, mScheduler.mTickTimes.get(i) - mScheduler.mTickTimes.get(i - 1));
+        }
+        assertTrue(mScheduler.mCompletedTime >= START_TIME + 1000 * 15);
+    }
+
+    @Test
+    public void skipToNowResumePolicyRealignsToNextFrame() {
+        final SchedulerEngine engine = new SchedulerEngine(VirtualClock.DIRECT_EXECUTOR).setClock(mClock);
+        mScheduler = createScheduler(700, 1000 * 10, Scheduler.DURATION_ACTIVE_TIME);
+        mScheduler.setResumePolicy(Scheduler.RESUME_SKIP_TO_NOW).setEngine(engine);
+        schedulePause(3000, 8000);
+        mScheduler.run();
+
+        /*
+        the six frames scheduled during the pause are dropped, and reported at once,
+        without counting as skips in the engine's load
+         */
+        assertEquals(0, mScheduler.mSkipCount);
+        assertEquals(1, mScheduler.mDropCount);
+        assertEquals(6, mScheduler.mDroppedFrames);
+        assertEquals(0, engine.getLoad().getSkipCount());
+        assertEquals(START_TIME + 8400, mScheduler.mTickTimes.get(6).longValue());
+        for (int i = 7; i < mScheduler.mTickTimes.size(); i++) {
+            assertEquals(700, mScheduler.mTickTimes.get(i) - mScheduler.mTickTimes.get(i - 1));
+        }
+    }
+
+    @Test
+    public void replayResumePolicyRunsBoundedBatch() {
+        mScheduler = createScheduler(700, 1000 * 10, Scheduler.DURATION_ACTIVE_TIME);
+        mScheduler.setResumePolicy(Scheduler.RESUME_REPLAY).setMaxReplayTicks(3);
+        schedulePause(3000, 8000);
+        mScheduler.run();
+
+        /*
+        six frames are missed, the first three of them are dropped, the last three run at once
+        and the schedule goes on at 8400
+         */
+        assertEquals(3, mScheduler.mDroppedFrames);
+        for (int i = 6; i < 9; i++) {
+            assertEquals(START_TIME + 8000, mScheduler.mTickTimes.get(i).longValue());
+        }
+        assertEquals(START_TIME + 8400, mScheduler.mTickTimes.get(9).longValue());
+    }
+
+    @Test
+    public void pauseIsIncludedInRealTime() {
+        mScheduler = createScheduler(700, 1000 * 10, Scheduler.DURATION_REAL_TIME);
+        schedulePause(3000, 8000);
+        mScheduler.run();
+
+        assertEquals(START_TIME + 1000 * 10, mScheduler.mCompletedTime);
+        assertEquals(START_TIME + 9800, mScheduler.mTickTimes.get(mScheduler.mTickTimes.size() - 1).longValue());
+    }
+
+    @Test
+    public void delayedFramesAreSkipped() {
+        mScheduler = createScheduler(100, 1000, Scheduler.DURATION_REAL_TIME);
+        mScheduler.mExecutionTime = 150;
+        mScheduler.run();
+
+        assertTrue(mScheduler.mSkipCount > 0);
+        assertEquals(10, mScheduler.mTickTimes.size() + mScheduler.mSkipCount, 1);
+    }
+
+    @Test
+    public void cancelStopsRunLoop() {
+        mScheduler = createScheduler(100, Scheduler.TASK_DURATION_INFINITE, Scheduler.DURATION_REAL_TIME);
+        mClock.schedule(START_TIME + 550, new Runnable() {
+            @Override
+            public void run() {
+                mScheduler.cancel();
+            }
+        });
+        mScheduler.run();
+
+        /*
+        the frame already sleeping when cancelled still runs
+         */
+        assertEquals(7, mScheduler.mTickTimes.size());
+        assertTrue(mScheduler.mCancelled);
+    }
+
+    @Test
+    public void hoursOfSimulatedTime() {
+        final long threeHours = 3 * 60 * 60 * 1000;
+        mScheduler = createScheduler(10, threeHours, Scheduler.DURATION_REAL_TIME);
+        mScheduler.run();
+
+        assertEquals(threeHours / 10 + 1, mScheduler.mTickTimes.size());
+        assertEquals(START_TIME + threeHours, mScheduler.mCompletedTime);
+    }
+
+    @Test
+    public void randomScheduleProperties() {
+        final Random random = new Random(42);
+        for (int i = 0; i < 500; i++) {
+            mClock = new VirtualClock(START_TIME);
+            final long interval = 1 + random.nextInt(1000);
+            final long duration = interval + random.nextInt(100000);
+            mScheduler = createScheduler(interval, duration, Scheduler.DURATION_REAL_TIME);
+            mScheduler.mExecutionTime = random.nextInt((int) interval);
+            mScheduler.run();
+
+            final String scenario = "interval=" + interval + " duration=" + duration;
+            assertEquals(scenario, START_TIME + duration, mScheduler.mCompletedTime);
+            assertEquals(scenario, 0, mScheduler.mSkipCount);
+            for (int frame = 0; frame < mScheduler.mTickTimes.size(); frame++) {
+                assertEquals(scenario, START_TIME + interval * frame, mScheduler.mTickTimes.get(frame).longValue());
+            }
+        }
+    }
+
+    @Test
+    public void intervalChangeReanchorsSchedule() {
+        mScheduler = createScheduler(100, Scheduler.TASK_DURATION_INFINITE, Scheduler.DURATION_REAL_TIME);
+        mClock.schedule(START_TIME + 350, new Runnable() {
+            @Override
+            public void run() {
+                mScheduler.setInterval(200);
+            }
+        });
+        scheduleCancel(1050);
+        mScheduler.run();
+
+        /*
+        the frame sleeping when changed keeps its time, and the next ones follow it by the new interval
+         */
+        final long[] expected = {0, 100, 200, 300, 400, 600, 800, 1000};
+        for (int frame = 0; frame < expected.length; frame++) {
+            assertEquals(START_TIME + expected[frame], mScheduler.mTickTimes.get(frame).longValue());
+        }
+        assertEquals(0, mScheduler.mSkipCount);
+    }
+
+    @Test
+    public void engineIntervalScaleAppliesToRunningScheduler() {
+        final SchedulerEngine engine = new SchedulerEngine(VirtualClock.DIRECT_EXECUTOR);
+        mScheduler = createScheduler(100, Scheduler.TASK_DURATION_INFINITE, Scheduler.DURATION_REAL_TIME);
+        mScheduler.setEngine(engine);
+        mClock.schedule(START_TIME + 350, new Runnable() {
+            @Override
+            public void run() {
+                engine.setIntervalScale(2.5);
+            }
+        });
+        scheduleCancel(1000);
+        mScheduler.run();
+
+        final long[] expected = {0, 100, 200, 300, 400, 650, 900};
+        for (int frame = 0; frame < expected.length; frame++) {
+            assertEquals(START_TIME + expected[frame], mScheduler.mTickTimes.get(frame).longValue());
+        }
+        assertEquals(100, mScheduler.getInterval());
+    }
+
+    @Test
+    public void degradedPriorityRecoversOnceOverloadStops() {
+        final SchedulerEngine engine = new SchedulerEngine(VirtualClock.DIRECT_EXECUTOR)
+                .setClock(mClock)
+                .setLoadWindow(1000)
+                .setAdmissionController(new LoadAdmissionController(100, 10000, 0.3));
+        mScheduler = createScheduler(100, 1000 * 10, Scheduler.DURATION_REAL_TIME);
+        mScheduler.setPriority(Scheduler.PRIORITY_LOW).setEngine(engine);
+
+        /*
+        the regular task overruns its interval until 3000, so the late frames degrade the low priority class
+         */
+        mScheduler.mExecutionTime = 250;
+        mClock.schedule(START_TIME + 3000, new Runnable() {
+            @Override
+            public void run() {
+                mScheduler.mExecutionTime = 0;
+            }
+        });
+        mScheduler.run();
+
+        /*
+        the frames shed while degraded do not count as skips, so the engine recovers
+        once the late frames have left the load window, then every frame from 5000 to 10000 runs
+         */
+        assertTrue(mScheduler.mSkipCount > 10);
+        int recoveredTicks = 0;
+        for (long time : mScheduler.mTickTimes) {
+            if (time >= START_TIME + 5000) {
+                recoveredTicks++;
+            }
+        }
+        assertEquals(51, recoveredTicks);
+        assertEquals(Scheduler.PRIORITY_LOW, engine.getDegradedPriority());
+    }
+
+    @Test
+    public void spreadSlotsAreRelativeToClockEpoch() {
+        final SchedulerEngine engine = new SchedulerEngine(VirtualClock.DIRECT_EXECUTOR).setSpreadEnabled(true);
+
+        /*
+        the second scheduler is created 30ms later, but still gets the slot half an interval after the first one
+         */
+        mScheduler = createScheduler(100, 300, Scheduler.DURATION_REAL_TIME);
+        engine.execute(mScheduler);
+        assertEquals(START_TIME, mScheduler.mTickTimes.get(0).longValue());
+
+        final long secondStartTime = mClock.currentTimeMillis() + 30;
+        mClock.advance(30);
+        mScheduler = createScheduler(100, 300, Scheduler.DURATION_REAL_TIME);
+        engine.execute(mScheduler);
+        final long firstTick = mScheduler.mTickTimes.get(0);
+        assertTrue(firstTick >= secondStartTime);
+        assertEquals(50, firstTick % 100);
+    }
+
+    @Test
+    public void spreadKeepsExplicitPhaseOffset() {
+        final SchedulerEngine engine = new SchedulerEngine(VirtualClock.DIRECT_EXECUTOR).setSpreadEnabled(true);
+        engine.execute(createScheduler(100, 300, Scheduler.DURATION_REAL_TIME));
+
+        mScheduler = createScheduler(100, 300, Scheduler.DURATION_REAL_TIME);
+        mScheduler.setPhaseOffset(10);
+        final long startTime = mClock.currentTimeMillis();
+        engine.execute(mScheduler);
+        assertEquals(startTime + 10, mScheduler.mTickTimes.get(0).longValue());
+    }
+
+    @Test
+    public void untaggedSchedulersHaveDifferentJitter() {
+        final Scheduler first = createScheduler(100, 1000, Scheduler.DURATION_REAL_TIME).setJitter(50);
+        final Scheduler second = createScheduler(100, 1000, Scheduler.DURATION_REAL_TIME).setJitter(50);
+
+        int sameFrames = 0;
+        for (int frame = 0; frame < 100; frame++) {
+            if (first.scheduledFrameTime(frame) == second.scheduledFrameTime(frame)) {
+                sameFrames++;
+            }
+        }
+        assertTrue(sameFrames < 10);
+
+        /*
+        the same tag still gives the same schedule
+         */
+        first.setTag(3);
+        second.setTag(3);
+        for (int frame = 0; frame < 100; frame++) {
+            assertEquals(first.scheduledFrameTime(frame), second.scheduledFrameTime(frame));
+        }
+    }
+
+    @Test
+    public void warmUpIsExcludedFromSchedule() {
+        mScheduler = createScheduler(100, 1000, Scheduler.DURATION_REAL_TIME);
+        mScheduler.setWarmUpTicks(5);
+        mScheduler.mExecutionTime = 50;
+        mScheduler.run();
+
+        /*
+        the schedule moves by 3 intervals past the 250ms of dry ticks, so no frame is late nor off the phase grid
+         */
+        assertEquals(5, mScheduler.mWarmUpCount);
+        assertEquals(START_TIME + 300, mScheduler.mTickTimes.get(0).longValue());
+        assertEquals(START_TIME + 300 + 1000, mScheduler.mCompletedTime);
+        assertEquals(0, mScheduler.mSkipCount);
+    }
+
+    @Test
+    public void registryListsRunningScheduler() {
+        mScheduler = createScheduler(100, 1000, Scheduler.DURATION_REAL_TIME);
+        mScheduler.setTag(7);
+        final List<SchedulerInfo> infos = new ArrayList<>();
+        mClock.schedule(START_TIME + 350, new Runnable() {
+            @Override
+            public void run() {
+                infos.addAll(SchedulerRegistry.getLiveSchedulers());
+            }
+        });
+        mScheduler.run();
+
+        assertEquals(1, infos.size());
+        final SchedulerInfo info = infos.get(0);
+        assertEquals(7, info.getTag());
+        assertEquals(Scheduler.State.RUNNING, info.getState());
+        assertEquals(Thread.currentThread().getName(), info.getBoundThreadName());
+        assertEquals(100, info.getInterval());
+        assertEquals(700, info.getTimeLeft());
+        assertEquals(0, SchedulerRegistry.getLiveSchedulerCount());
+    }
+
+    private RecordingScheduler createScheduler(long interval, long duration, int durationType) {
+        final RecordingScheduler scheduler = new RecordingScheduler(interval, duration, durationType);
+        scheduler.setClock(mClock);
+        scheduler.setCallbackExecutor(VirtualClock.DIRECT_EXECUTOR);
+        scheduler.setOnSkipFrameListener(scheduler)
+                .setOnFramesDroppedListener(scheduler)
+                .setOnTaskCompletionListener(scheduler)
+                .setOnTaskCancelListener(scheduler);
+        return scheduler;
+    }
+
+    private void scheduleCancel(long cancelTime) {
+        mClock.schedule(START_TIME + cancelTime, new Runnable() {
+            @Override
+            public void run() {
+                mScheduler.cancel();
+            }
+        });
+    }
+
+    private void schedulePause(long pauseTime, long resumeTime) {
+        mClock.schedule(START_TIME + pauseTime, new Runnable() {
+            @Override
+            public void run() {
+                mScheduler.pause();
+            }
+        }).schedule(START_TIME + resumeTime, new Runnable() {
+            @Override
+            public void run() {
+                mScheduler.resume();
+            }
+        });
+    }
+
+    private class RecordingScheduler extends Scheduler implements Scheduler.OnSkipFrameListener,
+            Scheduler.OnFramesDroppedListener, Scheduler.OnTaskCompletionListener, Scheduler.OnTaskCancelListener {
+
+        private final List<Long> mTickTimes = new ArrayList<>();
+        private int mWarmUpCount;
+        private long mExecutionTime;
+        private int mSkipCount;
+        private int mDropCount;
+        private int mDroppedFrames;
+        private long mCompletedTime;
+        private boolean mCancelled;
+
+        private RecordingScheduler(long interval, long taskDuration, int durationType) {
+            super(interval, taskDuration, durationType);
+        }
+
+        @Override
+        protected void executeRegularTask() {
+            if (isWarmingUp()) {
+                mWarmUpCount++;
+            } else {
+                mTickTimes.add(mClock.currentTimeMillis());
+            }
+            mClock.advance(mExecutionTime);
+        }
+
+        @Override
+        public void onSkipFrame(@Nullable Object tag) {
+            mSkipCount++;
+        }
+
+        @Override
+        public void onFramesDropped(@Nullable Object tag, int count) {
+            mDropCount++;
+            mDroppedFrames += count;
+        }
+
+        @Override
+        public void onScheduledTaskCompleted(@Nullable Object tag) {
+            mCompletedTime = mClock.currentTimeMillis();
+        }
+
+        @Override
+        public void onScheduledTaskCancelled(@Nullable Object tag) {
+            mCancelled = true;
+        }
+    }
+}
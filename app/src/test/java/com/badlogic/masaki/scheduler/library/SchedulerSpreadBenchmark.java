@@ -0,0 +1,75 @@
+package com.badlogic.masaki.scheduler.library;
+
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.*;
+
+/**
+ * Reports the peak number of regular tasks scheduled in the same millisecond
+ * when many schedulers with the same interval are created at once
+ * Run manually, it is not part of the unit tests
+ */
+@Ignore("benchmark")
+public class SchedulerSpreadBenchmark {
+
+    private static final int SCHEDULER_COUNT = 1000;
+    private static final long INTERVAL = 100;
+    private static final int FRAME_COUNT = 100;
+
+    private static final Executor NO_OP_EXECUTOR = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+        }
+    };
+
+    @Test
+    public void peakExecutionsPerMillisecond() throws Exception {
+        final int aligned = peakPerMillisecond(createSchedulers(false, 0));
+        final int jittered = peakPerMillisecond(createSchedulers(false, INTERVAL / 2));
+        final int spread = peakPerMillisecond(createSchedulers(true, 0));
+
+        System.out.println(SCHEDULER_COUNT + " schedulers, interval " + INTERVAL + "ms, peak executions/ms: "
+                + "aligned=" + aligned + ", jitter=" + jittered + ", spread=" + spread);
+
+        assertEquals(SCHEDULER_COUNT, aligned);
+        assertTrue(jittered < aligned);
+        assertTrue(spread < jittered);
+    }
+
+    private static Scheduler[] createSchedulers(boolean spread, long maxJitter) {
+        final SchedulerEngine engine = new SchedulerEngine(NO_OP_EXECUTOR).setSpreadEnabled(spread);
+
+        /*
+        anchors all the schedules at the same time, so the frame times are comparable
+         */
+        final VirtualClock clock = new VirtualClock(0);
+        final Scheduler[] schedulers = new Scheduler[SCHEDULER_COUNT];
+        for (int i = 0; i < SCHEDULER_COUNT; i++) {
+            schedulers[i] = new Scheduler(INTERVAL, Scheduler.DURATION_REAL_TIME) {
+                @Override
+                protected void executeRegularTask() {
+                }
+            }.setJitter(maxJitter).setTag(i).setClock(clock);
+            engine.execute(schedulers[i]);
+        }
+        return schedulers;
+    }
+
+    private static int peakPerMillisecond(Scheduler[] schedulers) {
+        final int[] executions = new int[(int) (INTERVAL * (FRAME_COUNT + 2))];
+        for (Scheduler scheduler : schedulers) {
+            for (int frame = 0; frame < FRAME_COUNT; frame++) {
+                executions[(int) scheduler.scheduledFrameTime(frame)]++;
+            }
+        }
+
+        int peak = 0;
+        for (int count : executions) {
+            peak = Math.max(peak, count);
+        }
+        return peak;
+    }
+}
@@ -0,0 +1,141 @@
+package com.badlogic.masaki.scheduler.library;
+
+import android.support.annotation.Nullable;
+
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Reports, for a fresh scheduler with and without warm-up, the time from {@link Scheduler#run()}
+ * to the first on-time tick and the frames skipped before it
+ * Each case loads the library into its own class loader, so that it starts with code that is not compiled yet
+ * Run manually, it is not part of the unit tests
+ */
+@Ignore("benchmark")
+public class SchedulerStartupBenchmark {
+
+    private static final long INTERVAL = 2;
+    private static final long DURATION = 300;
+    private static final int WARM_UP_TICKS = 200;
+
+    @Test
+    public void startupToFirstOnTimeTick() throws Exception {
+        final long[] cold = measureIsolated(0);
+        final long[] warm = measureIsolated(WARM_UP_TICKS);
+
+        report("cold", cold);
+        report("warm-up " + WARM_UP_TICKS, warm);
+
+        assertTrue(cold[0] >= 0);
+        assertTrue(warm[0] >= 0);
+    }
+
+    private static long[] measureIsolated(int warmUpTicks) throws Exception {
+        final URL[] urls = {
+                Scheduler.class.getProtectionDomain().getCodeSource().getLocation(),
+                Probe.class.getProtectionDomain().getCodeSource().getLocation()
+        };
+        final ClassLoader loader = new IsolatingClassLoader(urls, SchedulerStartupBenchmark.class.getClassLoader());
+        final Class<?> probe = loader.loadClass(Probe.class.getName());
+        return (long[]) probe.getMethod("measure", int.class).invoke(null, warmUpTicks);
+    }
+
+    private static void report(String name, long[] result) {
+        System.out.println(name + ": first on-time tick " + result[0] / 1000 + "us after run() (schedule anchored after "
+                + result[1] / 1000 + "us), " + result[2] + " frames skipped before it");
+    }
+
+    /**
+     * Loads the classes of the library package itself instead of delegating them to the parent
+     */
+    private static final class IsolatingClassLoader extends URLClassLoader {
+        private static final String PACKAGE = Scheduler.class.getPackage().getName() + ".";
+
+        private IsolatingClassLoader(URL[] urls, ClassLoader parent) {
+            super(urls, parent);
+        }
+
+        @Override
+        protected synchronized Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+            if (!name.startsWith(PACKAGE)) {
+                return super.loadClass(name, resolve);
+            }
+
+            Class<?> loaded = findLoadedClass(name);
+            if (loaded == null) {
+                loaded = findClass(name);
+            }
+            if (resolve) {
+                resolveClass(loaded);
+            }
+            return loaded;
+        }
+    }
+
+    /**
+     * Runs a scheduler in the isolated class loader
+     */
+    public static final class Probe extends Scheduler implements Scheduler.OnSkipFrameListener {
+        private final long[] mValues = new long[2048];
+        private final Random mRandom = new Random(42);
+        private long mRunStartedTime;
+        private long mAnchoredTime = -1;
+        private long mFirstOnTimeTick = -1;
+        private int mSkipsBeforeOnTime;
+
+        private Probe() {
+            super(INTERVAL, DURATION, Scheduler.DURATION_REAL_TIME);
+            setCallbackExecutor(VirtualClock.DIRECT_EXECUTOR);
+            setOnSkipFrameListener(this);
+        }
+
+        /**
+         * Called through reflection
+         * @param warmUpTicks number of dry ticks
+         * @return time to the first on-time tick, time to the anchoring of the schedule (nanos)
+         * and number of frames skipped before the first on-time tick
+         */
+        public static long[] measure(int warmUpTicks) {
+            final Probe probe = new Probe();
+            probe.setWarmUpTicks(warmUpTicks);
+            probe.mRunStartedTime = System.nanoTime();
+            probe.run();
+            return new long[] {probe.mFirstOnTimeTick, probe.mAnchoredTime, probe.mSkipsBeforeOnTime};
+        }
+
+        /**
+         * Sorts random values, standing for a regular task that takes a fraction of the interval once compiled
+         */
+        @Override
+        protected void executeRegularTask() {
+            if (!isWarmingUp() && mFirstOnTimeTick < 0) {
+                final long elapsed = System.nanoTime() - mRunStartedTime;
+                if (mAnchoredTime < 0) {
+                    mAnchoredTime = elapsed;
+                }
+                if (System.currentTimeMillis() <= getScheduledTime()) {
+                    mFirstOnTimeTick = elapsed;
+                }
+            }
+
+            for (int i = 0; i < mValues.length; i++) {
+                mValues[i] = mRandom.nextLong();
+            }
+            Arrays.sort(mValues);
+        }
+
+        @Override
+        public void onSkipFrame(@Nullable Object tag) {
+            if (mFirstOnTimeTick < 0) {
+                mSkipsBeforeOnTime++;
+            }
+        }
+    }
+}
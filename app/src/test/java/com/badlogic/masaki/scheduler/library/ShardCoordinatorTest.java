@@ -0,0 +1,139 @@
+package com.badlogic.masaki.scheduler.library;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs workers sharing an {@link InProcessLeaseStore}, standing in for separate processes,
+ * and checks the assignment of the partitions, the takeover of a departed worker's shard and the joining of a worker
+ */
+public class ShardCoordinatorTest {
+
+    private static final int TAG_COUNT = 200;
+    private static final int PARTITION_COUNT = 32;
+    private static final long INTERVAL = 50;
+    private static final long LEASE_DURATION = 300;
+
+    private LeaseStore mStore;
+    private List<ShardCoordinator> mWorkers;
+
+    @Before
+    public void setUp() {
+        mStore = new InProcessLeaseStore();
+        mWorkers = new ArrayList<>();
+        for (String workerId : new String[]{"a", "b", "c"}) {
+            createWorker(workerId);
+        }
+    }
+
+    @After
+    public void tearDown() {
+        for (ShardCoordinator worker : mWorkers) {
+            worker.stop();
+        }
+    }
+
+    @Test
+    public void partitionsAreOwnedExactlyOnce() {
+        renewAll(mWorkers, 3);
+        assertOwnedExactlyOnce(mWorkers);
+    }
+
+    @Test
+    public void departedWorkersShardIsTakenOver() throws Exception {
+        renewAll(mWorkers, 3);
+        Thread.sleep(200);
+        renewAll(mWorkers, 1);
+
+        final ShardCoordinator departed = mWorkers.get(2);
+        final List<ShardCoordinator> survivors = mWorkers.subList(0, 2);
+        final List<Integer> partitionsOfA = mWorkers.get(0).getOwnedPartitions();
+
+        String movedTag = null;
+        for (int tag = 0; tag < TAG_COUNT && movedTag == null; tag++) {
+            if (departed.isOwner("tag" + tag)) {
+                movedTag = "tag" + tag;
+            }
+        }
+        assertNotNull(movedTag);
+        final int frameCountBefore = departed.getFrameCount(movedTag);
+        assertTrue(frameCountBefore > 0);
+
+        /*
+        the departed worker stops renewing, as if its process had hung, and its leases expire
+         */
+        Thread.sleep(LEASE_DURATION);
+        renewAll(survivors, 2);
+
+        assertOwnedExactlyOnce(survivors);
+        assertTrue(mWorkers.get(0).getOwnedPartitions().containsAll(partitionsOfA));
+
+        Thread.sleep(INTERVAL);
+        final ShardCoordinator takenOver = mWorkers.get(0).isOwner(movedTag) ? mWorkers.get(0) : mWorkers.get(1);
+        assertTrue(takenOver.getFrameCount(movedTag) >= frameCountBefore);
+
+        /*
+        once renewing again, the departed worker finds its partitions taken and gives them up
+         */
+        departed.renew();
+        assertEquals(0, departed.getOwnedTagCount());
+    }
+
+    @Test
+    public void joiningWorkerTakesPartitionsOver() {
+        renewAll(mWorkers, 3);
+        final ShardCoordinator joining = createWorker("d");
+
+        /*
+        the others see the new worker through its lease, and hand over the partitions it has been assigned
+         */
+        renewAll(mWorkers, 3);
+
+        assertFalse(joining.getOwnedPartitions().isEmpty());
+        assertOwnedExactlyOnce(mWorkers);
+    }
+
+    private ShardCoordinator createWorker(String workerId) {
+        final ShardCoordinator worker = new ShardCoordinator(mStore, workerId, PARTITION_COUNT, LEASE_DURATION,
+                new ShardCoordinator.OnTickListener() {
+                    @Override
+                    public void onTick(String tag, int frameCount) {
+                    }
+                });
+        for (int tag = 0; tag < TAG_COUNT; tag++) {
+            worker.register("tag" + tag, INTERVAL);
+        }
+        mWorkers.add(worker);
+        return worker;
+    }
+
+    private static void assertOwnedExactlyOnce(List<ShardCoordinator> workers) {
+        final Set<Integer> partitions = new HashSet<>();
+        int tagCount = 0;
+        for (ShardCoordinator worker : workers) {
+            assertFalse(worker.getOwnedPartitions().isEmpty());
+            for (int partition : worker.getOwnedPartitions()) {
+                assertTrue(partitions.add(partition));
+            }
+            tagCount += worker.getOwnedTagCount();
+        }
+        assertEquals(PARTITION_COUNT, partitions.size());
+        assertEquals(TAG_COUNT, tagCount);
+    }
+
+    private static void renewAll(List<ShardCoordinator> workers, int rounds) {
+        for (int round = 0; round < rounds; round++) {
+            for (ShardCoordinator worker : workers) {
+                worker.renew();
+            }
+        }
+    }
+}
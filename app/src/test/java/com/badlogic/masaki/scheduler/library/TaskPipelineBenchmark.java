@@ -0,0 +1,77 @@
+package com.badlogic.masaki.scheduler.library;
+
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+/**
+ * Reports the throughput and the latency of a sample -> (aggregate x2) -> flush pipeline
+ * Run manually, it is not part of the unit tests
+ */
+@Ignore("benchmark")
+public class TaskPipelineBenchmark {
+
+    private static final long INTERVAL = 2;
+    private static final long DURATION = 2000;
+
+    @Test
+    public void multiStagePipeline() throws Exception {
+        final ExecutorService stageExecutor = Executors.newFixedThreadPool(2);
+        final long[] samples = new long[1024];
+        final AtomicLong sum = new AtomicLong();
+        final AtomicLong max = new AtomicLong();
+        final AtomicLong flushed = new AtomicLong();
+
+        final TaskPipeline pipeline = new TaskPipeline(INTERVAL, DURATION, Scheduler.DURATION_REAL_TIME, stageExecutor);
+        final TaskPipeline.Stage sample = pipeline.addStage(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < samples.length; i++) {
+                    samples[i] = System.nanoTime() ^ i;
+                }
+            }
+        });
+        final TaskPipeline.Stage sumStage = pipeline.addStage(new Runnable() {
+            @Override
+            public void run() {
+                long total = 0;
+                for (long value : samples) {
+                    total += value;
+                }
+                sum.set(total);
+            }
+        }, sample);
+        final TaskPipeline.Stage maxStage = pipeline.addStage(new Runnable() {
+            @Override
+            public void run() {
+                long result = Long.MIN_VALUE;
+                for (long value : samples) {
+                    result = Math.max(result, value);
+                }
+                max.set(result);
+            }
+        }, sample);
+        pipeline.addStage(new Runnable() {
+            @Override
+            public void run() {
+                flushed.incrementAndGet();
+            }
+        }, sumStage, maxStage);
+
+        pipeline.getScheduler().setCallbackExecutor(VirtualClock.DIRECT_EXECUTOR);
+        pipeline.run();
+        stageExecutor.shutdown();
+
+        final long ticks = pipeline.getCompletedTickCount();
+        System.out.println("4-stage pipeline, interval " + INTERVAL + "ms: "
+                + (ticks * 1000 / DURATION) + " ticks/s, latency avg="
+                + pipeline.getAverageTickLatency() / 1000 + "us max=" + pipeline.getMaxTickLatency() / 1000 + "us");
+
+        assertEquals(ticks, flushed.get());
+    }
+}
@@ -0,0 +1,206 @@
+package com.badlogic.masaki.scheduler.library;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs {@link TaskPipeline}'s ticks on a {@link VirtualClock}, and its stages on a real thread pool,
+ * recording when each stage starts and ends
+ */
+public class TaskPipelineTest {
+
+    private static final long START_TIME = 1000000;
+    private static final long INTERVAL = 100;
+
+    private VirtualClock mClock;
+    private ExecutorService mStageExecutor;
+    private List<String> mEvents;
+
+    @Before
+    public void setUp() {
+        mClock = new VirtualClock(START_TIME);
+        mStageExecutor = Executors.newFixedThreadPool(2);
+        mEvents = Collections.synchronizedList(new ArrayList<String>());
+    }
+
+    @After
+    public void tearDown() {
+        mStageExecutor.shutdownNow();
+        Thread.interrupted();
+    }
+
+    @Test
+    public void stagesRunAfterTheirDependencies() {
+        final TaskPipeline pipeline = createPipeline(1000);
+        final TaskPipeline.Stage a = pipeline.addStage(new RecordingStage("a"));
+        final TaskPipeline.Stage b = pipeline.addStage(new RecordingStage("b"), a);
+        final TaskPipeline.Stage c = pipeline.addStage(new RecordingStage("c"), a);
+        pipeline.addStage(new RecordingStage("d"), b, c);
+        pipeline.run();
+
+        final long ticks = pipeline.getCompletedTickCount();
+        assertEquals(1000 / INTERVAL + 1, ticks);
+        assertEquals(ticks * 8, mEvents.size());
+
+        /*
+        each tick is a whole block of events, and every stage starts after the end of its dependencies
+         */
+        for (int tick = 0; tick < ticks; tick++) {
+            final List<String> events = mEvents.subList(tick * 8, tick * 8 + 8);
+            assertEquals("start a", events.get(0));
+            assertEquals("end a", events.get(1));
+            assertEquals("end d", events.get(7));
+            assertTrue(events.indexOf("start b") > events.indexOf("end a"));
+            assertTrue(events.indexOf("start c") > events.indexOf("end a"));
+            assertTrue(events.indexOf("start d") > events.indexOf("end b"));
+            assertTrue(events.indexOf("start d") > events.indexOf("end c"));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void stageOfAnotherPipelineIsRejected() {
+        final TaskPipeline other = createPipeline(1000);
+        final TaskPipeline.Stage stage = other.addStage(new RecordingStage("a"));
+        createPipeline(1000).addStage(new RecordingStage("b"), stage);
+    }
+
+    @Test
+    public void cancelThroughSchedulerSkipsRemainingStages() {
+        final TaskPipeline pipeline = createPipeline(Scheduler.TASK_DURATION_INFINITE);
+        final TaskPipeline.Stage a = pipeline.addStage(new RecordingStage("a") {
+            @Override
+            public void run() {
+                super.run();
+                if (mEvents.size() > 2 * 4) {
+                    pipeline.getScheduler().cancel();
+                }
+            }
+        });
+        pipeline.addStage(new RecordingStage("b"), a);
+        pipeline.run();
+
+        /*
+        two whole ticks, then a of the third tick cancels the pipeline and b is skipped
+         */
+        assertTrue(pipeline.isCancelled());
+        assertEquals(2, pipeline.getCompletedTickCount());
+        assertEquals(10, mEvents.size());
+        assertEquals("end a", mEvents.get(mEvents.size() - 1));
+    }
+
+    @Test
+    public void interruptedTickWaitsForRunningStages() {
+        final Thread pipelineThread = Thread.currentThread();
+        final TaskPipeline pipeline = createPipeline(300);
+        final TaskPipeline.Stage a = pipeline.addStage(new RecordingStage("a") {
+            @Override
+            public void run() {
+                super.run();
+                if (mEvents.size() == 2) {
+                    /*
+                    interrupts the first tick while this stage is still running
+                     */
+                    pipelineThread.interrupt();
+                    try {
+                        Thread.sleep(50);
+                    } catch (InterruptedException e) {
+                        e.printStackTrace();
+                    }
+                    mEvents.add("slow a");
+                }
+            }
+        });
+        pipeline.addStage(new RecordingStage("b"), a);
+        pipeline.run();
+
+        /*
+        the first tick ends after a, without running b, and the next tick does not overlap it
+         */
+        assertEquals("slow a", mEvents.get(2));
+        assertEquals("start a", mEvents.get(3));
+        assertFalse(mEvents.subList(0, 3).contains("start b"));
+        assertEquals(300 / INTERVAL, pipeline.getCompletedTickCount());
+    }
+
+    @Test
+    public void rejectedStagesSkipTheTick() {
+        mStageExecutor.shutdown();
+        final TaskPipeline pipeline = createPipeline(300);
+        final TaskPipeline.Stage a = pipeline.addStage(new RecordingStage("a"));
+        pipeline.addStage(new RecordingStage("b"), a);
+        pipeline.run();
+
+        /*
+        each tick ends at once instead of waiting for stages that will never run
+         */
+        assertTrue(mEvents.isEmpty());
+        assertEquals(0, pipeline.getCompletedTickCount());
+        assertEquals(0, pipeline.getMaxTickLatency());
+    }
+
+    @Test
+    public void failedStageSkipsItsDependents() {
+        final TaskPipeline pipeline = createPipeline(300);
+        final TaskPipeline.Stage a = pipeline.addStage(new RecordingStage("a") {
+            @Override
+            public void run() {
+                super.run();
+                throw new IllegalStateException("a");
+            }
+        });
+        final TaskPipeline.Stage b = pipeline.addStage(new RecordingStage("b"), a);
+        pipeline.addStage(new RecordingStage("c"), b);
+        pipeline.addStage(new RecordingStage("d"));
+        pipeline.run();
+
+        final long ticks = 300 / INTERVAL + 1;
+        assertFalse(mEvents.contains("start b"));
+        assertFalse(mEvents.contains("start c"));
+        assertEquals(ticks * 4, mEvents.size());
+        assertEquals(0, pipeline.getCompletedTickCount());
+    }
+
+    @Test
+    public void warmUpRunsNoStage() {
+        final TaskPipeline pipeline = createPipeline(300);
+        pipeline.addStage(new RecordingStage("a"));
+        pipeline.getScheduler().setWarmUpTicks(5);
+        pipeline.run();
+
+        assertEquals(300 / INTERVAL + 1, pipeline.getCompletedTickCount());
+        assertEquals(pipeline.getCompletedTickCount() * 2, mEvents.size());
+    }
+
+    private TaskPipeline createPipeline(long duration) {
+        final TaskPipeline pipeline = new TaskPipeline(INTERVAL, duration, Scheduler.DURATION_REAL_TIME,
+                mStageExecutor);
+        pipeline.getScheduler().setClock(mClock);
+        pipeline.getScheduler().setCallbackExecutor(VirtualClock.DIRECT_EXECUTOR);
+        return pipeline;
+    }
+
+    private class RecordingStage implements Runnable {
+
+        private final String mName;
+
+        private RecordingStage(String name) {
+            mName = name;
+        }
+
+        @Override
+        public void run() {
+            mEvents.add("start " + mName);
+            Thread.yield();
+            mEvents.add("end " + mName);
+        }
+    }
+}
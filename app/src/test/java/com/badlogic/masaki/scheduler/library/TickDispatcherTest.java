@@ -0,0 +1,212 @@
+package com.badlogic.masaki.scheduler.library;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.locks.Condition;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the dispatch order and the shedding of {@link TickDispatcher} with a single execution slot held by the test,
+ * so the waiters queue up and are dispatched one by one when the slot is given back
+ */
+public class TickDispatcherTest {
+
+    private static final long INTERVAL = 100;
+
+    private ManualClock mClock;
+    private TickDispatcher mDispatcher;
+    private List<Thread> mThreads;
+    private List<String> mDispatched;
+
+    @Before
+    public void setUp() {
+        mClock = new ManualClock();
+        mDispatcher = new TickDispatcher(1);
+        mThreads = new ArrayList<>();
+        mDispatched = Collections.synchronizedList(new ArrayList<String>());
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        for (Thread thread : mThreads) {
+            thread.interrupt();
+            thread.join();
+        }
+    }
+
+    @Test
+    public void freeSlotIsAcquiredAtOnce() {
+        assertTrue(mDispatcher.acquire(createScheduler(Scheduler.PRIORITY_LOW, false), 0));
+        assertEquals(0, mDispatcher.getQueueDepth());
+        assertEquals(1, mDispatcher.getStats(Scheduler.PRIORITY_LOW).getDispatchedCount());
+        assertEquals(0, mDispatcher.getStats(Scheduler.PRIORITY_LOW).getDelayedCount());
+    }
+
+    @Test
+    public void waitersAreDispatchedByPriorityThenDeadline() throws Exception {
+        assertTrue(mDispatcher.acquire(createScheduler(Scheduler.PRIORITY_NORMAL, false), 0));
+
+        startWaiter("low-100", Scheduler.PRIORITY_LOW, false, 100);
+        startWaiter("normal-300", Scheduler.PRIORITY_NORMAL, false, 300);
+        startWaiter("high-500", Scheduler.PRIORITY_HIGH, false, 500);
+        startWaiter("high-200", Scheduler.PRIORITY_HIGH, false, 200);
+        startWaiter("normal-100", Scheduler.PRIORITY_NORMAL, false, 100);
+        awaitQueueDepth(5);
+        assertEquals(100, mDispatcher.getOldestDeadline());
+
+        mDispatcher.release();
+        joinWaiters();
+
+        assertEquals(5, mDispatched.size());
+        assertEquals("high-200", mDispatched.get(0));
+        assertEquals("high-500", mDispatched.get(1));
+        assertEquals("normal-100", mDispatched.get(2));
+        assertEquals("normal-300", mDispatched.get(3));
+        assertEquals("low-100", mDispatched.get(4));
+        assertEquals(Long.MAX_VALUE, mDispatcher.getOldestDeadline());
+    }
+
+    @Test
+    public void sameDeadlineIsDispatchedInArrivalOrder() throws Exception {
+        assertTrue(mDispatcher.acquire(createScheduler(Scheduler.PRIORITY_NORMAL, false), 0));
+        for (int i = 0; i < 4; i++) {
+            startWaiter("waiter-" + i, Scheduler.PRIORITY_NORMAL, false, 100);
+            awaitQueueDepth(i + 1);
+        }
+
+        mDispatcher.release();
+        joinWaiters();
+
+        for (int i = 0; i < 4; i++) {
+            assertEquals("waiter-" + i, mDispatched.get(i));
+        }
+    }
+
+    @Test
+    public void waiterIsShedOnceItsNextFrameIsDue() throws Exception {
+        assertTrue(mDispatcher.acquire(createScheduler(Scheduler.PRIORITY_HIGH, false), 0));
+        final Waiter skippable = startWaiter("skippable", Scheduler.PRIORITY_LOW, true, 0);
+        final Waiter strict = startWaiter("strict", Scheduler.PRIORITY_LOW, false, 0);
+        awaitQueueDepth(2);
+
+        /*
+        the next frame of both waiters is due, only the one allowed to skip gives up
+         */
+        mClock.mCurrentTime = INTERVAL;
+        skippable.mThread.join();
+        assertEquals(Boolean.FALSE, skippable.mResult);
+        assertEquals(1, mDispatcher.getQueueDepth());
+        assertEquals(1, mDispatcher.getStats(Scheduler.PRIORITY_LOW).getShedCount());
+
+        mDispatcher.release();
+        strict.mThread.join();
+        assertEquals(Boolean.TRUE, strict.mResult);
+        assertEquals(1, mDispatched.size());
+        assertEquals("strict", mDispatched.get(0));
+    }
+
+    @Test
+    public void waiterIsNotShedBeforeItsNextFrame() throws Exception {
+        assertTrue(mDispatcher.acquire(createScheduler(Scheduler.PRIORITY_HIGH, false), 0));
+        final Waiter waiter = startWaiter("skippable", Scheduler.PRIORITY_LOW, true, 0);
+        awaitQueueDepth(1);
+
+        mClock.mCurrentTime = INTERVAL - 1;
+        mDispatcher.release();
+        waiter.mThread.join();
+
+        assertEquals(Boolean.TRUE, waiter.mResult);
+        assertEquals(0, mDispatcher.getStats(Scheduler.PRIORITY_LOW).getShedCount());
+        assertEquals(1, mDispatcher.getStats(Scheduler.PRIORITY_LOW).getDelayedCount());
+    }
+
+    @Test
+    public void interruptedWaiterLeavesTheQueue() throws Exception {
+        assertTrue(mDispatcher.acquire(createScheduler(Scheduler.PRIORITY_HIGH, false), 0));
+        final Waiter waiter = startWaiter("interrupted", Scheduler.PRIORITY_LOW, false, 0);
+        awaitQueueDepth(1);
+
+        waiter.mThread.interrupt();
+        waiter.mThread.join();
+
+        assertEquals(Boolean.FALSE, waiter.mResult);
+        assertEquals(0, mDispatcher.getQueueDepth());
+    }
+
+    private Scheduler createScheduler(int priority, boolean skipFrameWhenDelayed) {
+        return new Scheduler(INTERVAL, Scheduler.TASK_DURATION_INFINITE, Scheduler.DURATION_REAL_TIME,
+                skipFrameWhenDelayed) {
+            @Override
+            protected void executeRegularTask() {
+            }
+        }.setPriority(priority).setClock(mClock);
+    }
+
+    private Waiter startWaiter(final String name, int priority, boolean skipFrameWhenDelayed, final long deadline) {
+        final Scheduler scheduler = createScheduler(priority, skipFrameWhenDelayed);
+        final Waiter waiter = new Waiter();
+        waiter.mThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                final boolean acquired = mDispatcher.acquire(scheduler, deadline);
+                if (acquired) {
+                    /*
+                    recorded while holding the slot, so the order is the dispatch order
+                     */
+                    mDispatched.add(name);
+                    mDispatcher.release();
+                }
+                waiter.mResult = acquired;
+            }
+        }, name);
+        mThreads.add(waiter.mThread);
+        waiter.mThread.start();
+        return waiter;
+    }
+
+    private void awaitQueueDepth(int depth) throws InterruptedException {
+        while (mDispatcher.getQueueDepth() < depth) {
+            Thread.sleep(1);
+        }
+    }
+
+    private void joinWaiters() throws InterruptedException {
+        for (Thread thread : mThreads) {
+            thread.join();
+        }
+    }
+
+    private static final class Waiter {
+        private Thread mThread;
+        private volatile Boolean mResult;
+    }
+
+    /**
+     * Clock whose time is set by the test thread and read by the waiters
+     */
+    private static final class ManualClock implements SchedulerClock {
+
+        private volatile long mCurrentTime;
+
+        @Override
+        public long currentTimeMillis() {
+            return mCurrentTime;
+        }
+
+        @Override
+        public void sleep(long millis) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void await(Condition condition) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package com.badlogic.masaki.scheduler.library;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the ordering, the reuse of the slots and the back pressure of {@link TickRingBuffer}
+ */
+public class TickRingBufferTest {
+
+    private static final int CAPACITY = 8;
+    private static final int EVENT_COUNT = 100000;
+
+    private static final TickRingBuffer.SlotFactory<LongSlot> FACTORY = new TickRingBuffer.SlotFactory<LongSlot>() {
+        @Override
+        public LongSlot newSlot() {
+            return new LongSlot();
+        }
+    };
+
+    @Test(expected = IllegalArgumentException.class)
+    public void capacityMustBePowerOfTwo() {
+        new TickRingBuffer<>(6, FACTORY, new WaitStrategy.BusySpin(), false);
+    }
+
+    @Test
+    public void fullBufferReturnsNoSlot() {
+        final TickRingBuffer<LongSlot> buffer = new TickRingBuffer<>(CAPACITY, FACTORY, new WaitStrategy.BusySpin(), false);
+        for (int i = 0; i < CAPACITY; i++) {
+            assertEquals(i, buffer.tryNext());
+        }
+        assertEquals(TickRingBuffer.NO_SLOT, buffer.tryNext());
+
+        /*
+        the claimed slots are not readable until published
+         */
+        final Recorder recorder = new Recorder();
+        assertEquals(0, buffer.drain(recorder));
+        for (int i = 0; i < CAPACITY; i++) {
+            buffer.publish(i);
+        }
+        assertEquals(CAPACITY, buffer.drain(recorder));
+        assertEquals(CAPACITY, buffer.tryNext());
+    }
+
+    @Test
+    public void slotsAreReusedAcrossWrapAround() {
+        final TickRingBuffer<LongSlot> buffer = new TickRingBuffer<>(CAPACITY, FACTORY, new WaitStrategy.BusySpin(), false);
+        final List<LongSlot> firstLap = new ArrayList<>();
+        final Recorder recorder = new Recorder();
+
+        for (int lap = 0; lap < 5; lap++) {
+            for (int i = 0; i < CAPACITY - 1; i++) {
+                final long sequence = buffer.tryNext();
+                buffer.get(sequence).mValue = sequence * 10;
+                buffer.publish(sequence);
+                if (lap == 0) {
+                    firstLap.add(buffer.get(sequence));
+                }
+            }
+            assertEquals(CAPACITY - 1, buffer.drain(recorder));
+        }
+
+        /*
+        the sequences keep increasing while the same payloads are handed out again
+         */
+        assertEquals(5 * (CAPACITY - 1), recorder.mSequences.size());
+        for (int i = 0; i < recorder.mSequences.size(); i++) {
+            assertEquals(i, recorder.mSequences.get(i).longValue());
+            assertEquals(i * 10, recorder.mValues.get(i).longValue());
+        }
+        for (int i = 0; i < firstLap.size(); i++) {
+            assertSame(firstLap.get(i), buffer.get(i + CAPACITY));
+            assertSame(firstLap.get(i), buffer.get(i + 3 * CAPACITY));
+        }
+        assertEquals(5, recorder.mEndOfBatchCount);
+    }
+
+    @Test
+    public void singleProducerKeepsOrder() throws Exception {
+        final TickRingBuffer<LongSlot> buffer = new TickRingBuffer<>(CAPACITY, FACTORY, new WaitStrategy.Yielding(), false);
+        final Thread producer = startProducer(buffer, 0, EVENT_COUNT);
+
+        final Recorder recorder = new Recorder();
+        while (recorder.mValues.size() < EVENT_COUNT) {
+            buffer.drainBlocking(recorder);
+        }
+        producer.join();
+
+        for (int i = 0; i < EVENT_COUNT; i++) {
+            assertEquals(i, recorder.mSequences.get(i).longValue());
+            assertEquals(i, recorder.mValues.get(i).longValue());
+        }
+    }
+
+    @Test
+    public void multipleProducersKeepTheirOwnOrder() throws Exception {
+        final int producerCount = 4;
+        final TickRingBuffer<LongSlot> buffer = new TickRingBuffer<>(CAPACITY, FACTORY, new WaitStrategy.Sleeping(), true);
+        final List<Thread> producers = new ArrayList<>();
+        for (int p = 0; p < producerCount; p++) {
+            producers.add(startProducer(buffer, p, EVENT_COUNT / producerCount));
+        }
+
+        final Recorder recorder = new Recorder();
+        while (recorder.mValues.size() < EVENT_COUNT) {
+            buffer.drainBlocking(recorder);
+        }
+        for (Thread producer : producers) {
+            producer.join();
+        }
+
+        /*
+        every event is drained once, in sequence order, and in publication order per producer
+         */
+        final long[] lastCounts = new long[producerCount];
+        for (int p = 0; p < producerCount; p++) {
+            lastCounts[p] = -1;
+        }
+        for (int i = 0; i < EVENT_COUNT; i++) {
+            assertEquals(i, recorder.mSequences.get(i).longValue());
+            final long value = recorder.mValues.get(i);
+            final int p = (int) (value / EVENT_COUNT);
+            final long count = value % EVENT_COUNT;
+            assertEquals(lastCounts[p] + 1, count);
+            lastCounts[p] = count;
+        }
+        for (int p = 0; p < producerCount; p++) {
+            assertEquals(EVENT_COUNT / producerCount - 1, lastCounts[p]);
+        }
+    }
+
+    @Test
+    public void interruptedProducerLeavesNoGap() throws Exception {
+        final TickRingBuffer<LongSlot> buffer = new TickRingBuffer<>(CAPACITY, FACTORY, new WaitStrategy.Blocking(), true);
+        for (int i = 0; i < CAPACITY; i++) {
+            buffer.publish(buffer.next());
+        }
+
+        final AtomicReference<Throwable> thrown = new AtomicReference<>();
+        final Thread producer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    buffer.next();
+                } catch (Throwable e) {
+                    thrown.set(e);
+                }
+            }
+        });
+        producer.start();
+        producer.interrupt();
+        producer.join();
+        assertTrue(thrown.get() instanceof InterruptedException);
+
+        /*
+        the consumer goes on past the waiting producer's interruption
+         */
+        final Recorder recorder = new Recorder();
+        assertEquals(CAPACITY, buffer.drain(recorder));
+        final long sequence = buffer.next();
+        assertEquals(CAPACITY, sequence);
+        buffer.get(sequence).mValue = 42;
+        buffer.publish(sequence);
+        assertEquals(1, buffer.drain(recorder));
+        assertEquals(42, recorder.mValues.get(CAPACITY).longValue());
+    }
+
+    private static Thread startProducer(final TickRingBuffer<LongSlot> buffer, final int producer, final int count) {
+        final Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    for (int i = 0; i < count; i++) {
+                        final long sequence = buffer.next();
+                        buffer.get(sequence).mValue = (long) producer * EVENT_COUNT + i;
+                        buffer.publish(sequence);
+                    }
+                } catch (InterruptedException e) {
+                    e.printStackTrace();
+                }
+            }
+        });
+        thread.start();
+        return thread;
+    }
+
+    private static final class LongSlot {
+        private long mValue;
+    }
+
+    private static final class Recorder implements TickRingBuffer.BatchHandler<LongSlot> {
+
+        private final List<Long> mSequences = new ArrayList<>();
+        private final List<Long> mValues = new ArrayList<>();
+        private int mEndOfBatchCount;
+
+        @Override
+        public void onSlot(LongSlot slot, long sequence, boolean endOfBatch) {
+            mSequences.add(sequence);
+            mValues.add(slot.mValue);
+            if (endOfBatch) {
+                mEndOfBatchCount++;
+            }
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.badlogic.masaki.scheduler.library;
+
+import android.support.annotation.Nullable;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Drives {@link TickWatchdog} by hand on a {@link VirtualClock}, so the timeouts are checked at exact times
+ */
+public class TickWatchdogTest {
+
+    private static final long START_TIME = 1000000;
+    private static final long TICK_TIMEOUT = 50;
+
+    private VirtualClock mClock;
+    private TickWatchdog mWatchdog;
+    private WatchedScheduler mScheduler;
+
+    @Before
+    public void setUp() {
+        mClock = new VirtualClock(START_TIME);
+        mWatchdog = new TickWatchdog(mClock);
+        mScheduler = new WatchedScheduler(100, 300);
+        mScheduler.setClock(mClock);
+        mScheduler.setCallbackExecutor(VirtualClock.DIRECT_EXECUTOR);
+        mScheduler.setWatchdog(mWatchdog);
+        mScheduler.setTickTimeout(TICK_TIMEOUT).setOnTickTimeoutListener(mScheduler);
+    }
+
+    @After
+    public void tearDown() {
+        Thread.interrupted();
+    }
+
+    @Test
+    public void overrunningTickIsCancelledAndInterrupted() {
+        mScheduler.mExecutionTimes = new long[] {80, 10, 10, 10};
+        mScheduler.run();
+
+        assertEquals(1, mScheduler.mTimeoutCount);
+        assertEquals(Boolean.TRUE, mScheduler.mCancelledAfterScan.get(0));
+        assertEquals(Boolean.TRUE, mScheduler.mInterruptedAfterScan.get(0));
+
+        /*
+        the token and the interruption do not leak into the next frames
+         */
+        for (int frame = 1; frame < mScheduler.mCancelledAfterScan.size(); frame++) {
+            assertEquals(Boolean.FALSE, mScheduler.mCancelledAfterScan.get(frame));
+            assertEquals(Boolean.FALSE, mScheduler.mInterruptedAfterScan.get(frame));
+        }
+        assertFalse(Thread.currentThread().isInterrupted());
+    }
+
+    @Test
+    public void tickInTimeIsNotCancelled() {
+        mScheduler.mExecutionTimes = new long[] {TICK_TIMEOUT - 1};
+        mScheduler.run();
+
+        assertEquals(0, mScheduler.mTimeoutCount);
+        assertEquals(START_TIME + TICK_TIMEOUT, mScheduler.mNextDeadlines.get(0).longValue());
+        assertEquals(Boolean.FALSE, mScheduler.mCancelledAfterScan.get(0));
+    }
+
+    @Test
+    public void interruptNotCausedByWatchdogIsKept() {
+        mScheduler.mExecutionTimes = new long[] {10};
+        mScheduler.mInterruptItself = true;
+        mScheduler.run();
+
+        /*
+        cancel() cancels the token too, but the interruption belongs to the task
+         */
+        assertEquals(0, mScheduler.mTimeoutCount);
+        assertEquals(Boolean.TRUE, mScheduler.mCancelledAfterScan.get(0));
+        assertTrue(Thread.interrupted());
+    }
+
+    @Test
+    public void interruptCanBeDisabled() {
+        mScheduler.allowInterruptOnTickTimeout(false);
+        mScheduler.mExecutionTimes = new long[] {80};
+        mScheduler.run();
+
+        assertEquals(1, mScheduler.mTimeoutCount);
+        assertEquals(Boolean.TRUE, mScheduler.mCancelledAfterScan.get(0));
+        assertEquals(Boolean.FALSE, mScheduler.mInterruptedAfterScan.get(0));
+    }
+
+    @Test
+    public void scanReportsEarliestDeadline() {
+        assertEquals(TickWatchdog.NO_DEADLINE, mWatchdog.scan(START_TIME));
+
+        mScheduler.mExecutionTimes = new long[] {10, 10};
+        mScheduler.run();
+
+        assertEquals(START_TIME + TICK_TIMEOUT, mScheduler.mNextDeadlines.get(0).longValue());
+        assertEquals(START_TIME + 100 + TICK_TIMEOUT, mScheduler.mNextDeadlines.get(1).longValue());
+
+        /*
+        the scheduler is unregistered once the run loop has returned
+         */
+        assertEquals(TickWatchdog.NO_DEADLINE, mWatchdog.scan(mClock.currentTimeMillis()));
+    }
+
+    private class WatchedScheduler extends Scheduler implements Scheduler.OnTickTimeoutListener {
+
+        private final List<Boolean> mCancelledAfterScan = new ArrayList<>();
+        private final List<Boolean> mInterruptedAfterScan = new ArrayList<>();
+        private final List<Long> mNextDeadlines = new ArrayList<>();
+        private long[] mExecutionTimes = new long[0];
+        private boolean mInterruptItself;
+        private int mTimeoutCount;
+
+        private WatchedScheduler(long interval, long taskDuration) {
+            super(interval, taskDuration, Scheduler.DURATION_REAL_TIME);
+        }
+
+        @Override
+        protected void executeRegularTask() {
+            final int frame = mCancelledAfterScan.size();
+            if (frame >= mExecutionTimes.length) {
+                cancel();
+                return;
+            }
+
+            mClock.advance(mExecutionTimes[frame]);
+            if (mInterruptItself) {
+                Thread.currentThread().interrupt();
+                cancel();
+            }
+
+            /*
+            the watchdog thread would scan at this point
+             */
+            mNextDeadlines.add(mWatchdog.scan(mClock.currentTimeMillis()));
+            mCancelledAfterScan.add(getTickCancellationToken().isCancelled());
+            mInterruptedAfterScan.add(Thread.currentThread().isInterrupted());
+        }
+
+        @Override
+        public void onTickTimeout(@Nullable Object tag) {
+            mTimeoutCount++;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.badlogic.masaki.scheduler.library;
+
+import java.util.PriorityQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.locks.Condition;
+
+/**
+ * {@link SchedulerClock} whose time only moves when the run loop sleeps or waits
+ * Actions scheduled at virtual times (pause, resume, cancel...) run on the run loop's thread
+ * when the clock passes their time, so a whole scenario is replayed deterministically on one thread
+ */
+public class VirtualClock implements SchedulerClock {
+
+    /**
+     * Executor that runs the scheduler's run loop and callbacks on the calling thread
+     */
+    public static final Executor DIRECT_EXECUTOR = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
+
+    private final PriorityQueue<Action> mActions = new PriorityQueue<>();
+
+    private long mCurrentTime;
+
+    private long mSequence;
+
+    public VirtualClock(long startTime) {
+        mCurrentTime = startTime;
+    }
+
+    /**
+     * Schedules the action to run when the clock reaches the time
+     */
+    public VirtualClock schedule(long time, Runnable action) {
+        mActions.add(new Action(time, mSequence++, action));
+        return this;
+    }
+
+    /**
+     * Moves the clock forward, running the actions due in between
+     * Often called from {@link Scheduler#executeRegularTask()} to simulate the task's execution time
+     */
+    public void advance(long millis) {
+        final long targetTime = mCurrentTime + Math.max(millis, 0);
+        while (!mActions.isEmpty() && mActions.peek().mTime <= targetTime) {
+            runNextAction();
+        }
+        mCurrentTime = targetTime;
+    }
+
+    @Override
+    public long currentTimeMillis() {
+        return mCurrentTime;
+    }
+
+    /**
+     * Throws at once if the thread is interrupted, as {@link Thread#sleep(long)} does
+     */
+    @Override
+    public void sleep(long millis) throws InterruptedException {
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+        advance(millis);
+    }
+
+    @Override
+    public void await(Condition condition) {
+        /*
+        nothing else can signal the condition, so the next action is expected to do it
+         */
+        if (mActions.isEmpty()) {
+            throw new IllegalStateException("run loop waits forever at " + mCurrentTime);
+        }
+        runNextAction();
+    }
+
+    private void runNextAction() {
+        final Action action = mActions.poll();
+        mCurrentTime = Math.max(mCurrentTime, action.mTime);
+        action.mRunnable.run();
+    }
+
+    private static final class Action implements Comparable<Action> {
+        private final long mTime;
+        private final long mSequence;
+        private final Runnable mRunnable;
+
+        private Action(long time, long sequence, Runnable runnable) {
+            mTime = time;
+            mSequence = sequence;
+            mRunnable = runnable;
+        }
+
+        @Override
+        public int compareTo(Action another) {
+            if (mTime != another.mTime) {
+                return mTime < another.mTime ? -1 : 1;
+            }
+            return mSequence < another.mSequence ? -1 : (mSequence == another.mSequence ? 0 : 1);
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.badlogic.masaki.scheduler.library;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the aggregates of {@link WindowAggregator} and how often they are emitted
+ */
+public class WindowAggregatorTest {
+
+    private static final double DELTA = 1e-9;
+
+    @Test
+    public void tumblingWindowEmitsOncePerWindow() {
+        final WindowAggregator aggregator = WindowAggregator.tumbling(100, 50, 99);
+        final List<WindowAggregate> aggregates = new ArrayList<>();
+        for (int i = 1; i <= 1000; i++) {
+            final WindowAggregate aggregate = aggregator.add(i);
+            if (aggregate != null) {
+                aggregates.add(aggregate);
+            }
+        }
+
+        assertEquals(10, aggregates.size());
+        final WindowAggregate last = aggregates.get(9);
+        assertEquals(100, last.getCount());
+        assertEquals(901, last.getMin(), DELTA);
+        assertEquals(1000, last.getMax(), DELTA);
+        assertEquals(950.5, last.getMean(), DELTA);
+        assertEquals(950, last.getPercentile(50), DELTA);
+        assertEquals(999, last.getPercentile(99), DELTA);
+    }
+
+    @Test
+    public void slidingWindowOverlaps() {
+        final WindowAggregator aggregator = WindowAggregator.sliding(4, 2);
+        final List<WindowAggregate> aggregates = new ArrayList<>();
+        for (int i = 1; i <= 8; i++) {
+            final WindowAggregate aggregate = aggregator.add(i);
+            if (aggregate != null) {
+                aggregates.add(aggregate);
+            }
+        }
+
+        /*
+        windows [1..4], [3..6] and [5..8]
+         */
+        assertEquals(3, aggregates.size());
+        assertEquals(1, aggregates.get(0).getMin(), DELTA);
+        assertEquals(3, aggregates.get(1).getMin(), DELTA);
+        assertEquals(8, aggregates.get(2).getMax(), DELTA);
+        assertEquals(6.5, aggregates.get(2).getMean(), DELTA);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void percentileMustBeAggregated() {
+        final WindowAggregator aggregator = WindowAggregator.tumbling(1, 50);
+        aggregator.add(1).getPercentile(90);
+    }
+}
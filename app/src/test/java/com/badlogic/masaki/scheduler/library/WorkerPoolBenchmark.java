@@ -0,0 +1,115 @@
+package com.badlogic.masaki.scheduler.library;
+
+import android.os.Process;
+
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Executes the same tagged schedulers round after round, as happens on configuration changes,
+ * and reports how often each one comes back to the thread it ran on before and how long its first tick takes
+ * Run manually, it is not part of the unit tests
+ */
+@Ignore("benchmark")
+public class WorkerPoolBenchmark {
+
+    private static final int SCHEDULER_COUNT = 20;
+    private static final int ROUND_COUNT = 10;
+    private static final long INTERVAL = 5;
+    private static final long DURATION = 25;
+
+    @Test
+    public void homeWorkers() throws Exception {
+        final ExecutorService cachedPool = Executors.newCachedThreadPool();
+        final double cachedHitRate = run("cached pool", cachedPool);
+        cachedPool.shutdown();
+
+        final WorkerPool workerPool = new WorkerPool(WorkerPool.TAG, Process.THREAD_PRIORITY_DEFAULT);
+        final double homeHitRate = run("worker pool", workerPool);
+        System.out.println("hit rate gain=" + String.format("%.2f", homeHitRate - cachedHitRate)
+                + ", workers=" + workerPool.getWorkerCount());
+    }
+
+    private static double run(String name, Executor executor) throws InterruptedException {
+        final Thread[] lastThreads = new Thread[SCHEDULER_COUNT];
+        int hits = 0;
+        long totalStartLatency = 0;
+
+        for (int round = 0; round < ROUND_COUNT; round++) {
+            final CountDownLatch completed = new CountDownLatch(SCHEDULER_COUNT);
+            final RecordingScheduler[] schedulers = new RecordingScheduler[SCHEDULER_COUNT];
+            for (int i = 0; i < SCHEDULER_COUNT; i++) {
+                schedulers[i] = new RecordingScheduler(completed);
+                schedulers[i].setTag(i);
+                schedulers[i].mExecutedTime = System.nanoTime();
+                executor.execute(schedulers[i]);
+            }
+            assertTrue(completed.await(DURATION * 100, TimeUnit.MILLISECONDS));
+
+            /*
+            lets the workers become idle, as the screen being recreated would
+             */
+            if (executor instanceof WorkerPool) {
+                awaitIdle((WorkerPool) executor);
+            } else {
+                Thread.sleep(INTERVAL);
+            }
+
+            for (int i = 0; i < SCHEDULER_COUNT; i++) {
+                if (round > 0 && schedulers[i].mFirstTickThread == lastThreads[i]) {
+                    hits++;
+                }
+                lastThreads[i] = schedulers[i].mFirstTickThread;
+                totalStartLatency += schedulers[i].mFirstTickTime - schedulers[i].mExecutedTime;
+            }
+        }
+
+        final double hitRate = (double) hits / (SCHEDULER_COUNT * (ROUND_COUNT - 1));
+        System.out.println(name + ": home thread hit rate=" + String.format("%.2f", hitRate)
+                + ", first tick latency avg="
+                + TimeUnit.NANOSECONDS.toMicros(totalStartLatency / (SCHEDULER_COUNT * ROUND_COUNT)) + "us");
+        return hitRate;
+    }
+
+    private static void awaitIdle(WorkerPool pool) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + DURATION * 100;
+        while (pool.getIdleWorkerCount() < pool.getWorkerCount() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+    }
+
+    private static final class RecordingScheduler extends Scheduler {
+        private final CountDownLatch mCompleted;
+        private volatile long mExecutedTime;
+        private volatile long mFirstTickTime;
+        private volatile Thread mFirstTickThread;
+
+        private RecordingScheduler(CountDownLatch completed) {
+            super(INTERVAL, DURATION, Scheduler.DURATION_REAL_TIME);
+            mCompleted = completed;
+            setCallbackExecutor(VirtualClock.DIRECT_EXECUTOR);
+        }
+
+        @Override
+        public void run() {
+            super.run();
+            mCompleted.countDown();
+        }
+
+        @Override
+        protected void executeRegularTask() {
+            if (mFirstTickThread == null) {
+                mFirstTickTime = System.nanoTime();
+                mFirstTickThread = Thread.currentThread();
+            }
+        }
+    }
+}
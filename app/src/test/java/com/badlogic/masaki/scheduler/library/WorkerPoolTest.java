@@ -0,0 +1,124 @@
+package com.badlogic.masaki.scheduler.library;
+
+import android.os.Process;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.ref.WeakReference;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Executes runnables on a {@link WorkerPool} and checks which worker each one runs on
+ */
+public class WorkerPoolTest {
+
+    private static final long TIMEOUT = 5000;
+    private static final int HOME = 1;
+    private static final int OTHER = 2;
+    private static final int SPARE = 3;
+
+    private WorkerPool mPool;
+
+    @Before
+    public void setUp() {
+        mPool = new WorkerPool(WorkerPool.TAG, Process.THREAD_PRIORITY_DEFAULT);
+    }
+
+    @Test
+    public void idleWorkerTakesOverAnotherHome() throws Exception {
+        final Thread first = runScheduler(HOME, null);
+        awaitIdle(1);
+        runScheduler(OTHER, null);
+        awaitIdle(1);
+
+        /*
+        the other scheduler has taken the only idle worker, which is now its home
+         */
+        assertEquals(1, mPool.getWorkerCount());
+        assertSame(first, runScheduler(OTHER, null));
+    }
+
+    @Test
+    public void busyHomeFallsBackToAnIdleWorker() throws Exception {
+        final CountDownLatch firstRelease = new CountDownLatch(1);
+        final Thread home = runScheduler(HOME, firstRelease);
+        final Thread spare = runScheduler(SPARE, firstRelease);
+        firstRelease.countDown();
+        awaitIdle(2);
+
+        final CountDownLatch secondRelease = new CountDownLatch(1);
+        assertSame(home, runScheduler(HOME, secondRelease));
+        assertSame(spare, runScheduler(HOME, secondRelease));
+        secondRelease.countDown();
+        assertEquals(2, mPool.getWorkerCount());
+    }
+
+    @Test
+    public void runnableIsNotRetainedByTheIdleWorker() throws Exception {
+        Runnable runnable = new Runnable() {
+            @Override
+            public void run() {
+            }
+        };
+        final WeakReference<Runnable> reference = new WeakReference<>(runnable);
+        mPool.execute(runnable);
+        runnable = null;
+        awaitIdle(1);
+
+        for (int i = 0; i < 100 && reference.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertNull(reference.get());
+    }
+
+    /**
+     * Executes a scheduler with the tag, holding its worker until released if a latch is given
+     * @return the thread it runs on
+     */
+    private Thread runScheduler(int tag, CountDownLatch release) throws InterruptedException {
+        final BlockingQueue<Thread> threads = new LinkedBlockingQueue<>();
+        mPool.execute(createScheduler(tag, threads, release));
+        final Thread thread = threads.poll(TIMEOUT, TimeUnit.MILLISECONDS);
+        assertNotNull(thread);
+        return thread;
+    }
+
+    /**
+     * Creates a scheduler reporting the thread it runs on, and holding its worker until released
+     */
+    private static Scheduler createScheduler(int tag, final BlockingQueue<Thread> threads,
+                                             final CountDownLatch release) {
+        return new Scheduler(10, 10, Scheduler.DURATION_REAL_TIME) {
+            @Override
+            public void run() {
+                threads.add(Thread.currentThread());
+                if (release != null) {
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        e.printStackTrace();
+                    }
+                }
+            }
+
+            @Override
+            protected void executeRegularTask() {
+            }
+        }.setTag(tag);
+    }
+
+    private void awaitIdle(int count) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + TIMEOUT;
+        while (mPool.getIdleWorkerCount() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        assertEquals(count, mPool.getIdleWorkerCount());
+    }
+}